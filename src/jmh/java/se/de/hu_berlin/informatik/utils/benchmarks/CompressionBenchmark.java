@@ -0,0 +1,84 @@
+/**
+ * 
+ */
+package se.de.hu_berlin.informatik.utils.benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import se.de.hu_berlin.informatik.utils.compression.CompressedByteArrayToIntArraysProcessor;
+import se.de.hu_berlin.informatik.utils.compression.IntArraysToCompressedByteArrayProcessor;
+import se.de.hu_berlin.informatik.utils.compression.IntSequenceCodec;
+
+/**
+ * Measures encoding and decoding of integer sequences with the compression
+ * processors, with a varying number of bits per value, with uniformly
+ * distributed or sorted values and with the available codecs. The codec
+ * "FIXED_WIDTH" stands for the default packing without a codec.
+ * 
+ * @author Simon Heiden
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CompressionBenchmark {
+
+	private static final int SEQUENCES = 100;
+	private static final int SEQUENCE_LENGTH = 1000;
+
+	@Param({ "255", "100000" })
+	private int maxValue;
+
+	@Param({ "uniform", "sorted" })
+	private String values;
+
+	@Param({ "FIXED_WIDTH", "DELTA_VARINT", "PFOR", "RUN_LENGTH" })
+	private String codecName;
+
+	private IntSequenceCodec codec;
+
+	private int[][] sequences;
+	private byte[] encoded;
+
+	@Setup
+	public void setUp() {
+		codec = codecName.equals("FIXED_WIDTH") ? null : IntSequenceCodec.valueOf(codecName);
+		Random random = new Random(42);
+		sequences = new int[SEQUENCES][SEQUENCE_LENGTH];
+		for (int[] sequence : sequences) {
+			for (int i = 0; i < sequence.length; ++i) {
+				sequence[i] = random.nextInt(maxValue + 1);
+			}
+			if (values.equals("sorted")) {
+				Arrays.sort(sequence);
+			}
+		}
+		encoded = encode();
+	}
+
+	@Benchmark
+	public byte[] encode() {
+		IntArraysToCompressedByteArrayProcessor encoder = 
+				new IntArraysToCompressedByteArrayProcessor(maxValue, true).setCodec(codec);
+		for (int[] sequence : sequences) {
+			encoder.processItem(sequence);
+		}
+		return encoder.getResultFromCollectedItems();
+	}
+
+	@Benchmark
+	public int[][] decode() {
+		return new CompressedByteArrayToIntArraysProcessor(true).processItem(encoded);
+	}
+
+}
@@ -0,0 +1,28 @@
+/**
+ * 
+ */
+package se.de.hu_berlin.informatik.utils.benchmarks;
+
+import se.de.hu_berlin.informatik.utils.processors.AbstractConsumingProcessor;
+
+/**
+ * Counts the consumed items. Used at the end of pipe chains, where the items
+ * are consumed in another thread than the benchmark thread. The count may
+ * only be read after the pipes were flushed.
+ * 
+ * @author Simon Heiden
+ */
+class CountingSink extends AbstractConsumingProcessor<Object> {
+
+	private long count = 0;
+
+	@Override
+	public void consumeItem(Object item) {
+		++count;
+	}
+
+	long getCount() {
+		return count;
+	}
+
+}
@@ -0,0 +1,75 @@
+/**
+ * 
+ */
+package se.de.hu_berlin.informatik.utils.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import se.de.hu_berlin.informatik.utils.processors.AbstractConsumingProcessor;
+import se.de.hu_berlin.informatik.utils.processors.AbstractProcessor;
+import se.de.hu_berlin.informatik.utils.processors.sockets.module.ModuleLinker;
+
+/**
+ * Measures the overhead of passing single items through a chain of
+ * {@link se.de.hu_berlin.informatik.utils.processors.sockets.module.Module}s
+ * of varying length in the calling thread.
+ * 
+ * @author Simon Heiden
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ModuleChainBenchmark {
+
+	@Param({ "1", "4", "16" })
+	private int length;
+
+	private ModuleLinker linker;
+	private int next = 0;
+
+	@Setup
+	public void setUp(final Blackhole blackhole) {
+		linker = new ModuleLinker();
+		for (int i = 0; i < length; ++i) {
+			linker.append(new Increment());
+		}
+		linker.append(new Sink(blackhole));
+	}
+
+	@Benchmark
+	public ModuleLinker submit() {
+		return linker.submit(next++);
+	}
+
+	static class Increment extends AbstractProcessor<Integer, Integer> {
+		@Override
+		public Integer processItem(Integer item) {
+			return item + 1;
+		}
+	}
+
+	static class Sink extends AbstractConsumingProcessor<Object> {
+
+		private final Blackhole blackhole;
+
+		Sink(Blackhole blackhole) {
+			this.blackhole = blackhole;
+		}
+
+		@Override
+		public void consumeItem(Object item) {
+			blackhole.consume(item);
+		}
+	}
+
+}
@@ -0,0 +1,90 @@
+/**
+ * 
+ */
+package se.de.hu_berlin.informatik.utils.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import se.de.hu_berlin.informatik.utils.processors.sockets.pipe.PipeLinker;
+import se.de.hu_berlin.informatik.utils.threaded.disruptor.DisruptorWaitStrategy;
+
+/**
+ * Measures the throughput of chains of {@link se.de.hu_berlin.informatik.utils.processors.sockets.pipe.Pipe}s
+ * of varying length, buffer size and wait strategy, with and without fusing the
+ * cheap stages into a single pipe. Each invocation submits a batch of items and
+ * waits until all of them reached the end of the chain, such that the hand-over
+ * between the pipe threads is included in the measurement.
+ * Besides the throughput, the distribution of the time per item is sampled,
+ * since the wait strategies mainly trade CPU usage for latency.
+ * 
+ * @author Simon Heiden
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PipeLinkerBenchmark {
+
+	static final int BATCH_SIZE = 10000;
+
+	@Param({ "1", "3", "6" })
+	private int length;
+
+	@Param({ "64", "1024" })
+	private int bufferSize;
+
+	@Param({ "false", "true" })
+	private boolean fuseCheapStages;
+
+	@Param({ "BUSY_SPIN", "YIELDING", "SLEEPING", "PHASED_BACKOFF", "BLOCKING" })
+	private DisruptorWaitStrategy waitStrategy;
+
+	private PipeLinker linker;
+	private CountingSink sink;
+
+	@Setup
+	public void setUp() {
+		linker = new PipeLinker().setFuseCheapStages(fuseCheapStages);
+		//stages are only fused within a single call to append
+		CheapIncrement[] stages = new CheapIncrement[length];
+		for (int i = 0; i < length; ++i) {
+			stages[i] = new CheapIncrement();
+		}
+		linker.append(bufferSize, waitStrategy, stages);
+		sink = new CountingSink();
+		linker.append(bufferSize, waitStrategy, sink);
+	}
+
+	@TearDown
+	public void tearDown() {
+		linker.shutdown();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public long submitAndFlush() {
+		for (int i = 0; i < BATCH_SIZE; ++i) {
+			linker.submit(i);
+		}
+		linker.flush();
+		return sink.getCount();
+	}
+
+	static class CheapIncrement extends ModuleChainBenchmark.Increment {
+		@Override
+		public boolean isCheap() {
+			return true;
+		}
+	}
+
+}
@@ -0,0 +1,89 @@
+/**
+ * 
+ */
+package se.de.hu_berlin.informatik.utils.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import se.de.hu_berlin.informatik.utils.processors.AbstractConsumingProcessor;
+import se.de.hu_berlin.informatik.utils.processors.basics.ThreadedListProcessor;
+import se.de.hu_berlin.informatik.utils.processors.sockets.module.Module;
+
+/**
+ * Measures the throughput of a {@link ThreadedListProcessor} with a varying
+ * number of threads. Each invocation processes a whole list, which includes
+ * starting and shutting down the disruptor and its threads.
+ * 
+ * @author Simon Heiden
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ThreadedListProcessorBenchmark {
+
+	@Param({ "1", "2", "4" })
+	private int threads;
+
+	/**
+	 * the amount of work per item, in units of {@link Blackhole#consumeCPU(long)}
+	 */
+	@Param({ "0", "1000" })
+	private long work;
+
+	private final LongAdder count = new LongAdder();
+	private Module<List<Integer>, Object> module;
+	private List<Integer> items;
+
+	@Setup
+	public void setUp() {
+		items = new ArrayList<>(PipeLinkerBenchmark.BATCH_SIZE);
+		for (int i = 0; i < PipeLinkerBenchmark.BATCH_SIZE; ++i) {
+			items.add(i);
+		}
+		module = new ThreadedListProcessor<>(threads, new Work(work, count)).asModule();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PipeLinkerBenchmark.BATCH_SIZE)
+	public long processList() {
+		module.submit(items);
+		return count.sum();
+	}
+
+	static class Work extends AbstractConsumingProcessor<Integer> {
+
+		private final long tokens;
+		private final LongAdder count;
+
+		Work(long tokens, LongAdder count) {
+			this.tokens = tokens;
+			this.count = count;
+		}
+
+		@Override
+		public void consumeItem(Integer item) {
+			Blackhole.consumeCPU(tokens);
+			count.increment();
+		}
+
+		@Override
+		public Work newProcessorInstance() {
+			return new Work(tokens, count);
+		}
+	}
+
+}
@@ -0,0 +1,95 @@
+/**
+ * 
+ */
+package se.de.hu_berlin.informatik.utils.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import se.de.hu_berlin.informatik.utils.processors.AbstractProcessor;
+import se.de.hu_berlin.informatik.utils.processors.basics.ThreadedProcessor;
+import se.de.hu_berlin.informatik.utils.processors.sockets.pipe.PipeLinker;
+
+/**
+ * Measures the throughput of a {@link ThreadedProcessor} with a varying number
+ * of threads and a varying amount of work per item, with and without
+ * preserving the order of the items. The output of the threads is
+ * collected by the multiplexer and passed on to a counting pipe.
+ * 
+ * @author Simon Heiden
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ThreadedProcessorBenchmark {
+
+	@Param({ "1", "2", "4" })
+	private int threads;
+
+	/**
+	 * the amount of work per item, in units of {@link Blackhole#consumeCPU(long)}
+	 */
+	@Param({ "0", "1000" })
+	private long work;
+
+	@Param({ "false", "true" })
+	private boolean preserveOrder;
+
+	private PipeLinker linker;
+	private CountingSink sink;
+
+	@Setup
+	public void setUp() {
+		sink = new CountingSink();
+		linker = new PipeLinker().append(
+				new ThreadedProcessor<>(threads, new Work(work)).setPreserveOrder(preserveOrder),
+				sink);
+	}
+
+	@TearDown
+	public void tearDown() {
+		linker.shutdown();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PipeLinkerBenchmark.BATCH_SIZE)
+	public long submitAndFlush() {
+		for (int i = 0; i < PipeLinkerBenchmark.BATCH_SIZE; ++i) {
+			linker.submit(i);
+		}
+		linker.flush();
+		return sink.getCount();
+	}
+
+	static class Work extends AbstractProcessor<Integer, Integer> {
+
+		private final long tokens;
+
+		Work(long tokens) {
+			this.tokens = tokens;
+		}
+
+		@Override
+		public Integer processItem(Integer item) {
+			Blackhole.consumeCPU(tokens);
+			return item;
+		}
+
+		@Override
+		public Work newProcessorInstance() {
+			return new Work(tokens);
+		}
+	}
+
+}
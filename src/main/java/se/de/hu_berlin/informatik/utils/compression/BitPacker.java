@@ -0,0 +1,166 @@
+/**
+ *
+ */
+package se.de.hu_berlin.informatik.utils.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Packs values with a given number of bits into a stream of bytes, starting
+ * with the most significant bit of each value and filling each byte from its
+ * most significant bit on. The last byte is padded with zero bits. This is
+ * the bit layout that is used by all compression processors.
+ *
+ * <p> The bits are accumulated in a 64-bit word, and only whole words are
+ * copied to an internal buffer which is written to the underlying output
+ * stream once it is full.
+ *
+ * @author Simon Heiden
+ */
+public class BitPacker {
+
+	// same buffer that is used in zip utils
+	private static final int DEFAULT_BUFFER_SIZE = 4096;
+
+	private final OutputStream out;
+	private final byte[] buffer;
+	private int bufferPos = 0;
+
+	private long word = 0;
+	private int bitsInWord = 0;
+	private long bitCount = 0;
+
+	/**
+	 * Creates a new bit packer.
+	 * @param out
+	 * the output stream to write the packed bytes to
+	 */
+	public BitPacker(OutputStream out) {
+		this(out, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates a new bit packer.
+	 * @param out
+	 * the output stream to write the packed bytes to
+	 * @param bufferSize
+	 * the number of bytes to buffer before writing to the output stream
+	 */
+	public BitPacker(OutputStream out, int bufferSize) {
+		super();
+		if (bufferSize < 8) {
+			throw new IllegalArgumentException("Buffer size has to be at least 8 bytes.");
+		}
+		this.out = out;
+		this.buffer = new byte[bufferSize];
+	}
+
+	/**
+	 * Writes the lowest bits of the given value. Higher bits are ignored.
+	 * @param value
+	 * the value to write
+	 * @param bits
+	 * the number of bits to write, between 1 and 64
+	 * @throws IOException
+	 * if writing to the output stream fails
+	 */
+	public void write(long value, int bits) throws IOException {
+		value &= -1L >>> (64 - bits);
+		int freeBits = 64 - bitsInWord;
+		if (bits < freeBits) {
+			word |= value << (freeBits - bits);
+			bitsInWord += bits;
+		} else {
+			//fill the current word and start a new one with the remaining bits
+			int remainingBits = bits - freeBits;
+			word |= value >>> remainingBits;
+			writeWord(word);
+			word = remainingBits == 0 ? 0 : value << (64 - remainingBits);
+			bitsInWord = remainingBits;
+		}
+		bitCount += bits;
+	}
+
+	private void writeWord(long word) throws IOException {
+		if (bufferPos + 8 > buffer.length) {
+			writeBuffer();
+		}
+		buffer[bufferPos] = (byte) (word >>> 56);
+		buffer[bufferPos + 1] = (byte) (word >>> 48);
+		buffer[bufferPos + 2] = (byte) (word >>> 40);
+		buffer[bufferPos + 3] = (byte) (word >>> 32);
+		buffer[bufferPos + 4] = (byte) (word >>> 24);
+		buffer[bufferPos + 5] = (byte) (word >>> 16);
+		buffer[bufferPos + 6] = (byte) (word >>> 8);
+		buffer[bufferPos + 7] = (byte) word;
+		bufferPos += 8;
+	}
+
+	private void writeBuffer() throws IOException {
+		if (bufferPos > 0) {
+			out.write(buffer, 0, bufferPos);
+			bufferPos = 0;
+		}
+	}
+
+	/**
+	 * Pads the last started byte with zero bits and writes all buffered bytes
+	 * to the output stream. Subsequently written values start at a new byte.
+	 * Does not flush or close the output stream.
+	 * @throws IOException
+	 * if writing to the output stream fails
+	 */
+	public void finish() throws IOException {
+		int bytes = (bitsInWord + 7) >>> 3;
+		if (bufferPos + bytes > buffer.length) {
+			writeBuffer();
+		}
+		for (int i = 0; i < bytes; ++i) {
+			buffer[bufferPos++] = (byte) (word >>> (56 - 8 * i));
+		}
+		bitCount += (bytes << 3) - bitsInWord;
+		word = 0;
+		bitsInWord = 0;
+		writeBuffer();
+	}
+
+	/**
+	 * Writes all buffered whole words to the output stream. In contrast to
+	 * {@link #finish()}, the last started byte is not padded and subsequently
+	 * written values continue to be packed into it. The bits that were not
+	 * written, yet, can be obtained with {@link #getPendingBytes()}.
+	 * Does not flush or close the output stream.
+	 * @throws IOException
+	 * if writing to the output stream fails
+	 */
+	public void flush() throws IOException {
+		writeBuffer();
+	}
+
+	/**
+	 * Returns the bits that are not yet written to the output stream, after
+	 * calling {@link #flush()}, padded with zero bits to whole bytes. Does not
+	 * change the state of this packer. Appending the returned bytes to the
+	 * bytes written so far gives the same result as calling {@link #finish()}.
+	 * @return
+	 * the pending bytes (may be empty)
+	 */
+	public byte[] getPendingBytes() {
+		int bytes = (bitsInWord + 7) >>> 3;
+		byte[] pending = new byte[bytes];
+		for (int i = 0; i < bytes; ++i) {
+			pending[i] = (byte) (word >>> (56 - 8 * i));
+		}
+		return pending;
+	}
+
+	/**
+	 * @return
+	 * the number of bits written so far, including padding bits
+	 */
+	public long getBitCount() {
+		return bitCount;
+	}
+
+}
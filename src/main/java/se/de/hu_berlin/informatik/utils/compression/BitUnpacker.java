@@ -0,0 +1,281 @@
+/**
+ *
+ */
+package se.de.hu_berlin.informatik.utils.compression;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads values with a given number of bits from a byte array or an input
+ * stream that were packed with a {@link BitPacker}.
+ *
+ * <p> Whole bytes are accumulated in a 64-bit word, such that most values
+ * can be extracted with a single shift and mask operation.
+ *
+ * @author Simon Heiden
+ */
+public class BitUnpacker {
+
+	// same buffer that is used in zip utils
+	private static final int DEFAULT_BUFFER_SIZE = 4096;
+
+	private final InputStream in;
+	private final byte[] buffer;
+	private int bufferPos;
+	private int bufferLimit;
+
+	private long word = 0;
+	private int bitsInWord = 0;
+	// the number of bytes that were added to the word
+	private long bytesRead = 0;
+
+	/**
+	 * Creates a bit unpacker that reads the bytes of the given array,
+	 * starting at the given offset.
+	 * @param array
+	 * the packed bytes
+	 * @param offset
+	 * the index of the first byte to read
+	 */
+	public BitUnpacker(byte[] array, int offset) {
+		this(array, offset, array.length - offset);
+	}
+
+	/**
+	 * Creates a bit unpacker that reads the given range of bytes of the given array.
+	 * @param array
+	 * the packed bytes
+	 * @param offset
+	 * the index of the first byte to read
+	 * @param length
+	 * the number of bytes to read
+	 */
+	public BitUnpacker(byte[] array, int offset, int length) {
+		super();
+		if (offset < 0 || length < 0 || offset + length > array.length) {
+			throw new IllegalArgumentException("Invalid range: offset " + offset + ", length " + length + ".");
+		}
+		this.in = null;
+		this.buffer = array;
+		this.bufferPos = offset;
+		this.bufferLimit = offset + length;
+	}
+
+	/**
+	 * Creates a bit unpacker that reads the remaining bytes of the given buffer.
+	 * The position of the given buffer is not modified. Heap buffers are read
+	 * directly, other buffers are copied in chunks.
+	 * @param buffer
+	 * the packed bytes
+	 * @return
+	 * a bit unpacker
+	 */
+	public static BitUnpacker of(ByteBuffer buffer) {
+		if (buffer.hasArray()) {
+			return new BitUnpacker(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+		} else {
+			return new BitUnpacker(new ByteBufferInputStream(buffer.duplicate()), DEFAULT_BUFFER_SIZE);
+		}
+	}
+
+	/**
+	 * Creates a bit unpacker that reads the bytes of the given input stream.
+	 * @param in
+	 * the input stream to read the packed bytes from
+	 */
+	public BitUnpacker(InputStream in) {
+		this(in, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates a bit unpacker that reads the bytes of the given input stream.
+	 * @param in
+	 * the input stream to read the packed bytes from
+	 * @param bufferSize
+	 * the number of bytes to read from the stream at once
+	 */
+	public BitUnpacker(InputStream in, int bufferSize) {
+		super();
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("Buffer size has to be positive.");
+		}
+		this.in = in;
+		this.buffer = new byte[bufferSize];
+		this.bufferPos = 0;
+		this.bufferLimit = 0;
+	}
+
+	/**
+	 * Reads the next value.
+	 * @param bits
+	 * the number of bits of the value, between 1 and 64
+	 * @return
+	 * the value
+	 * @throws IOException
+	 * if reading from the input stream fails
+	 * @throws EOFException
+	 * if less than the given number of bits are left
+	 */
+	public long read(int bits) throws IOException {
+		if (bits > 56) {
+			//may not fit into the word together with the bits of a partially read byte
+			long high = read(bits - 32);
+			return (high << 32) | read(32);
+		}
+		if (bitsInWord < bits) {
+			fillWord();
+			if (bitsInWord < bits) {
+				throw new EOFException("Can not read " + bits + " bits, only " + bitsInWord + " bits left.");
+			}
+		}
+		bitsInWord -= bits;
+		return (word >>> bitsInWord) & (-1L >>> (64 - bits));
+	}
+
+	/**
+	 * Reads the next value.
+	 * @param bits
+	 * the number of bits of the value, between 1 and 32
+	 * @return
+	 * the value
+	 * @throws IOException
+	 * if reading from the input stream fails
+	 * @throws EOFException
+	 * if less than the given number of bits are left
+	 */
+	public int readInt(int bits) throws IOException {
+		return (int) read(bits);
+	}
+
+	/**
+	 * @param bits
+	 * a number of bits, between 1 and 64
+	 * @return
+	 * whether at least the given number of bits are left to read
+	 * @throws IOException
+	 * if reading from the input stream fails
+	 */
+	public boolean hasRemaining(int bits) throws IOException {
+		if (bitsInWord < bits) {
+			fillWord();
+			if (bitsInWord < bits && bitsInWord > 56) {
+				//the next byte does not fit into the word, but it provides the missing bits
+				return bufferPos < bufferLimit || fillBuffer();
+			}
+		}
+		return bitsInWord >= bits;
+	}
+
+	/**
+	 * Skips the given number of bits. Whole bytes are skipped without
+	 * decoding them, using {@link InputStream#skip(long)} for streams.
+	 * @param bits
+	 * the number of bits to skip
+	 * @throws IOException
+	 * if reading from the input stream fails
+	 * @throws EOFException
+	 * if less than the given number of bits are left
+	 */
+	public void skip(long bits) throws IOException {
+		if (bits < 0) {
+			throw new IllegalArgumentException("Can not skip a negative number of bits.");
+		}
+		if (bits <= bitsInWord) {
+			bitsInWord -= bits;
+			return;
+		}
+		bits -= bitsInWord;
+		bitsInWord = 0;
+		long bytes = bits >>> 3;
+		//skip the buffered bytes first
+		int buffered = (int) Math.min(bytes, bufferLimit - bufferPos);
+		bufferPos += buffered;
+		bytesRead += buffered;
+		bytes -= buffered;
+		while (bytes > 0 && in != null) {
+			long skipped = in.skip(bytes);
+			if (skipped <= 0) {
+				//some streams only skip after reading
+				if (in.read() < 0) {
+					break;
+				}
+				skipped = 1;
+			}
+			bytesRead += skipped;
+			bytes -= skipped;
+		}
+		if (bytes > 0) {
+			throw new EOFException("Can not skip " + bits + " bits, input ended early.");
+		}
+		if ((bits & 7) > 0) {
+			read((int) (bits & 7));
+		}
+	}
+
+	/**
+	 * @return
+	 * the number of bits that were read or skipped so far
+	 */
+	public long getBitPosition() {
+		return (bytesRead << 3) - bitsInWord;
+	}
+
+	private void fillWord() throws IOException {
+		//add whole bytes as long as they fit into the word
+		while (bitsInWord <= 56) {
+			if (bufferPos >= bufferLimit && !fillBuffer()) {
+				return;
+			}
+			word = (word << 8) | (buffer[bufferPos++] & 0xFF);
+			bitsInWord += 8;
+			++bytesRead;
+		}
+	}
+
+	private boolean fillBuffer() throws IOException {
+		if (in == null) {
+			return false;
+		}
+		int length;
+		while ((length = in.read(buffer)) == 0) {
+			// try again
+		}
+		if (length < 0) {
+			return false;
+		}
+		bufferPos = 0;
+		bufferLimit = length;
+		return true;
+	}
+
+	private static class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		private ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			len = Math.min(len, buffer.remaining());
+			buffer.get(b, off, len);
+			return len;
+		}
+	}
+
+}
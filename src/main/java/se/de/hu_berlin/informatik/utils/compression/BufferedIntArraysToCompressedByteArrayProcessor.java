@@ -32,18 +32,20 @@ public class BufferedIntArraysToCompressedByteArrayProcessor extends AbstractPro
 
 	private static final byte TOTAL_END_MARKER = 0;
 	
-	private byte[] result;
+	private BitPacker packer;
 	
 	private byte neededBits;
 	private int sequenceLength;
-	private int lastByteIndex = -1;
-	private byte remainingFreeBits = 0;
 
 	private int maxValue;
 
 	private boolean containsZero;
 
 	private Thread zipFileListener;
+	private final String fileName;
+	private SequenceIndex index = null;
+	private IntSequenceCodec codec = null;
+	private boolean headerWritten = false;
 	
 	public BufferedIntArraysToCompressedByteArrayProcessor(
 			Path zipFilePath, String fileName, boolean deleteExisting, 
@@ -58,6 +60,7 @@ public class BufferedIntArraysToCompressedByteArrayProcessor extends AbstractPro
 		}
 		
 		zipFile = ZipFileWrapper.getZipFileWrapper(zipFilePath);
+		this.fileName = fileName;
 		
 		PipedInputStream in = new PipedInputStream();
 		out = new PipedOutputStream(in);
@@ -70,14 +73,14 @@ public class BufferedIntArraysToCompressedByteArrayProcessor extends AbstractPro
 		if (sequenceLength == 0) {
 			++this.maxValue;
 		}
-		result = new byte[BUFFER_SIZE];
+		packer = new BitPacker(out, BUFFER_SIZE);
 		
 		//compute the number of bits needed to represent integers with the given maximum value
 		neededBits = ceilLog2(this.maxValue);
 
 		this.sequenceLength = sequenceLength;
-		//add a header that contains information needed for decoding
-		addHeader(neededBits, sequenceLength);
+		//the header that contains information needed for decoding gets added
+		//before the first sequence, since it depends on the codec
 	}
 
 	private Thread startZipFileListener(String fileName, PipedInputStream in) {
@@ -127,9 +130,56 @@ public class BufferedIntArraysToCompressedByteArrayProcessor extends AbstractPro
 	}
 	
 	
+	/**
+	 * Enables writing a {@link SequenceIndex} with the bit offsets of every
+	 * K-th sequence. The index is added to the zip file as a separate entry
+	 * after all sequences were written, and it allows readers to seek to
+	 * single sequences. Has to be called before the first sequence is processed.
+	 * @param blockSize
+	 * the number of sequences per index block (K)
+	 * @return
+	 * this processor
+	 */
+	public BufferedIntArraysToCompressedByteArrayProcessor enableIndex(int blockSize) {
+		if (headerWritten) {
+			throw new IllegalStateException("Index has to be enabled before processing the first sequence.");
+		}
+		index = new SequenceIndex(blockSize);
+		return this;
+	}
+	
+	/**
+	 * Sets the codec to encode the sequences with. Has to be called before
+	 * the first sequence is processed. With a codec, the given maximum value
+	 * is ignored and sequences may contain arbitrary integers.
+	 * @param codec
+	 * the codec, or null to pack all values with the number of bits that
+	 * is needed for the maximum value (default)
+	 * @return
+	 * this processor
+	 */
+	public BufferedIntArraysToCompressedByteArrayProcessor setCodec(IntSequenceCodec codec) {
+		if (headerWritten) {
+			throw new IllegalStateException("Codec has to be set before processing the first sequence.");
+		}
+		this.codec = codec;
+		return this;
+	}
+	
+	private void writeHeaderIfNeeded() {
+		if (!headerWritten) {
+			headerWritten = true;
+			try {
+				addHeader(codec == null ? neededBits : codec.getHeaderByte(), sequenceLength);
+			} catch (IOException e) {
+				Log.abort(this, e, "Could not write to output stream.");
+			}
+		}
+	}
+	
 	private void addHeader(byte neededBits, int sequenceLength) throws IOException {
 		// header should be 5 bytes:
-		// | number of bits used for one element (1 byte) | sequence length (4 bytes) - 0 for delimiter mode |
+		// | number of bits used for one element or codec (1 byte) | sequence length (4 bytes) - 0 for delimiter mode |
 		
 		ByteBuffer b = ByteBuffer.allocate(4);
 		//b.order(ByteOrder.BIG_ENDIAN); // optional, the initial order of a byte buffer is always BIG_ENDIAN.
@@ -143,6 +193,11 @@ public class BufferedIntArraysToCompressedByteArrayProcessor extends AbstractPro
 	 */
 	@Override
 	public byte[] processItem(int[] intArray) {
+		writeHeaderIfNeeded();
+		if (codec != null) {
+			storeWithCodec(intArray);
+			return null;
+		}
 		if (sequenceLength == 0) {
 			for (int element : intArray) {
 				int i = containsZero ? element+2 : element+1;
@@ -156,6 +211,7 @@ public class BufferedIntArraysToCompressedByteArrayProcessor extends AbstractPro
 				
 			}
 			
+			addToIndex();
 			for (int element : intArray) {
 				storeNextInteger(containsZero ? element+2 : element+1);
 			}
@@ -175,6 +231,7 @@ public class BufferedIntArraysToCompressedByteArrayProcessor extends AbstractPro
 				
 			}
 			
+			addToIndex();
 			for (int element : intArray) {
 				storeNextInteger(containsZero ? element+1 : element);
 			}
@@ -183,6 +240,32 @@ public class BufferedIntArraysToCompressedByteArrayProcessor extends AbstractPro
 		return null;
 	}
 
+	private void addToIndex() {
+		if (index != null) {
+			// the header consists of 5 bytes
+			index.addSequence(40 + packer.getBitCount());
+		}
+	}
+
+	private void storeWithCodec(int[] intArray) {
+		if (sequenceLength != 0 && intArray.length != sequenceLength) {
+			closeOutputStream();
+			Log.abort(this, "given sequence is of length %d, but should be %d.", intArray.length, sequenceLength);
+		}
+		addToIndex();
+		try {
+			//a set bit precedes each sequence, and a zero bit marks the end
+			packer.write(1, 1);
+			//sequences are prefixed with their length instead of being delimited
+			if (sequenceLength == 0) {
+				IntSequenceCodec.writeVarint(packer, intArray.length);
+			}
+			codec.encode(intArray, intArray.length, packer);
+		} catch (IOException e) {
+			Log.abort(this, e, "Could not write to output stream.");
+		}
+	}
+
 	private void storeNextInteger(int element) {
 		if (element > maxValue) {
 			Log.warn(this, "Trying to store '%d', but max value set to '%d'.", element, maxValue);
@@ -191,41 +274,23 @@ public class BufferedIntArraysToCompressedByteArrayProcessor extends AbstractPro
 				Log.abort(this, "Can not store '%d' in %d bits.", element, neededBits);
 			}
 		}
-		//reset the bits left to write
-		byte bitsLeft = neededBits;
-		//keep only relevant bits as defined by the given maximum value
-		element = keepLastNBits(element, bitsLeft);
-		//add bits until all bits of the given number are processed
-		while (bitsLeft > 0) {
-			//add a new byte if no space is left
-			if (remainingFreeBits == 0) {
-				addNewByteToList();
-				//remainingFreeBits > 0 holds now!
-			}
-			//need to shift the bits differently if more bits are left to write than free bits are remaining in the last byte of the list
-			if (bitsLeft > remainingFreeBits) {
-				bitsLeft -= remainingFreeBits;
-				result[lastByteIndex] = (byte) (result[lastByteIndex] | (element >>> bitsLeft));
-				remainingFreeBits = 0;
-				//set the first bits that are processed already to 0 and keep only the last n bits
-				element = keepLastNBits(element, bitsLeft);
-			} else { //bitsLeft <= remainingFreeBits
-				result[lastByteIndex] = (byte) (result[lastByteIndex] | (element << (remainingFreeBits - bitsLeft)));
-				remainingFreeBits -= bitsLeft;
-				bitsLeft = 0;
-			}
+		try {
+			packer.write(element, neededBits);
+		} catch (IOException e) {
+			Log.abort(this, e, "Could not write to output stream.");
 		}
 	}
 
 	private void closeOutputStream() {
 		if (out != null) {
-			storeNextInteger(TOTAL_END_MARKER);
+			writeHeaderIfNeeded();
 			try {
-				if (lastByteIndex >= 0) {
-					out.write(result, 0, lastByteIndex+1);
-					lastByteIndex = -1;
+				if (codec == null) {
+					packer.write(TOTAL_END_MARKER, neededBits);
+				} else {
+					packer.write(0, 1);
 				}
-				result = null;
+				packer.finish();
 
 				out.flush();
 				out.close();
@@ -239,6 +304,9 @@ public class BufferedIntArraysToCompressedByteArrayProcessor extends AbstractPro
 					}
 				}
 				out = null;
+				if (index != null && zipFile != null) {
+					zipFile.addArray(index.toByteArray(), fileName + SequenceIndex.SUFFIX);
+				}
 			}
 		}
 		
@@ -252,28 +320,6 @@ public class BufferedIntArraysToCompressedByteArrayProcessor extends AbstractPro
 		return null;
 	}
 
-	private void addNewByteToList() {
-		++lastByteIndex;
-		remainingFreeBits = 8;
-		writeBufferToStreamIfFull();
-	}
-
-	private void writeBufferToStreamIfFull() {
-		if (lastByteIndex >= BUFFER_SIZE) {
-			try {
-				out.write(result);
-			} catch (IOException e) {
-				Log.abort(this, e, "Could not write to output stream.");
-			}
-			lastByteIndex = 0;
-			result = new byte[BUFFER_SIZE];
-		}
-	}
-	
-	private int keepLastNBits(int element, byte n) {
-		return element & (int)Math.pow(2, n)-1;
-	}
-
 	private static byte ceilLog2(int n) {
 	    if (n < 0) {
 	    	throw new IllegalArgumentException("Can not compute for n = " + n);
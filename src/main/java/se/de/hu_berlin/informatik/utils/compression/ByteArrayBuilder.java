@@ -0,0 +1,165 @@
+/**
+ *
+ */
+package se.de.hu_berlin.informatik.utils.compression;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Growable buffer of primitive bytes that is used to build compressed
+ * byte arrays in memory. Unlike a {@link java.io.ByteArrayOutputStream},
+ * it is not synchronized and allows to overwrite already written bytes,
+ * e.g. to fill in header fields that are only known after all data
+ * has been written.
+ *
+ * @author Simon Heiden
+ */
+public class ByteArrayBuilder extends OutputStream {
+
+	// some VMs reserve header words in arrays
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+	private static final int DEFAULT_CAPACITY = 4096;
+
+	private byte[] buffer;
+	private int count = 0;
+
+	/**
+	 * Creates a new byte array builder with a default initial capacity.
+	 */
+	public ByteArrayBuilder() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new byte array builder.
+	 * @param initialCapacity
+	 * the initial capacity in bytes
+	 */
+	public ByteArrayBuilder(int initialCapacity) {
+		super();
+		if (initialCapacity < 0) {
+			throw new IllegalArgumentException("Negative initial capacity: " + initialCapacity);
+		}
+		this.buffer = new byte[initialCapacity];
+	}
+
+	private void ensureCapacity(int minCapacity) {
+		if (minCapacity < 0 || minCapacity > MAX_ARRAY_SIZE) {
+			throw new IllegalStateException("Can not store more than " + MAX_ARRAY_SIZE + " bytes.");
+		}
+		if (minCapacity > buffer.length) {
+			//grow by 50%, but at least to the requested capacity
+			long newCapacity = Math.max(minCapacity, buffer.length + (buffer.length >> 1));
+			buffer = Arrays.copyOf(buffer, (int) Math.min(newCapacity, MAX_ARRAY_SIZE));
+		}
+	}
+
+	@Override
+	public void write(int b) {
+		ensureCapacity(count + 1);
+		buffer[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		if (off < 0 || len < 0 || off + len > b.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		ensureCapacity(count + len);
+		System.arraycopy(b, off, buffer, count, len);
+		count += len;
+	}
+
+	/**
+	 * Appends the given integer as 4 bytes in big endian order.
+	 * @param value
+	 * the integer to append
+	 */
+	public void writeInt(int value) {
+		ensureCapacity(count + 4);
+		putInt(count, value);
+		count += 4;
+	}
+
+	/**
+	 * Appends the given long as 8 bytes in big endian order.
+	 * @param value
+	 * the long to append
+	 */
+	public void writeLong(long value) {
+		ensureCapacity(count + 8);
+		putInt(count, (int) (value >>> 32));
+		putInt(count + 4, (int) value);
+		count += 8;
+	}
+
+	/**
+	 * Overwrites 4 already written bytes with the given integer in big endian order.
+	 * @param index
+	 * the index of the first byte to overwrite
+	 * @param value
+	 * the integer to store
+	 */
+	public void setInt(int index, int value) {
+		if (index < 0 || index + 4 > count) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + count);
+		}
+		putInt(index, value);
+	}
+
+	private void putInt(int index, int value) {
+		buffer[index] = (byte) (value >>> 24);
+		buffer[index + 1] = (byte) (value >>> 16);
+		buffer[index + 2] = (byte) (value >>> 8);
+		buffer[index + 3] = (byte) value;
+	}
+
+	/**
+	 * @return
+	 * the number of written bytes
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Discards all written bytes. The allocated capacity is kept.
+	 */
+	public void reset() {
+		count = 0;
+	}
+
+	/**
+	 * @return
+	 * a new array that contains the written bytes
+	 */
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buffer, count);
+	}
+
+	/**
+	 * @param suffix
+	 * bytes to append to the copy, without writing them to this builder
+	 * @return
+	 * a new array that contains the written bytes, followed by the given bytes
+	 */
+	public byte[] toByteArray(byte[] suffix) {
+		byte[] result = Arrays.copyOf(buffer, count + suffix.length);
+		System.arraycopy(suffix, 0, result, count, suffix.length);
+		return result;
+	}
+
+	/**
+	 * Returns a read-only view of the written bytes without copying them.
+	 * The view is backed by the internal array and does not reflect bytes
+	 * that are written after the internal array had to grow.
+	 * @return
+	 * a read-only byte buffer, positioned at the first written byte
+	 */
+	public ByteBuffer toByteBuffer() {
+		return ByteBuffer.wrap(buffer, 0, count).asReadOnlyBuffer();
+	}
+
+}
@@ -3,8 +3,7 @@
  */
 package se.de.hu_berlin.informatik.utils.compression;
 
-import java.nio.ByteBuffer;
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.List;
 
 import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
@@ -18,12 +17,11 @@ import se.de.hu_berlin.informatik.utils.processors.AbstractProcessor;
  */
 public class ByteArraysToCompressedByteArrayProcessor extends AbstractProcessor<byte[],byte[] > {
 
-	private List<Byte> result;
+	private ByteArrayBuilder result;
+	private BitPacker packer;
 	
 	private byte neededBits;
 	private int sequenceLength;
-	private int lastByteIndex = 0;
-	private byte remainingFreeBits = 0;
 	private int totalSequences = 0;
 
 	private int maxValue;
@@ -31,7 +29,8 @@ public class ByteArraysToCompressedByteArrayProcessor extends AbstractProcessor<
 	public ByteArraysToCompressedByteArrayProcessor(int maxValue, int sequenceLength) {
 		super();
 		this.maxValue = maxValue;
-		result = new ArrayList<>();
+		result = new ByteArrayBuilder();
+		packer = new BitPacker(result);
 		
 		//compute the number of bits needed to represent integers with the given maximum value
 		neededBits = ceilLog2(this.maxValue);
@@ -46,21 +45,12 @@ public class ByteArraysToCompressedByteArrayProcessor extends AbstractProcessor<
 		// header should be 9 bytes:
 		// | number of bits used for one element (1 byte) | sequence length (4 bytes) | total number of sequences (4 bytes) |
 		
-		result.add(neededBits);
+		result.write(neededBits);
 		
-		ByteBuffer b = ByteBuffer.allocate(4);
-		//b.order(ByteOrder.BIG_ENDIAN); // optional, the initial order of a byte buffer is always BIG_ENDIAN.
-		b.putInt(sequenceLength);
-
-		for (int i = 0; i < 4; ++i) {
-			result.add(b.array()[i]);
-		}
+		result.writeInt(sequenceLength);
 		
 		//stores the number of sequences in the end (gets replaced)
-		for (int i = 0; i < 4; ++i) {
-			result.add((byte) 0);
-		}
-		lastByteIndex = 8;
+		result.writeInt(0);
 	}
 
 	/* (non-Javadoc)
@@ -79,29 +69,10 @@ public class ByteArraysToCompressedByteArrayProcessor extends AbstractProcessor<
 					Log.abort(this, "Can not store '%d' in %d bits.", element, neededBits);
 				}
 			}
-			//reset the bits left to write
-			byte bitsLeft = neededBits;
-			//keep only relevant bits as defined by the given maximum value
-			element = keepLastNBits(element, bitsLeft);
-			//add bits until all bits of the given number are processed
-			while (bitsLeft > 0) {
-				//add a new byte if no space is left
-				if (remainingFreeBits == 0) {
-					addNewByteToList();
-					//remainingFreeBits > 0 holds now!
-				}
-				//need to shift the bits differently if more bits are left to write than free bits are remaining in the last byte of the list
-				if (bitsLeft > remainingFreeBits) {
-					bitsLeft -= remainingFreeBits;
-					result.set(lastByteIndex, (byte) (result.get(lastByteIndex) | (element >>> bitsLeft)));
-					remainingFreeBits = 0;
-					//set the first bits that are processed already to 0 and keep only the last n bits
-					element = keepLastNBits(element, bitsLeft);
-				} else { //bitsLeft <= remainingFreeBits
-					result.set(lastByteIndex, (byte) (result.get(lastByteIndex) | (element << (remainingFreeBits - bitsLeft))));
-					remainingFreeBits -= bitsLeft;
-					bitsLeft = 0;
-				}
+			try {
+				packer.write(element, neededBits);
+			} catch (IOException e) {
+				Log.abort(this, e, "Could not write to output stream.");
 			}
 		}
 
@@ -110,30 +81,15 @@ public class ByteArraysToCompressedByteArrayProcessor extends AbstractProcessor<
 
 	@Override
 	public byte[] getResultFromCollectedItems() {
-		ByteBuffer b = ByteBuffer.allocate(4);
-		//b.order(ByteOrder.BIG_ENDIAN); // optional, the initial order of a byte buffer is always BIG_ENDIAN.
-		b.putInt(totalSequences);
-
-		//set the total number of sequences stored
-		for (int i = 0; i < 4; ++i) {
-			result.set(i+5, b.array()[i]);
+		try {
+			//does not pad the last started byte, since further sequences may follow
+			packer.flush();
+		} catch (IOException e) {
+			Log.abort(this, e, "Could not write to output stream.");
 		}
-		
-		byte[] temp = new byte[result.size()];
-		for (int i = 0; i < temp.length; ++i) {
-			temp[i] = result.get(i);
-		}
-		return temp;
-	}
-
-	private void addNewByteToList() {
-		result.add((byte) 0);
-		++lastByteIndex;
-		remainingFreeBits = 8;
-	}
-	
-	private int keepLastNBits(int element, byte n) {
-		return element & (int)Math.pow(2, n)-1;
+		//set the total number of sequences stored
+		result.setInt(5, totalSequences);
+		return result.toByteArray(packer.getPendingBytes());
 	}
 
 	private static byte ceilLog2(int n) {
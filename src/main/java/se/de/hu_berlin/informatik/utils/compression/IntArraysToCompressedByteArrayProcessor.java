@@ -3,8 +3,7 @@
  */
 package se.de.hu_berlin.informatik.utils.compression;
 
-import java.nio.ByteBuffer;
-import java.util.ArrayList;
+import java.io.IOException;
 import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
 import se.de.hu_berlin.informatik.utils.processors.AbstractProcessor;
 
@@ -18,23 +17,25 @@ public class IntArraysToCompressedByteArrayProcessor extends AbstractProcessor<i
 
 	public static final int DELIMITER = 0;
 	
-	private ArrayList<Byte> result;
+	private ByteArrayBuilder result;
+	private BitPacker packer;
 	
 	private byte neededBits;
 	private int sequenceLength;
-	private int lastByteIndex = 0;
-	private byte remainingFreeBits = 0;
 	private int totalSequences = 0;
 
 	private int maxValue;
 
 	private boolean containsZero;
 	
+	private IntSequenceCodec codec = null;
+	
 	public IntArraysToCompressedByteArrayProcessor(int maxValue, int sequenceLength, boolean containsZero) {
 		super();
 		this.containsZero = sequenceLength == 0 && containsZero;
 		this.maxValue = containsZero ? maxValue+1 : maxValue;
-		result = new ArrayList<>();
+		result = new ByteArrayBuilder();
+		packer = new BitPacker(result);
 		
 		//compute the number of bits needed to represent integers with the given maximum value
 		neededBits = ceilLog2(this.maxValue);
@@ -49,25 +50,37 @@ public class IntArraysToCompressedByteArrayProcessor extends AbstractProcessor<i
 	}
 	
 	
+	/**
+	 * Sets the codec to encode the sequences with. Has to be called before
+	 * the first sequence is processed. With a codec, the given maximum value
+	 * is ignored and sequences may contain arbitrary integers.
+	 * @param codec
+	 * the codec, or null to pack all values with the number of bits that
+	 * is needed for the maximum value (default)
+	 * @return
+	 * this processor
+	 */
+	public IntArraysToCompressedByteArrayProcessor setCodec(IntSequenceCodec codec) {
+		if (totalSequences > 0) {
+			throw new IllegalStateException("Codec has to be set before processing the first sequence.");
+		}
+		this.codec = codec;
+		//replace the header
+		result.reset();
+		addHeader(codec == null ? neededBits : codec.getHeaderByte(), sequenceLength);
+		return this;
+	}
+	
 	private void addHeader(byte neededBits, int sequenceLength) {
 		// header should be 9 bytes:
-		// | number of bits used for one element (1 byte) | sequence length (4 bytes) - 0 for delimiter mode | total number of sequences (4 bytes) |
+		// | number of bits used for one element or codec (1 byte) | sequence length (4 bytes) - 0 for delimiter mode | total number of sequences (4 bytes) |
 		
-		result.add(neededBits);
+		result.write(neededBits);
 		
-		ByteBuffer b = ByteBuffer.allocate(4);
-		//b.order(ByteOrder.BIG_ENDIAN); // optional, the initial order of a byte buffer is always BIG_ENDIAN.
-		b.putInt(sequenceLength);
-
-		for (int i = 0; i < 4; ++i) {
-			result.add(b.array()[i]);
-		}
+		result.writeInt(sequenceLength);
 		
 		//stores the number of sequences in the end (gets replaced later)
-		for (int i = 0; i < 4; ++i) {
-			result.add((byte) 0);
-		}
-		lastByteIndex = 8;
+		result.writeInt(0);
 	}
 
 	/* (non-Javadoc)
@@ -75,6 +88,10 @@ public class IntArraysToCompressedByteArrayProcessor extends AbstractProcessor<i
 	 */
 	@Override
 	public byte[] processItem(int[] intArray) {
+		if (codec != null) {
+			storeWithCodec(intArray);
+			return null;
+		}
 		if (sequenceLength == 0) {
 			for (int element : intArray) {
 				if ((containsZero ? element+1 : element) == DELIMITER) {
@@ -88,8 +105,6 @@ public class IntArraysToCompressedByteArrayProcessor extends AbstractProcessor<i
 		}
 		++totalSequences;
 		
-		result.ensureCapacity(result.size() + (((intArray.length + (sequenceLength == 0 ? 1 : 0)) * neededBits) / 8) + 1);
-		
 		for (int element : intArray) {
 			storeNextInteger(containsZero ? element+1 : element);
 		}
@@ -101,6 +116,22 @@ public class IntArraysToCompressedByteArrayProcessor extends AbstractProcessor<i
 		return null;
 	}
 
+	private void storeWithCodec(int[] intArray) {
+		if (sequenceLength != 0 && intArray.length != sequenceLength) {
+			Log.abort(this, "given sequence is of length %d, but should be %d.", intArray.length, sequenceLength);
+		}
+		++totalSequences;
+		try {
+			//sequences are prefixed with their length instead of being delimited
+			if (sequenceLength == 0) {
+				IntSequenceCodec.writeVarint(packer, intArray.length);
+			}
+			codec.encode(intArray, intArray.length, packer);
+		} catch (IOException e) {
+			Log.abort(this, e, "Could not write to output stream.");
+		}
+	}
+
 	private void storeNextInteger(int element) {
 		if (element > maxValue) {
 			Log.warn(this, "Trying to store '%d', but max value set to '%d'.", element, maxValue);
@@ -108,58 +139,24 @@ public class IntArraysToCompressedByteArrayProcessor extends AbstractProcessor<i
 				Log.abort(this, "Can not store '%d' in %d bits.", element, neededBits);
 			}
 		}
-		//reset the bits left to write
-		byte bitsLeft = neededBits;
-		//keep only relevant bits as defined by the given maximum value
-		element = keepLastNBits(element, bitsLeft);
-		//add bits until all bits of the given number are processed
-		while (bitsLeft > 0) {
-			//add a new byte if no space is left
-			if (remainingFreeBits == 0) {
-				addNewByteToList();
-				//remainingFreeBits > 0 holds now!
-			}
-			//need to shift the bits differently if more bits are left to write than free bits are remaining in the last byte of the list
-			if (bitsLeft > remainingFreeBits) {
-				bitsLeft -= remainingFreeBits;
-				result.set(lastByteIndex, (byte) (result.get(lastByteIndex) | (element >>> bitsLeft)) );
-				remainingFreeBits = 0;
-				//set the first bits that are processed already to 0 and keep only the last n bits
-				element = keepLastNBits(element, bitsLeft);
-			} else { //bitsLeft <= remainingFreeBits
-				result.set(lastByteIndex, (byte) (result.get(lastByteIndex) | (element << (remainingFreeBits - bitsLeft))) );
-				remainingFreeBits -= bitsLeft;
-				bitsLeft = 0;
-			}
+		try {
+			packer.write(element, neededBits);
+		} catch (IOException e) {
+			Log.abort(this, e, "Could not write to output stream.");
 		}
 	}
 
 	@Override
 	public byte[] getResultFromCollectedItems() {
-		ByteBuffer b = ByteBuffer.allocate(4);
-		//b.order(ByteOrder.BIG_ENDIAN); // optional, the initial order of a byte buffer is always BIG_ENDIAN.
-		b.putInt(totalSequences);
-
-		//set the total number of sequences stored
-		for (int i = 0; i < 4; ++i) {
-			result.set(i+5, b.array()[i]);
+		try {
+			//does not pad the last started byte, since further sequences may follow
+			packer.flush();
+		} catch (IOException e) {
+			Log.abort(this, e, "Could not write to output stream.");
 		}
-		
-		byte[] temp = new byte[result.size()];
-		for (int i = 0; i < temp.length; ++i) {
-			temp[i] = result.get(i);
-		}
-		return temp;
-	}
-
-	private void addNewByteToList() {
-		result.add((byte) 0);
-		++lastByteIndex;
-		remainingFreeBits = 8;
-	}
-	
-	private int keepLastNBits(int element, byte n) {
-		return element & (int)Math.pow(2, n)-1;
+		//set the total number of sequences stored
+		result.setInt(5, totalSequences);
+		return result.toByteArray(packer.getPendingBytes());
 	}
 
 	private static byte ceilLog2(int n) {
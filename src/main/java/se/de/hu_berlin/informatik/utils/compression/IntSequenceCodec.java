@@ -0,0 +1,311 @@
+/**
+ *
+ */
+package se.de.hu_berlin.informatik.utils.compression;
+
+import java.io.IOException;
+
+/**
+ * Selectable codecs for sequences of integers, as alternatives to the
+ * default packing of all values with a fixed number of bits, which depends
+ * on the maximum value.
+ *
+ * <p> A file that uses one of these codecs is marked by its first header
+ * byte, which stores {@link #CODEC_FLAG} combined with the codec's id instead
+ * of the number of bits per value. Since that number never exceeds 32,
+ * decoders can detect the codec and still read files that use fixed-width
+ * packing. The codecs store arbitrary integers, including negative ones,
+ * and do not use delimiters.
+ *
+ * @author Simon Heiden
+ */
+public enum IntSequenceCodec {
+
+	/**
+	 * Stores the zigzag encoded difference of each value to its predecessor
+	 * as a variable number of bytes (7 bits per byte). Well suited for sorted
+	 * sequences, like increasing node IDs.
+	 */
+	DELTA_VARINT(1),
+	/**
+	 * Packs blocks of up to 128 values with the number of bits that minimizes
+	 * the block's size. Values that need more bits are stored separately as
+	 * exceptions (patched frame of reference). Well suited for small values
+	 * with rare outliers.
+	 */
+	PFOR(2),
+	/**
+	 * Stores runs of repeated values as pairs of the zigzag encoded value and
+	 * the run length, both with a variable number of bytes. Well suited for
+	 * sequences with many repetitions.
+	 */
+	RUN_LENGTH(3);
+
+	/**
+	 * Marks the first header byte of files that use a codec.
+	 */
+	public static final int CODEC_FLAG = 0x80;
+
+	private static final int PFOR_BLOCK_SIZE = 128;
+	// bits needed for an exception's position in a block
+	private static final int PFOR_POSITION_BITS = 7;
+
+	private final int id;
+
+	private IntSequenceCodec(int id) {
+		this.id = id;
+	}
+
+	/**
+	 * @return
+	 * the first header byte of files that use this codec
+	 */
+	public byte getHeaderByte() {
+		return (byte) (CODEC_FLAG | id);
+	}
+
+	/**
+	 * @param headerByte
+	 * the first header byte of a compressed file
+	 * @return
+	 * the codec that is used by the file, or null if the values are
+	 * packed with a fixed number of bits
+	 * @throws IOException
+	 * if the header byte marks an unknown codec
+	 */
+	public static IntSequenceCodec fromHeaderByte(int headerByte) throws IOException {
+		if ((headerByte & CODEC_FLAG) == 0) {
+			return null;
+		}
+		int id = headerByte & ~CODEC_FLAG & 0xFF;
+		for (IntSequenceCodec codec : values()) {
+			if (codec.id == id) {
+				return codec;
+			}
+		}
+		throw new IOException("Unknown codec: " + id);
+	}
+
+	/**
+	 * Encodes the given values.
+	 * @param values
+	 * an array of values
+	 * @param length
+	 * the number of values to encode, starting at the first element
+	 * @param out
+	 * the bit packer to write to
+	 * @throws IOException
+	 * if writing fails
+	 */
+	public void encode(int[] values, int length, BitPacker out) throws IOException {
+		switch (this) {
+		case DELTA_VARINT:
+			encodeDelta(values, length, out);
+			break;
+		case PFOR:
+			for (int start = 0; start < length; start += PFOR_BLOCK_SIZE) {
+				encodePForBlock(values, start, Math.min(start + PFOR_BLOCK_SIZE, length), out);
+			}
+			break;
+		case RUN_LENGTH:
+		default:
+			encodeRuns(values, length, out);
+			break;
+		}
+	}
+
+	/**
+	 * Decodes the given number of values.
+	 * @param in
+	 * the bit unpacker to read from
+	 * @param values
+	 * the array to store the decoded values in, starting at the first element
+	 * @param length
+	 * the number of values to decode
+	 * @throws IOException
+	 * if reading fails
+	 */
+	public void decode(BitUnpacker in, int[] values, int length) throws IOException {
+		switch (this) {
+		case DELTA_VARINT:
+			decodeDelta(in, values, length);
+			break;
+		case PFOR:
+			for (int start = 0; start < length; start += PFOR_BLOCK_SIZE) {
+				decodePForBlock(in, values, start, Math.min(start + PFOR_BLOCK_SIZE, length));
+			}
+			break;
+		case RUN_LENGTH:
+		default:
+			decodeRuns(in, values, length);
+			break;
+		}
+	}
+
+	/**
+	 * Writes the given integer as an unsigned variable length integer with
+	 * 7 bits per byte, least significant bits first. The highest bit of
+	 * each byte signals whether more bytes follow.
+	 * @param out
+	 * the bit packer to write to
+	 * @param value
+	 * the value, interpreted as unsigned integer
+	 * @throws IOException
+	 * if writing fails
+	 */
+	public static void writeVarint(BitPacker out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80, 8);
+			value >>>= 7;
+		}
+		out.write(value, 8);
+	}
+
+	/**
+	 * @param in
+	 * the bit unpacker to read from
+	 * @return
+	 * the next unsigned variable length integer
+	 * @throws IOException
+	 * if reading fails
+	 * @see #writeVarint(BitPacker, int)
+	 */
+	public static int readVarint(BitUnpacker in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = in.readInt(8);
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed variable length integer.");
+	}
+
+	private static int zigzag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	private static int unzigzag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static void encodeDelta(int[] values, int length, BitPacker out) throws IOException {
+		int previous = 0;
+		for (int i = 0; i < length; ++i) {
+			writeVarint(out, zigzag(values[i] - previous));
+			previous = values[i];
+		}
+	}
+
+	private static void decodeDelta(BitUnpacker in, int[] values, int length) throws IOException {
+		int previous = 0;
+		for (int i = 0; i < length; ++i) {
+			previous += unzigzag(readVarint(in));
+			values[i] = previous;
+		}
+	}
+
+	private static void encodeRuns(int[] values, int length, BitPacker out) throws IOException {
+		int i = 0;
+		while (i < length) {
+			int value = values[i];
+			int runEnd = i + 1;
+			while (runEnd < length && values[runEnd] == value) {
+				++runEnd;
+			}
+			writeVarint(out, zigzag(value));
+			writeVarint(out, runEnd - i);
+			i = runEnd;
+		}
+	}
+
+	private static void decodeRuns(BitUnpacker in, int[] values, int length) throws IOException {
+		int i = 0;
+		while (i < length) {
+			int value = unzigzag(readVarint(in));
+			int runLength = readVarint(in);
+			if (runLength < 1 || runLength > length - i) {
+				throw new IOException("Invalid run length: " + runLength);
+			}
+			for (int end = i + runLength; i < end; ++i) {
+				values[i] = value;
+			}
+		}
+	}
+
+	private static int bitLength(int value) {
+		// values are treated as unsigned
+		return 32 - Integer.numberOfLeadingZeros(value);
+	}
+
+	private static void encodePForBlock(int[] values, int start, int end, BitPacker out) throws IOException {
+		//count the values per bit length
+		int[] histogram = new int[33];
+		for (int i = start; i < end; ++i) {
+			++histogram[bitLength(values[i])];
+		}
+		//find the bit width that results in the smallest block
+		int bits = 32;
+		long minCost = Long.MAX_VALUE;
+		for (int b = 0; b <= 32; ++b) {
+			long cost = (long) (end - start) * b;
+			for (int k = b + 1; k <= 32; ++k) {
+				if (histogram[k] > 0) {
+					cost += histogram[k] * (PFOR_POSITION_BITS + 8L * ((k - b + 6) / 7));
+				}
+			}
+			if (cost < minCost) {
+				minCost = cost;
+				bits = b;
+			}
+		}
+
+		// | bit width (6 bits) | number of exceptions (varint) | low bits of all values | exceptions |
+		int exceptions = 0;
+		for (int k = bits + 1; k <= 32; ++k) {
+			exceptions += histogram[k];
+		}
+		out.write(bits, 6);
+		writeVarint(out, exceptions);
+		if (bits > 0) {
+			for (int i = start; i < end; ++i) {
+				out.write(values[i], bits);
+			}
+		}
+		if (exceptions > 0) {
+			for (int i = start; i < end; ++i) {
+				if (bitLength(values[i]) > bits) {
+					// | position in block (7 bits) | high bits (varint) |
+					out.write(i - start, PFOR_POSITION_BITS);
+					writeVarint(out, values[i] >>> bits);
+				}
+			}
+		}
+	}
+
+	private static void decodePForBlock(BitUnpacker in, int[] values, int start, int end) throws IOException {
+		int bits = in.readInt(6);
+		if (bits > 32) {
+			throw new IOException("Invalid bit width: " + bits);
+		}
+		int exceptions = readVarint(in);
+		if (bits > 0) {
+			for (int i = start; i < end; ++i) {
+				values[i] = in.readInt(bits);
+			}
+		} else {
+			for (int i = start; i < end; ++i) {
+				values[i] = 0;
+			}
+		}
+		for (int e = 0; e < exceptions; ++e) {
+			int position = start + in.readInt(PFOR_POSITION_BITS);
+			if (position >= end) {
+				throw new IOException("Invalid exception position: " + (position - start));
+			}
+			values[position] |= readVarint(in) << bits;
+		}
+	}
+
+}
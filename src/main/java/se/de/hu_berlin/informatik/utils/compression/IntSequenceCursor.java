@@ -0,0 +1,445 @@
+/**
+ *
+ */
+package se.de.hu_berlin.informatik.utils.compression;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import se.de.hu_berlin.informatik.utils.compression.ziputils.ZipFileWrapper;
+
+/**
+ * Cursor over compressed sequences of integers that decodes one sequence
+ * at a time. The integers of the current sequence are held in a buffer
+ * that is reused for subsequent sequences, such that scanning all sequences
+ * only needs memory for the longest sequence.
+ *
+ * <br><br> Example:
+ *
+ * <br><br> {@code try (IntSequenceCursor cursor = IntSequenceCursor.of(array, false)) {
+ * while (cursor.next()) { for (int i = 0; i < cursor.length(); ++i) { ... cursor.get(i) ... } } }}
+ *
+ * <p> Byte arrays and byte buffers are expected in the format of
+ * {@link IntArraysToCompressedByteArrayProcessor}. Zip entries and input
+ * streams are expected in the format of
+ * {@link BufferedIntArraysToCompressedByteArrayProcessor}.
+ *
+ * <p> Sequences that were encoded with an {@link IntSequenceCodec} are
+ * detected by the header and decoded accordingly.
+ *
+ * <p> With {@link #seek(int)}, the cursor jumps to a given sequence. Sequences
+ * of fixed length are located directly, unless they were encoded with a codec. Otherwise, a {@link SequenceIndex}
+ * is used to jump to the block that contains the sequence, if available.
+ *
+ * @author Simon Heiden
+ */
+public class IntSequenceCursor implements Closeable {
+
+	/**
+	 * Opens the encoded input, possibly multiple times to seek backwards.
+	 */
+	private interface Source extends Closeable {
+
+		BitUnpacker open() throws IOException;
+
+		@Override
+		default void close() throws IOException {
+			// nothing to close
+		}
+	}
+
+	private final Source source;
+	private BitUnpacker unpacker;
+	private final int headerBits;
+
+	private final int delimiter;
+	private final int endMarker;
+	// offsets that were added to the stored integers
+	private final int delimiterModeOffset;
+	private final int fixedModeOffset;
+
+	private byte usedBits;
+	// null if the values are packed with a fixed number of bits
+	private IntSequenceCodec codec;
+	private int sequenceLength;
+	// -1 if unknown
+	private int totalSequences;
+	private SequenceIndex index = null;
+
+	private int sequenceCounter = 0;
+	private int[] currentSequence;
+	private int currentLength = 0;
+	private boolean atEnd = false;
+
+	private IntSequenceCursor(Source source, boolean withTotalSequences,
+			int delimiter, int endMarker, int delimiterModeOffset, int fixedModeOffset) throws IOException {
+		super();
+		this.source = source;
+		this.delimiter = delimiter;
+		this.endMarker = endMarker;
+		this.delimiterModeOffset = delimiterModeOffset;
+		this.fixedModeOffset = fixedModeOffset;
+		this.headerBits = withTotalSequences ? 72 : 40;
+		try {
+			this.unpacker = source.open();
+			readHeader(withTotalSequences);
+		} catch (IOException e) {
+			source.close();
+			throw e;
+		}
+		currentSequence = new int[sequenceLength == 0 ? 16 : sequenceLength];
+	}
+
+	/**
+	 * Creates a cursor over the sequences in the given byte array.
+	 * @param array
+	 * a byte array that was produced by an {@link IntArraysToCompressedByteArrayProcessor}
+	 * @param containsZero
+	 * whether the encoded sequences may contain zeros (has to match the encoder)
+	 * @return
+	 * a cursor
+	 * @throws IOException
+	 * if the header can not be read
+	 */
+	public static IntSequenceCursor of(byte[] array, boolean containsZero) throws IOException {
+		return ofInMemoryFormat(() -> new BitUnpacker(array, 0), containsZero);
+	}
+
+	/**
+	 * Creates a cursor over the sequences in the remaining bytes of the given
+	 * buffer. The position of the given buffer is not modified.
+	 * @param buffer
+	 * a byte buffer with the contents of a byte array that was produced by
+	 * an {@link IntArraysToCompressedByteArrayProcessor}
+	 * @param containsZero
+	 * whether the encoded sequences may contain zeros (has to match the encoder)
+	 * @return
+	 * a cursor
+	 * @throws IOException
+	 * if the header can not be read
+	 */
+	public static IntSequenceCursor of(ByteBuffer buffer, boolean containsZero) throws IOException {
+		final ByteBuffer view = buffer.duplicate();
+		return ofInMemoryFormat(() -> BitUnpacker.of(view), containsZero);
+	}
+
+	private static IntSequenceCursor ofInMemoryFormat(Source source, boolean containsZero) throws IOException {
+		return new IntSequenceCursor(source, true,
+				IntArraysToCompressedByteArrayProcessor.DELIMITER, -1, containsZero ? 1 : 0, 0);
+	}
+
+	/**
+	 * Creates a cursor over the sequences in the given input stream. The
+	 * stream is closed when the cursor is closed. The cursor can only seek
+	 * forward in the stream.
+	 * @param inputStream
+	 * an input stream with the contents that were produced by a
+	 * {@link BufferedIntArraysToCompressedByteArrayProcessor}
+	 * @param containsZero
+	 * whether the encoded sequences may contain zeros (has to match the encoder)
+	 * @return
+	 * a cursor
+	 * @throws IOException
+	 * if the header can not be read
+	 */
+	public static IntSequenceCursor of(InputStream inputStream, boolean containsZero) throws IOException {
+		return ofStreamFormat(new Source() {
+			private boolean opened = false;
+
+			@Override
+			public BitUnpacker open() throws IOException {
+				if (opened) {
+					throw new IOException("Can not seek backwards in an input stream.");
+				}
+				opened = true;
+				return new BitUnpacker(inputStream);
+			}
+
+			@Override
+			public void close() throws IOException {
+				inputStream.close();
+			}
+		}, containsZero);
+	}
+
+	/**
+	 * Creates a cursor over the sequences in the given zip file entry. The
+	 * zip file is opened until the cursor is closed. If the entry has a
+	 * {@link SequenceIndex}, it is loaded and used for seeking.
+	 * @param zipFileWrapper
+	 * the zip file
+	 * @param fileName
+	 * the name of an entry that was written by a
+	 * {@link BufferedIntArraysToCompressedByteArrayProcessor}
+	 * @param containsZero
+	 * whether the encoded sequences may contain zeros (has to match the encoder)
+	 * @return
+	 * a cursor
+	 * @throws IOException
+	 * if the zip file or the entry can not be opened or the header can not be read
+	 */
+	public static IntSequenceCursor of(ZipFileWrapper zipFileWrapper, String fileName, boolean containsZero) throws IOException {
+		// also finishes pending writes to the zip file
+		if (!zipFileWrapper.exists(fileName)) {
+			throw new ZipException("Zip file '" + zipFileWrapper.getzipFilePath()
+			+ "' does not contain entry '" + fileName + "'.");
+		}
+		SequenceIndex index = SequenceIndex.load(zipFileWrapper, fileName);
+		final ZipFile zipFile = new ZipFile(zipFileWrapper.getzipFilePath().toFile());
+		final ZipEntry entry = zipFile.getEntry(fileName);
+		return ofStreamFormat(new Source() {
+			private InputStream inputStream = null;
+
+			@Override
+			public BitUnpacker open() throws IOException {
+				if (entry == null) {
+					throw new ZipException("Entry '" + fileName + "' does not exist any more.");
+				}
+				if (inputStream != null) {
+					inputStream.close();
+				}
+				inputStream = zipFile.getInputStream(entry);
+				return new BitUnpacker(inputStream);
+			}
+
+			@Override
+			public void close() throws IOException {
+				zipFile.close();
+			}
+		}, containsZero).setIndex(index);
+	}
+
+	private static IntSequenceCursor ofStreamFormat(Source source, boolean containsZero) throws IOException {
+		return new IntSequenceCursor(source, false,
+				BufferedCompressedByteArrayToIntArrayQueueProcessor.DELIMITER,
+				BufferedCompressedByteArrayToIntArrayQueueProcessor.TOTAL_END_MARKER,
+				containsZero ? 2 : 1, containsZero ? 1 : 0);
+	}
+
+	/**
+	 * Sets the index to use for seeking in sequences that are separated by delimiters.
+	 * @param index
+	 * the index of the encoded sequences, or null
+	 * @return
+	 * this cursor
+	 */
+	public IntSequenceCursor setIndex(SequenceIndex index) {
+		this.index = index;
+		return this;
+	}
+
+	private void readHeader(boolean withTotalSequences) throws IOException {
+		// header is 9 or 5 bytes:
+		// | number of bits used for one element or codec (1 byte) | sequence length (4 bytes) - 0 for delimiter mode | (total number of sequences (4 bytes)) |
+		if (!unpacker.hasRemaining(40)) {
+			throw new IOException("Could not read header.");
+		}
+		int firstByte = unpacker.readInt(8);
+		codec = IntSequenceCodec.fromHeaderByte(firstByte);
+		usedBits = codec == null ? (byte) firstByte : 8;
+		sequenceLength = unpacker.readInt(32);
+		totalSequences = -1;
+		if (withTotalSequences) {
+			if (!unpacker.hasRemaining(32)) {
+				throw new IOException("Could not read header.");
+			}
+			totalSequences = unpacker.readInt(32);
+		}
+		if (usedBits < 1 || usedBits > 32 || sequenceLength < 0) {
+			throw new IOException("Invalid header: " + usedBits + " bits, sequence length " + sequenceLength + ".");
+		}
+	}
+
+	/**
+	 * Moves the cursor in front of the sequence with the given index, such
+	 * that the next call of {@link #next()} decodes this sequence. Sequences
+	 * of fixed length are located directly. Sequences that are separated by
+	 * delimiters are located via the index, if set, by decoding at most
+	 * one block of sequences. Without an index, all preceding sequences
+	 * have to be decoded.
+	 * @param sequence
+	 * the index of the sequence
+	 * @throws IOException
+	 * if reading fails or the sequence does not exist
+	 */
+	public void seek(int sequence) throws IOException {
+		if (sequence < 0 || (totalSequences >= 0 && sequence >= totalSequences)) {
+			throw new IndexOutOfBoundsException("Sequence: " + sequence + ", total sequences: " + totalSequences);
+		}
+		int targetSequence;
+		long targetBit;
+		if (sequenceLength > 0 && codec == null) {
+			targetSequence = sequence;
+			targetBit = headerBits + (long) sequence * sequenceLength * usedBits;
+		} else if (index != null) {
+			targetSequence = index.getBlockStart(sequence);
+			targetBit = index.getBlockOffset(sequence);
+		} else {
+			targetSequence = 0;
+			targetBit = headerBits;
+		}
+		//only jump if decoding from the current position would take longer
+		if (sequenceCounter > sequence || sequenceCounter < targetSequence) {
+			if (targetBit < unpacker.getBitPosition()) {
+				unpacker = source.open();
+			}
+			unpacker.skip(targetBit - unpacker.getBitPosition());
+			sequenceCounter = targetSequence;
+			atEnd = false;
+		}
+		currentLength = 0;
+		while (sequenceCounter < sequence) {
+			if (!next()) {
+				throw new IOException("Sequence " + sequence + " does not exist.");
+			}
+		}
+		currentLength = 0;
+	}
+
+	/**
+	 * Decodes the next sequence.
+	 * @return
+	 * true if a next sequence exists; false if all sequences have been read
+	 * @throws IOException
+	 * if reading fails or the input ends without an end marker, if one is expected
+	 */
+	public boolean next() throws IOException {
+		currentLength = 0;
+		if (atEnd || (totalSequences >= 0 && sequenceCounter >= totalSequences)) {
+			atEnd = true;
+			return false;
+		}
+		if (codec != null) {
+			return nextWithCodec();
+		}
+		while (unpacker.hasRemaining(usedBits)) {
+			int currentInt = unpacker.readInt(usedBits);
+			if (currentInt == endMarker) {
+				atEnd = true;
+				break;
+			}
+			if (sequenceLength == 0) {
+				if (currentInt == delimiter) {
+					//the sequence ends here
+					++sequenceCounter;
+					return true;
+				}
+				if (currentLength == currentSequence.length) {
+					currentSequence = Arrays.copyOf(currentSequence, 2 * currentLength);
+				}
+				currentSequence[currentLength++] = currentInt - delimiterModeOffset;
+			} else {
+				currentSequence[currentLength++] = currentInt - fixedModeOffset;
+				//if the sequence ends here, reset the counter
+				if (currentLength >= sequenceLength) {
+					++sequenceCounter;
+					return true;
+				}
+			}
+		}
+		if (!atEnd) {
+			atEnd = true;
+			if (endMarker >= 0) {
+				throw new IOException("No total end marker was read!");
+			}
+		}
+		//an incomplete last sequence
+		if (currentLength > 0) {
+			++sequenceCounter;
+			return true;
+		}
+		return false;
+	}
+
+	private boolean nextWithCodec() throws IOException {
+		if (endMarker >= 0) {
+			//a set bit precedes each sequence, and a zero bit marks the end
+			if (!unpacker.hasRemaining(1)) {
+				atEnd = true;
+				throw new IOException("No total end marker was read!");
+			}
+			if (unpacker.read(1) == 0) {
+				atEnd = true;
+				return false;
+			}
+		}
+		int length = sequenceLength > 0 ? sequenceLength : IntSequenceCodec.readVarint(unpacker);
+		if (length < 0) {
+			throw new IOException("Invalid sequence length: " + length);
+		}
+		if (length > currentSequence.length) {
+			currentSequence = new int[Math.max(length, 2 * currentSequence.length)];
+		}
+		codec.decode(unpacker, currentSequence, length);
+		currentLength = length;
+		++sequenceCounter;
+		return true;
+	}
+
+	/**
+	 * @return
+	 * the number of integers in the current sequence
+	 */
+	public int length() {
+		return currentLength;
+	}
+
+	/**
+	 * @param index
+	 * an index in the current sequence
+	 * @return
+	 * the integer at the given index of the current sequence
+	 */
+	public int get(int index) {
+		if (index < 0 || index >= currentLength) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", length: " + currentLength);
+		}
+		return currentSequence[index];
+	}
+
+	/**
+	 * @return
+	 * a new array that contains the integers of the current sequence
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(currentSequence, currentLength);
+	}
+
+	/**
+	 * @return
+	 * the codec that the sequences are encoded with, or null if the values
+	 * are packed with a fixed number of bits
+	 */
+	public IntSequenceCodec getCodec() {
+		return codec;
+	}
+
+	/**
+	 * @return
+	 * the sequence length, or 0 if the sequences are separated by delimiters
+	 */
+	public int getSequenceLength() {
+		return sequenceLength;
+	}
+
+	/**
+	 * @return
+	 * the total number of stored sequences, or -1 if unknown
+	 */
+	public int getTotalSequences() {
+		return totalSequences;
+	}
+
+	@Override
+	public void close() throws IOException {
+		atEnd = true;
+		source.close();
+	}
+
+}
@@ -0,0 +1,175 @@
+/**
+ *
+ */
+package se.de.hu_berlin.informatik.utils.compression;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.ZipException;
+
+import se.de.hu_berlin.informatik.utils.compression.ziputils.ZipFileWrapper;
+
+/**
+ * Block index for compressed sequence files. Stores the bit offset of every
+ * K-th sequence, such that a reader can jump to the block that contains a
+ * given sequence and only has to decode at most K-1 sequences to reach it.
+ *
+ * <p> The index is stored as a separate zip entry next to the indexed
+ * entry, with the name of the indexed entry and the suffix {@link #SUFFIX},
+ * such that readers that do not know about the index are not affected.
+ *
+ * @author Simon Heiden
+ */
+public class SequenceIndex {
+
+	public static final String SUFFIX = ".idx";
+
+	private final int blockSize;
+	private long[] offsets;
+	private int numberOfBlocks = 0;
+	private int totalSequences = 0;
+
+	/**
+	 * Creates an empty index.
+	 * @param blockSize
+	 * the number of sequences per block (K)
+	 */
+	public SequenceIndex(int blockSize) {
+		super();
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("Block size has to be at least 1.");
+		}
+		this.blockSize = blockSize;
+		this.offsets = new long[16];
+	}
+
+	/**
+	 * Registers the start of the next sequence.
+	 * @param bitOffset
+	 * the bit offset of the sequence, counted from the start of the indexed file
+	 */
+	public void addSequence(long bitOffset) {
+		if (totalSequences % blockSize == 0) {
+			if (numberOfBlocks == offsets.length) {
+				offsets = Arrays.copyOf(offsets, 2 * numberOfBlocks);
+			}
+			offsets[numberOfBlocks++] = bitOffset;
+		}
+		++totalSequences;
+	}
+
+	/**
+	 * @return
+	 * the number of sequences per block
+	 */
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	/**
+	 * @return
+	 * the number of indexed sequences
+	 */
+	public int getTotalSequences() {
+		return totalSequences;
+	}
+
+	/**
+	 * @param sequence
+	 * the index of a sequence
+	 * @return
+	 * the index of the first sequence of the block that contains the given sequence
+	 */
+	public int getBlockStart(int sequence) {
+		checkSequence(sequence);
+		return sequence - sequence % blockSize;
+	}
+
+	/**
+	 * @param sequence
+	 * the index of a sequence
+	 * @return
+	 * the bit offset of the first sequence of the block that contains the given sequence
+	 */
+	public long getBlockOffset(int sequence) {
+		checkSequence(sequence);
+		return offsets[sequence / blockSize];
+	}
+
+	private void checkSequence(int sequence) {
+		if (sequence < 0 || sequence >= totalSequences) {
+			throw new IndexOutOfBoundsException("Sequence: " + sequence + ", total sequences: " + totalSequences);
+		}
+	}
+
+	/**
+	 * @return
+	 * the serialized index
+	 */
+	public byte[] toByteArray() {
+		// | block size (4 bytes) | total number of sequences (4 bytes) | bit offsets of the blocks (8 bytes each) |
+		ByteArrayBuilder result = new ByteArrayBuilder(8 + 8 * numberOfBlocks);
+		result.writeInt(blockSize);
+		result.writeInt(totalSequences);
+		for (int i = 0; i < numberOfBlocks; ++i) {
+			result.writeLong(offsets[i]);
+		}
+		return result.toByteArray();
+	}
+
+	/**
+	 * @param array
+	 * a serialized index
+	 * @return
+	 * the index
+	 * @throws IOException
+	 * if the given array does not contain a valid index
+	 */
+	public static SequenceIndex fromByteArray(byte[] array) throws IOException {
+		ByteBuffer b = ByteBuffer.wrap(array);
+		if (b.remaining() < 8) {
+			throw new IOException("Index is too short.");
+		}
+		int blockSize = b.getInt();
+		int totalSequences = b.getInt();
+		if (blockSize < 1 || totalSequences < 0) {
+			throw new IOException("Invalid index: block size " + blockSize + ", total sequences " + totalSequences + ".");
+		}
+		int numberOfBlocks = (int) ((totalSequences + (long) blockSize - 1) / blockSize);
+		if (b.remaining() != 8L * numberOfBlocks) {
+			throw new IOException("Index should contain " + numberOfBlocks + " offsets.");
+		}
+		SequenceIndex index = new SequenceIndex(blockSize);
+		index.offsets = new long[Math.max(numberOfBlocks, 1)];
+		for (int i = 0; i < numberOfBlocks; ++i) {
+			index.offsets[i] = b.getLong();
+		}
+		index.numberOfBlocks = numberOfBlocks;
+		index.totalSequences = totalSequences;
+		return index;
+	}
+
+	/**
+	 * Loads the index of the given zip file entry.
+	 * @param zipFileWrapper
+	 * the zip file
+	 * @param fileName
+	 * the name of the indexed entry
+	 * @return
+	 * the index, or null if the entry has no index
+	 * @throws IOException
+	 * if the index exists, but can not be read
+	 */
+	public static SequenceIndex load(ZipFileWrapper zipFileWrapper, String fileName) throws IOException {
+		if (!zipFileWrapper.exists(fileName + SUFFIX)) {
+			return null;
+		}
+		byte[] array = zipFileWrapper.get(fileName + SUFFIX, false);
+		if (array == null) {
+			throw new ZipException("Could not read index of '" + fileName + "'.");
+		}
+		return fromByteArray(array);
+	}
+
+}
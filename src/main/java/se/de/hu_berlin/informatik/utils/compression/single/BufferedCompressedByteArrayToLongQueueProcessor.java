@@ -9,6 +9,7 @@ import java.util.Queue;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+import se.de.hu_berlin.informatik.utils.compression.BitUnpacker;
 import se.de.hu_berlin.informatik.utils.compression.ziputils.ZipFileWrapper;
 import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
 import se.de.hu_berlin.informatik.utils.processors.AbstractProcessor;
@@ -22,12 +23,10 @@ public class BufferedCompressedByteArrayToLongQueueProcessor extends AbstractPro
 	
 	// same buffer that is used in zip utils
 	private static final int BUFER_SIZE = 4096;
-	private byte[] buffer = new byte[BUFER_SIZE];
 		
 	public static final int TOTAL_END_MARKER = 0;
 	
 	private byte usedBits;
-	private int arrayPos;
 
 	private boolean containsZero;
 	private ZipFileWrapper zipFileWrapper;
@@ -52,67 +51,21 @@ public class BufferedCompressedByteArrayToLongQueueProcessor extends AbstractPro
 			ZipEntry entry = zipFile.getEntry(fileName);
 			inputStream = zipFile.getInputStream(entry);
 
-			int len = getNextBytesFromInputStream(inputStream);
-			readHeader(len);
+			BitUnpacker unpacker = new BitUnpacker(inputStream, BUFER_SIZE);
+			readHeader(unpacker);
 
 			boolean atTotalEnd = false;
 
-			byte currentByte = 0;
-			long currentLong = 0;
-			byte remainingBits = 0;
-			byte bitsLeft = 0;
-
 			//get all the encoded integers
-			while (arrayPos < len) {
-				//for each number, the number of bits to get is equal
-				bitsLeft = usedBits;
-				//if no bits remain to get from the current byte, then get the next one from the array
-				if (remainingBits == 0) {
-					currentByte = buffer[arrayPos];
-					remainingBits = 8;
-				}
-
-				//as long as bits are still needed, get them from the array
-				while (bitsLeft > 0) {
-					if (bitsLeft > remainingBits) {
-						currentLong = (currentLong << remainingBits) | (currentByte & 0xFF ) >>> (8 - remainingBits);
-						bitsLeft -= remainingBits;
-						//					remainingBits = 0;
-						++arrayPos;
-						if (arrayPos >= len) {
-							len = getNextBytesFromInputStream(inputStream);
-							arrayPos = 0;
-						}
-						currentByte = buffer[arrayPos];
-						remainingBits = 8;
-					} else { //bitsLeft <= remainingBits
-						currentLong = (currentLong << bitsLeft) | (currentByte & 0xFF ) >>> (8 - bitsLeft);
-						currentByte = (byte) (currentByte << bitsLeft);
-						remainingBits -= bitsLeft;
-						bitsLeft = 0;
-					}
-				}
-
+			while (unpacker.hasRemaining(usedBits)) {
+				long currentLong = unpacker.read(usedBits);
 				if (currentLong == TOTAL_END_MARKER) {
 					atTotalEnd = true;
-					//				System.out.println();
 					break;
 				} else {
-					//				System.out.print((currentInt-1) + ",");
 					//add the next integer to the current sequence
 					result.add(containsZero ? currentLong-1 : currentLong);
 				}
-				//reset the current integer to all zeroes
-				currentLong = 0;
-
-				//if no bits remain in the current byte, then update the array position for the next step
-				if (remainingBits == 0) {
-					++arrayPos;
-				}
-				if (arrayPos >= len) {
-					len = getNextBytesFromInputStream(inputStream);
-					arrayPos = 0;
-				}
 			}
 
 			if (!atTotalEnd) {
@@ -135,25 +88,13 @@ public class BufferedCompressedByteArrayToLongQueueProcessor extends AbstractPro
 		return null;
 	}
 
-	private void readHeader(int len) {
+	private void readHeader(BitUnpacker unpacker) throws IOException {
 		// header should be 1 byte:
 		// | number of bits used for one element (1 byte) |
-		if (len < 1) {
+		if (!unpacker.hasRemaining(8)) {
 			Log.abort(this, "Could not read header from input stream.");
 		}
-		usedBits = buffer[0];
-		
-		arrayPos = 1;
-	}
-	
-	// returns the length of available bytes
-	private int getNextBytesFromInputStream(InputStream is) {
-		try {
-			return is.read(buffer);
-		} catch (IOException e) {
-			Log.abort(this, e, "Could not read bytes from stream.");
-			return -1;
-		}
+		usedBits = (byte) unpacker.readInt(8);
 	}
 	
 }
@@ -7,18 +7,24 @@ import java.io.IOException;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.nio.file.Path;
+import se.de.hu_berlin.informatik.utils.compression.BitPacker;
 import se.de.hu_berlin.informatik.utils.compression.ziputils.ZipFileWrapper;
 import se.de.hu_berlin.informatik.utils.files.FileUtils;
 import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
 import se.de.hu_berlin.informatik.utils.processors.AbstractProcessor;
+import se.de.hu_berlin.informatik.utils.processors.IntProcessor;
+import se.de.hu_berlin.informatik.utils.processors.sockets.ProcessorSocket;
 
 /**
  * Encodes submitted integers into compressed sequences of integers, depending on the maximum
  * values of the input integers.
  * 
+ * <p> Submitted values do not get boxed if they are produced or submitted as
+ * primitive values within a chain of Modules.
+ * 
  * @author Simon Heiden
  */
-public class BufferedIntegersToCompressedByteArrayProcessor extends AbstractProcessor<Integer,byte[] > {
+public class BufferedIntegersToCompressedByteArrayProcessor extends AbstractProcessor<Integer,byte[] > implements IntProcessor<byte[]> {
 
 	// same buffer that is used in zip utils
 	private static final int BUFFER_SIZE = 4096;
@@ -29,11 +35,9 @@ public class BufferedIntegersToCompressedByteArrayProcessor extends AbstractProc
 		
 	public static final int DELIMITER = 0;
 	
-	private byte[] result;
+	private BitPacker packer;
 	
 	private byte neededBits;
-	private int lastByteIndex = -1;
-	private byte remainingFreeBits = 0;
 
 	private int maxValue;
 
@@ -63,7 +67,7 @@ public class BufferedIntegersToCompressedByteArrayProcessor extends AbstractProc
 		
 		this.containsZero = containsZero;
 		this.maxValue = containsZero ? maxValue+1 : maxValue;
-		result = new byte[BUFFER_SIZE];
+		packer = new BitPacker(out, BUFFER_SIZE);
 		
 		//compute the number of bits needed to represent integers with the given maximum value
 		neededBits = ceilLog2(this.maxValue);
@@ -119,11 +123,8 @@ public class BufferedIntegersToCompressedByteArrayProcessor extends AbstractProc
 		out.write(new byte[] {neededBits});
 	}
 
-	/* (non-Javadoc)
-	 * @see se.de.hu_berlin.informatik.utils.tm.ITransmitter#processItem(java.lang.Object)
-	 */
 	@Override
-	public byte[] processItem(Integer next) {
+	public byte[] processInt(int next, ProcessorSocket<Integer, byte[]> socket) {
 		int element = containsZero ? next+1 : next;
 		if (element == DELIMITER) {
 			closeOutputStream();
@@ -155,29 +156,10 @@ public class BufferedIntegersToCompressedByteArrayProcessor extends AbstractProc
 				Log.abort(this, "Can not store '%d' in %d bits.", element, neededBits);
 			}
 		}
-		//reset the bits left to write
-		byte bitsLeft = neededBits;
-		//keep only relevant bits as defined by the given maximum value
-		element = keepLastNBits(element, bitsLeft);
-		//add bits until all bits of the given number are processed
-		while (bitsLeft > 0) {
-			//add a new byte if no space is left
-			if (remainingFreeBits == 0) {
-				addNewByteToList();
-				//remainingFreeBits > 0 holds now!
-			}
-			//need to shift the bits differently if more bits are left to write than free bits are remaining in the last byte of the list
-			if (bitsLeft > remainingFreeBits) {
-				bitsLeft -= remainingFreeBits;
-				result[lastByteIndex] = (byte) (result[lastByteIndex] | (element >>> bitsLeft));
-				remainingFreeBits = 0;
-				//set the first bits that are processed already to 0 and keep only the last n bits
-				element = keepLastNBits(element, bitsLeft);
-			} else { //bitsLeft <= remainingFreeBits
-				result[lastByteIndex] = (byte) (result[lastByteIndex] | (element << (remainingFreeBits - bitsLeft)));
-				remainingFreeBits -= bitsLeft;
-				bitsLeft = 0;
-			}
+		try {
+			packer.write(element, neededBits);
+		} catch (IOException e) {
+			Log.abort(this, e, "Could not write to output stream.");
 		}
 	}
 
@@ -187,11 +169,7 @@ public class BufferedIntegersToCompressedByteArrayProcessor extends AbstractProc
 			storeNextInteger(DELIMITER);
 			storeNextInteger(DELIMITER);
 			try {
-				if (lastByteIndex >= 0) {
-					out.write(result, 0, lastByteIndex+1);
-					lastByteIndex = -1;
-				}
-				result = null;
+				packer.finish();
 
 				out.flush();
 				out.close();
@@ -218,28 +196,6 @@ public class BufferedIntegersToCompressedByteArrayProcessor extends AbstractProc
 		return null;
 	}
 
-	private void addNewByteToList() {
-		++lastByteIndex;
-		remainingFreeBits = 8;
-		writeBuferToStreamIfFull();
-	}
-
-	private void writeBuferToStreamIfFull() {
-		if (lastByteIndex >= BUFFER_SIZE) {
-			try {
-				out.write(result);
-			} catch (IOException e) {
-				Log.abort(this, e, "Could not write to output stream.");
-			}
-			lastByteIndex = 0;
-			result = new byte[BUFFER_SIZE];
-		}
-	}
-	
-	private int keepLastNBits(int element, byte n) {
-		return element & (int)Math.pow(2, n)-1;
-	}
-
 	private static byte ceilLog2(int n) {
 	    if (n < 0) {
 	    	throw new IllegalArgumentException("Can not compute for n = " + n);
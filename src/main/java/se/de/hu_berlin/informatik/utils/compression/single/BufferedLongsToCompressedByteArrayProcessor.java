@@ -8,18 +8,24 @@ import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.nio.file.Path;
 
+import se.de.hu_berlin.informatik.utils.compression.BitPacker;
 import se.de.hu_berlin.informatik.utils.compression.ziputils.ZipFileWrapper;
 import se.de.hu_berlin.informatik.utils.files.FileUtils;
 import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
 import se.de.hu_berlin.informatik.utils.processors.AbstractProcessor;
+import se.de.hu_berlin.informatik.utils.processors.LongProcessor;
+import se.de.hu_berlin.informatik.utils.processors.sockets.ProcessorSocket;
 
 /**
  * Encodes submitted integers into compressed sequences of integers, depending on the maximum
  * values of the input longs.
  * 
+ * <p> Submitted values do not get boxed if they are produced or submitted as
+ * primitive values within a chain of Modules.
+ * 
  * @author Simon Heiden
  */
-public class BufferedLongsToCompressedByteArrayProcessor extends AbstractProcessor<Long,byte[] > {
+public class BufferedLongsToCompressedByteArrayProcessor extends AbstractProcessor<Long,byte[] > implements LongProcessor<byte[]> {
 
 	// same buffer that is used in zip utils
 	private static final int BUFFER_SIZE = 4096;
@@ -30,11 +36,9 @@ public class BufferedLongsToCompressedByteArrayProcessor extends AbstractProcess
 	
 	private static final byte TOTAL_END_MARKER = 0;
 	
-	private byte[] result;
+	private BitPacker packer;
 	
 	private byte neededBits;
-	private int lastByteIndex = -1;
-	private byte remainingFreeBits = 0;
 
 	private long maxValue;
 
@@ -64,7 +68,7 @@ public class BufferedLongsToCompressedByteArrayProcessor extends AbstractProcess
 		
 		this.containsZero = containsZero;
 		this.maxValue = containsZero ? maxValue+1 : maxValue;
-		result = new byte[BUFFER_SIZE];
+		packer = new BitPacker(out, BUFFER_SIZE);
 		
 		//compute the number of bits needed to represent integers with the given maximum value
 		neededBits = ceilLog2(this.maxValue);
@@ -120,11 +124,8 @@ public class BufferedLongsToCompressedByteArrayProcessor extends AbstractProcess
 		out.write(new byte[] {neededBits});
 	}
 
-	/* (non-Javadoc)
-	 * @see se.de.hu_berlin.informatik.utils.tm.ITransmitter#processItem(java.lang.Object)
-	 */
 	@Override
-	public byte[] processItem(Long next) {
+	public byte[] processLong(long next, ProcessorSocket<Long, byte[]> socket) {
 		long element = containsZero ? next+1 : next;
 		if (element == TOTAL_END_MARKER) {
 			closeOutputStream();
@@ -144,29 +145,10 @@ public class BufferedLongsToCompressedByteArrayProcessor extends AbstractProcess
 				Log.abort(this, "Can not store '%d' in %d bits.", element, neededBits);
 			}
 		}
-		//reset the bits left to write
-		byte bitsLeft = neededBits;
-		//keep only relevant bits as defined by the given maximum value
-		element = keepLastNBits(element, bitsLeft);
-		//add bits until all bits of the given number are processed
-		while (bitsLeft > 0) {
-			//add a new byte if no space is left
-			if (remainingFreeBits == 0) {
-				addNewByteToList();
-				//remainingFreeBits > 0 holds now!
-			}
-			//need to shift the bits differently if more bits are left to write than free bits are remaining in the last byte of the list
-			if (bitsLeft > remainingFreeBits) {
-				bitsLeft -= remainingFreeBits;
-				result[lastByteIndex] = (byte) (result[lastByteIndex] | (element >>> bitsLeft));
-				remainingFreeBits = 0;
-				//set the first bits that are processed already to 0 and keep only the last n bits
-				element = keepLastNBits(element, bitsLeft);
-			} else { //bitsLeft <= remainingFreeBits
-				result[lastByteIndex] = (byte) (result[lastByteIndex] | (element << (remainingFreeBits - bitsLeft)));
-				remainingFreeBits -= bitsLeft;
-				bitsLeft = 0;
-			}
+		try {
+			packer.write(element, neededBits);
+		} catch (IOException e) {
+			Log.abort(this, e, "Could not write to output stream.");
 		}
 	}
 
@@ -174,11 +156,7 @@ public class BufferedLongsToCompressedByteArrayProcessor extends AbstractProcess
 		if (out != null) {
 			storeNextLong(TOTAL_END_MARKER);
 			try {
-				if (lastByteIndex >= 0) {
-					out.write(result, 0, lastByteIndex+1);
-					lastByteIndex = -1;
-				}
-				result = null;
+				packer.finish();
 
 				out.flush();
 				out.close();
@@ -205,28 +183,6 @@ public class BufferedLongsToCompressedByteArrayProcessor extends AbstractProcess
 		return null;
 	}
 
-	private void addNewByteToList() {
-		++lastByteIndex;
-		remainingFreeBits = 8;
-		writeBuferToStreamIfFull();
-	}
-
-	private void writeBuferToStreamIfFull() {
-		if (lastByteIndex >= BUFFER_SIZE) {
-			try {
-				out.write(result);
-			} catch (IOException e) {
-				Log.abort(this, e, "Could not write to output stream.");
-			}
-			lastByteIndex = 0;
-			result = new byte[BUFFER_SIZE];
-		}
-	}
-	
-	private long keepLastNBits(long element, byte n) {
-		return element & (int)Math.pow(2, n)-1;
-	}
-
 	private static byte ceilLog2(long n) {
 	    if (n < 0) {
 	    	throw new IllegalArgumentException("Can not compute for n = " + n);
@@ -3,8 +3,10 @@
  */
 package se.de.hu_berlin.informatik.utils.compression.single;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 
+import se.de.hu_berlin.informatik.utils.compression.BitUnpacker;
 import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
 import se.de.hu_berlin.informatik.utils.processors.AbstractProcessor;
 
@@ -29,59 +31,21 @@ public class CompressedByteArrayToByteArrayProcessor extends AbstractProcessor<b
 	@Override
 	public byte[] processItem(byte[] array) {
 		readHeader(array);
-		byte currentByte = 0;
-		int currentInt = 0;
-		byte remainingBits = 0;
-		byte bitsLeft = 0;
-		
 		byte[] result = new byte[sequenceLength];
-		int bytePos = -1;
-		
-		if (sequenceLength == 0) {
-			return result;
-		}
 		
-		//get all the encoded bytes
-		while (bytePos+1 < result.length) {
-			//for each number, the number of bits to get is equal
-			bitsLeft = usedBits;
-			//if no bits remain to get from the current byte, then get the next one from the array
-			if (remainingBits == 0) {
-				currentByte = array[arrayPos];
-				remainingBits = 8;
-			}
-			
-			//as long as bits are still needed, get them from the array
-			while (bitsLeft > 0) {
-				if (bitsLeft > remainingBits) {
-					currentInt = (currentInt << remainingBits) | (currentByte & 0xFF ) >>> (8 - remainingBits);
-					bitsLeft -= remainingBits;
-//					remainingBits = 0;
-					++arrayPos;
-					if (arrayPos > array.length - 1) {
-						Log.err(this, "Unable to get full byte array from compressed byte array (too short).");
-						return null;
-					}
-					currentByte = array[arrayPos];
-					remainingBits = 8;
-				} else { //bitsLeft <= remainingBits
-					currentInt = (currentInt << bitsLeft) | (currentByte & 0xFF ) >>> (8 - bitsLeft);
-					currentByte = (byte) (currentByte << bitsLeft);
-					remainingBits -= bitsLeft;
-					bitsLeft = 0;
+		BitUnpacker unpacker = new BitUnpacker(array, arrayPos);
+		try {
+			//get all the encoded bytes
+			for (int i = 0; i < sequenceLength; ++i) {
+				if (!unpacker.hasRemaining(usedBits)) {
+					// could not get full sequence...
+					Log.err(this, "Unable to get full byte array from compressed byte array (too short).");
+					return null;
 				}
+				result[i] = (byte) unpacker.readInt(usedBits);
 			}
-			
-			//add the next integer to the result list
-			result[++bytePos] = (byte) currentInt;
-			
-			//reset the current integer to all zeroes
-			currentInt = 0;
-			
-			//if no bits remain in the current byte, then update the array position for the next step
-			if (remainingBits == 0) {
-				++arrayPos;
-			}
+		} catch (IOException e) {
+			Log.abort(this, e, "Could not read from byte array.");
 		}
 		
 		return result;
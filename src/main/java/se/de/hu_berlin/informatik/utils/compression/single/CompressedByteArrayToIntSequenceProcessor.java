@@ -3,10 +3,12 @@
  */
 package se.de.hu_berlin.informatik.utils.compression.single;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
+import se.de.hu_berlin.informatik.utils.compression.BitUnpacker;
 import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
 import se.de.hu_berlin.informatik.utils.processors.AbstractProcessor;
 
@@ -31,64 +33,24 @@ public class CompressedByteArrayToIntSequenceProcessor extends AbstractProcessor
 	@Override
 	public List<Integer> processItem(byte[] array) {
 		readHeader(array);
-		byte currentByte = 0;
-		int currentInt = 0;
-		byte remainingBits = 0;
-		byte bitsLeft = 0;
-
 		List<Integer> result = new ArrayList<Integer>(sequenceLength);
-		int intCounter = 0;
 		
-		if (sequenceLength == 0) {
-			return result;
-		}
-
-		//get all the encoded integers
-		while (arrayPos < array.length) {
-			//for each number, the number of bits to get is equal
-			bitsLeft = usedBits;
-			//if no bits remain to get from the current byte, then get the next one from the array
-			if (remainingBits == 0) {
-				currentByte = array[arrayPos];
-				remainingBits = 8;
-			}
-			
-			//as long as bits are still needed, get them from the array
-			while (bitsLeft > 0) {
-				if (bitsLeft > remainingBits) {
-					currentInt = (currentInt << remainingBits) | (currentByte & 0xFF ) >>> (8 - remainingBits);
-					bitsLeft -= remainingBits;
-//					remainingBits = 0;
-					currentByte = array[++arrayPos];
-					remainingBits = 8;
-				} else { //bitsLeft <= remainingBits
-					currentInt = (currentInt << bitsLeft) | (currentByte & 0xFF ) >>> (8 - bitsLeft);
-					currentByte = (byte) (currentByte << bitsLeft);
-					remainingBits -= bitsLeft;
-					bitsLeft = 0;
+		BitUnpacker unpacker = new BitUnpacker(array, arrayPos);
+		try {
+			//get all the encoded integers
+			for (int i = 0; i < sequenceLength; ++i) {
+				if (!unpacker.hasRemaining(usedBits)) {
+					// could not get full sequence...
+					Log.err(this, "Unable to get full integer sequence from byte array (too short).");
+					return null;
 				}
+				result.add(unpacker.readInt(usedBits));
 			}
-
-			//add the next integer to the current sequence
-			result.add(currentInt);
-			++intCounter;
-			//if the sequence ends here, reset the counter
-			if (intCounter >= sequenceLength) {
-				return result;
-			}
-
-			//reset the current integer to all zeroes
-			currentInt = 0;
-			
-			//if no bits remain in the current byte, then update the array position for the next step
-			if (remainingBits == 0) {
-				++arrayPos;
-			}
+		} catch (IOException e) {
+			Log.abort(this, e, "Could not read from byte array.");
 		}
 		
-		// could not get full sequence...
-		Log.err(this, "Unable to get full integer sequence from byte array (too short).");
-		return null;
+		return result;
 	}
 
 	private void readHeader(byte[] array) {
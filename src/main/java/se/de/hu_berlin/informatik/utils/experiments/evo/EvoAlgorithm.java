@@ -170,62 +170,67 @@ public class EvoAlgorithm<T,L,F extends Comparable<F>,K extends Comparable<K>> {
 		
 		EvoItem<T, F, K> allTimeBestEvoItem;
 		
-		int generationCounter= 1;
-		{
-			Statistics<EvoStatistics> statistics = new Statistics<>();
-			statistics.addStatisticsElement(EvoStatistics.GENERATION_COUNT, 1);
-			tracker.track("...running starting generation");
-			//fill up with mutants if below desired population size
-			int initialChildrenCount = populationCount - currentPopulation.size();
-			currentPopulation.addAll(produceMutationBasedOffspring(currentPopulation, 
-					initialChildrenCount, statistics));
-
-			//test/validate (evaluation)
-			EvoItem<T, F, K> newBestEvoItem = calculateFitness(currentPopulation, statistics);
-			allTimeBestEvoItem = new SimpleEvoItemWithoutHistory<>(newBestEvoItem.getItem(), newBestEvoItem.getFitness());
+		try {
+			int generationCounter= 1;
+			{
+				Statistics<EvoStatistics> statistics = new Statistics<>();
+				statistics.addStatisticsElement(EvoStatistics.GENERATION_COUNT, 1);
+				tracker.track("...running starting generation");
+				//fill up with mutants if below desired population size
+				int initialChildrenCount = populationCount - currentPopulation.size();
+				currentPopulation.addAll(produceMutationBasedOffspring(currentPopulation, 
+						initialChildrenCount, statistics));
+
+				//test/validate (evaluation)
+				EvoItem<T, F, K> newBestEvoItem = calculateFitness(currentPopulation, statistics);
+				allTimeBestEvoItem = new SimpleEvoItemWithoutHistory<>(newBestEvoItem.getItem(), newBestEvoItem.getFitness());
 			
-			//collect some statistics
-			if (collectorAvailable) {
-				collector.addStatistics(statistics);
+				//collect some statistics
+				if (collectorAvailable) {
+					collector.addStatistics(statistics);
+				}
 			}
-		}
 		
-		//loop while the generation bound isn't reached and the fitness goal isn't met by any item
-		while (generationCounter < maxGenerationBound && !checkIfGoalIsMet(currentPopulation)) {
-			Statistics<EvoStatistics> statistics = new Statistics<>();
-			statistics.addStatisticsElement(EvoStatistics.GENERATION_COUNT, 1);
-			++generationCounter;
-			tracker.track("...running generation " + generationCounter);
+			//loop while the generation bound isn't reached and the fitness goal isn't met by any item
+			while (generationCounter < maxGenerationBound && !checkIfGoalIsMet(currentPopulation)) {
+				Statistics<EvoStatistics> statistics = new Statistics<>();
+				statistics.addStatisticsElement(EvoStatistics.GENERATION_COUNT, 1);
+				++generationCounter;
+				tracker.track("...running generation " + generationCounter);
 			
-			//choose items for new population (selection)
-			currentPopulation = selectNewPopulationAndKillRemaining(currentPopulation);
+				//choose items for new population (selection)
+				currentPopulation = selectNewPopulationAndKillRemaining(currentPopulation);
 			
-			//select population for reproduction (parents)
-			List<EvoItem<T, F, K>> parents = selectParents(currentPopulation);
+				//select population for reproduction (parents)
+				List<EvoItem<T, F, K>> parents = selectParents(currentPopulation);
 			
-			//produce new offspring through recombination, if possible
-			if (recombinationProvider != null) {
-				//cross-over (recombination)
-				int childrenCount = populationCount - currentPopulation.size();
-				currentPopulation.addAll(produceRecombinationalOffspring(parents, childrenCount, statistics));
-			} 
+				//produce new offspring through recombination, if possible
+				if (recombinationProvider != null) {
+					//cross-over (recombination)
+					int childrenCount = populationCount - currentPopulation.size();
+					currentPopulation.addAll(produceRecombinationalOffspring(parents, childrenCount, statistics));
+				} 
 
-			//fill up with mutants if below desired population size
-			int childrenCount = populationCount - currentPopulation.size();
-			currentPopulation.addAll(produceMutationBasedOffspring(parents, childrenCount, statistics));
+				//fill up with mutants if below desired population size
+				int childrenCount = populationCount - currentPopulation.size();
+				currentPopulation.addAll(produceMutationBasedOffspring(parents, childrenCount, statistics));
 			
-			//mutate the current population
-			mutatePopulation(currentPopulation, statistics);
+				//mutate the current population
+				mutatePopulation(currentPopulation, statistics);
 			
-			//test and validate (evaluation)
-			EvoItem<T, F, K> newBestEvoItem = getBetterItem(allTimeBestEvoItem, calculateFitness(currentPopulation, statistics));
-			allTimeBestEvoItem = new SimpleEvoItemWithoutHistory<>(newBestEvoItem.getItem(), newBestEvoItem.getFitness());
+				//test and validate (evaluation)
+				EvoItem<T, F, K> newBestEvoItem = getBetterItem(allTimeBestEvoItem, calculateFitness(currentPopulation, statistics));
+				allTimeBestEvoItem = new SimpleEvoItemWithoutHistory<>(newBestEvoItem.getItem(), newBestEvoItem.getFitness());
 			
-			//collect some statistics
-			if (collectorAvailable) {
-				collector.addStatistics(statistics);
-			}
-		} //loop end
+				//collect some statistics
+				if (collectorAvailable) {
+					collector.addStatistics(statistics);
+				}
+			} //loop end
+		} finally {
+			//the evaluation threads have to be stopped, even if the evolution fails
+			evaluationPipe.shutdown();
+		}
 		
 		cleanUpOtherItems(currentPopulation, allTimeBestEvoItem);
 		
@@ -731,7 +736,8 @@ public class EvoAlgorithm<T,L,F extends Comparable<F>,K extends Comparable<K>> {
 	private EvoItem<T, F, K> calculateFitness(List<EvoItem<T,F,K>> population, Statistics<EvoStatistics> statistics) {
 		Log.out(EvoAlgorithm.class, "Checking fitness for %d elements.", population.size());
 		//check all elements in the population for their fitness values
-		evaluationPipe.submitAndShutdown(population);
+		//keep the evaluation threads alive for the next generation
+		evaluationPipe.submitAndFlush(population);
 		
 		EvoItem<T, F, K> bestItem = selectBestItem(population, false);
 		
@@ -27,4 +27,9 @@ public class PathToFileConverter extends AbstractProcessor<Path,File> {
 		return path.toFile();
 	}
 
+	@Override
+	public boolean isCheap() {
+		return true;
+	}
+
 }
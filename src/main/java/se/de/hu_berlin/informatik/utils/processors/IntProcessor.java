@@ -0,0 +1,99 @@
+/**
+ * 
+ */
+package se.de.hu_berlin.informatik.utils.processors;
+
+import se.de.hu_berlin.informatik.utils.processors.sockets.IntProducer;
+import se.de.hu_berlin.informatik.utils.processors.sockets.ProcessorSocket;
+import se.de.hu_berlin.informatik.utils.processors.sockets.module.Module;
+
+/**
+ * A {@link Processor} that consumes primitive {@code int} values. If such a
+ * Processor is used in a {@link Module} that is linked to a Module which
+ * produces {@code int} values via {@link IntProducer#produceInt(int)}, the
+ * values are passed on without boxing them. In all other cases, the values
+ * get unboxed before calling {@link #processInt(int, ProcessorSocket)}, such that
+ * this Processor may be used like any other Processor, e.g. in a Pipe.
+ * 
+ * @author Simon Heiden
+ *
+ * @param <B>
+ * is the type of the output object
+ */
+public interface IntProcessor<B> extends Processor<Integer, B> {
+
+	/**
+	 * Processes a {@code int} value and produces an item of type {@code B}.
+	 * Primitive output values should be produced via 
+	 * {@link IntProducer#produceInt(ProcessorSocket, int)}.
+	 * @param item
+	 * the value to be processed
+	 * @param socket
+	 * the executing socket instance
+	 * @return the processed item (may be null)
+	 */
+	public B processInt(int item, ProcessorSocket<Integer, B> socket);
+
+	@Override
+	default public B processItem(Integer item, ProcessorSocket<Integer, B> socket) {
+		return processInt(item, socket);
+	}
+
+	/**
+	 * Per default, this creates a new {@link AbstractProcessor} that is an
+	 * {@link IntProcessor} itself and that inherits the methods
+	 * {@link #processInt(int, ProcessorSocket)}, {@link #processItem(Integer, ProcessorSocket)},
+	 * {@link #getResultFromCollectedItems()} and {@link #finalShutdown()} from
+	 * this Processor, such that Modules with the new instance still pass on
+	 * primitive values without boxing them.
+	 * @see Processor#newProcessorInstance()
+	 */
+	@Override
+	default public Processor<Integer, B> newProcessorInstance() {
+		class IntProcessorInstance extends AbstractProcessor<Integer, B> implements IntProcessor<B> {
+
+			@Override
+			public B processInt(int item, ProcessorSocket<Integer, B> socket) {
+				return IntProcessor.this.processInt(item, socket);
+			}
+
+			@Override
+			public B processItem(Integer item, ProcessorSocket<Integer, B> socket) {
+				return IntProcessor.this.processItem(item, socket);
+			}
+
+			@Override
+			public void resetAndInit() {
+				IntProcessor.this.resetAndInit();
+			}
+
+			@Override
+			public B getResultFromCollectedItems() {
+				return IntProcessor.this.getResultFromCollectedItems();
+			}
+
+			@Override
+			public boolean finalShutdown() {
+				return IntProcessor.this.finalShutdown();
+			}
+
+			@Override
+			public int getThreadLimitWeight() {
+				return IntProcessor.this.getThreadLimitWeight();
+			}
+		}
+		return new IntProcessorInstance();
+	}
+
+	/**
+	 * Same as {@link #resetTrackAndConsume(Object)} for a primitive value.
+	 * @param item
+	 * the value to consume
+	 */
+	default void resetTrackAndConsumeInt(int item) {
+		resetAndInit();
+		getSocket().track();
+		getSocket().produce(processInt(item, getSocket()));
+	}
+
+}
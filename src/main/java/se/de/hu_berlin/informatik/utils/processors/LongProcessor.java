@@ -0,0 +1,99 @@
+/**
+ * 
+ */
+package se.de.hu_berlin.informatik.utils.processors;
+
+import se.de.hu_berlin.informatik.utils.processors.sockets.LongProducer;
+import se.de.hu_berlin.informatik.utils.processors.sockets.ProcessorSocket;
+import se.de.hu_berlin.informatik.utils.processors.sockets.module.Module;
+
+/**
+ * A {@link Processor} that consumes primitive {@code long} values. If such a
+ * Processor is used in a {@link Module} that is linked to a Module which
+ * produces {@code long} values via {@link LongProducer#produceLong(long)}, the
+ * values are passed on without boxing them. In all other cases, the values
+ * get unboxed before calling {@link #processLong(long, ProcessorSocket)}, such that
+ * this Processor may be used like any other Processor, e.g. in a Pipe.
+ * 
+ * @author Simon Heiden
+ *
+ * @param <B>
+ * is the type of the output object
+ */
+public interface LongProcessor<B> extends Processor<Long, B> {
+
+	/**
+	 * Processes a {@code long} value and produces an item of type {@code B}.
+	 * Primitive output values should be produced via 
+	 * {@link LongProducer#produceLong(ProcessorSocket, long)}.
+	 * @param item
+	 * the value to be processed
+	 * @param socket
+	 * the executing socket instance
+	 * @return the processed item (may be null)
+	 */
+	public B processLong(long item, ProcessorSocket<Long, B> socket);
+
+	@Override
+	default public B processItem(Long item, ProcessorSocket<Long, B> socket) {
+		return processLong(item, socket);
+	}
+
+	/**
+	 * Per default, this creates a new {@link AbstractProcessor} that is an
+	 * {@link LongProcessor} itself and that inherits the methods
+	 * {@link #processLong(long, ProcessorSocket)}, {@link #processItem(Long, ProcessorSocket)},
+	 * {@link #getResultFromCollectedItems()} and {@link #finalShutdown()} from
+	 * this Processor, such that Modules with the new instance still pass on
+	 * primitive values without boxing them.
+	 * @see Processor#newProcessorInstance()
+	 */
+	@Override
+	default public Processor<Long, B> newProcessorInstance() {
+		class LongProcessorInstance extends AbstractProcessor<Long, B> implements LongProcessor<B> {
+
+			@Override
+			public B processLong(long item, ProcessorSocket<Long, B> socket) {
+				return LongProcessor.this.processLong(item, socket);
+			}
+
+			@Override
+			public B processItem(Long item, ProcessorSocket<Long, B> socket) {
+				return LongProcessor.this.processItem(item, socket);
+			}
+
+			@Override
+			public void resetAndInit() {
+				LongProcessor.this.resetAndInit();
+			}
+
+			@Override
+			public B getResultFromCollectedItems() {
+				return LongProcessor.this.getResultFromCollectedItems();
+			}
+
+			@Override
+			public boolean finalShutdown() {
+				return LongProcessor.this.finalShutdown();
+			}
+
+			@Override
+			public int getThreadLimitWeight() {
+				return LongProcessor.this.getThreadLimitWeight();
+			}
+		}
+		return new LongProcessorInstance();
+	}
+
+	/**
+	 * Same as {@link #resetTrackAndConsume(Object)} for a primitive value.
+	 * @param item
+	 * the value to consume
+	 */
+	default void resetTrackAndConsumeLong(long item) {
+		resetAndInit();
+		getSocket().track();
+		getSocket().produce(processLong(item, getSocket()));
+	}
+
+}
@@ -145,6 +145,19 @@ public interface Processor<A, B> extends ProcessorSocketGenerator<A, B> {
 		return null;
 	}
 
+	/**
+	 * Returns the number of slots of a {@link se.de.hu_berlin.informatik.utils.threaded.ThreadLimit}
+	 * that processing a single item occupies when the Processor is used by
+	 * multiple threads, e.g. in a {@link se.de.hu_berlin.informatik.utils.processors.basics.ThreadedProcessor}.
+	 * Processors that use multiple threads or a lot of memory themselves
+	 * may declare a higher weight. Per default, returns 1.
+	 * @return
+	 * the weight of processing a single item
+	 */
+	default public int getThreadLimitWeight() {
+		return 1;
+	}
+
 	/**
 	 * Should cut all loose ends. May not be called automatically. Per default,
 	 * simply returns true and does nothing else.
@@ -154,6 +167,20 @@ public interface Processor<A, B> extends ProcessorSocketGenerator<A, B> {
 		return true;
 	}
 
+	/**
+	 * Indicates whether processing a single item takes only very little time,
+	 * e.g. for simple conversions. Consecutive cheap Processors may be fused
+	 * to run inside of a single thread when linked together as pipes, since
+	 * the hand-off between threads would cost more than the actual processing.
+	 * Per default, returns false.
+	 * @return
+	 * whether this Processor's per-item work is cheap
+	 * @see se.de.hu_berlin.informatik.utils.processors.basics.FusedProcessor
+	 */
+	default public boolean isCheap() {
+		return false;
+	}
+
 	/**
 	 * Creates a new {@link Pipe} from this Processor that inherits this
 	 * Processor's functionality.
@@ -237,6 +264,11 @@ public interface Processor<A, B> extends ProcessorSocketGenerator<A, B> {
 			public boolean finalShutdown() {
 				return Processor.this.finalShutdown();
 			}
+
+			@Override
+			public int getThreadLimitWeight() {
+				return Processor.this.getThreadLimitWeight();
+			}
 		};
 	}
 
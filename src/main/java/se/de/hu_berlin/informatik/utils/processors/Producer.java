@@ -3,6 +3,7 @@
  */
 package se.de.hu_berlin.informatik.utils.processors;
 
+import java.util.Collection;
 import java.util.function.Consumer;
 
 import se.de.hu_berlin.informatik.utils.processors.sockets.ProcessorSocket;
@@ -24,6 +25,19 @@ public interface Producer<B> {
 	 */
 	public void produce(B item);
 	
+	/**
+	 * Produces all given items of type {@code B}. Per default, this
+	 * simply calls {@link #produce(Object)} on each item. Implementing
+	 * classes may override this to produce the items more efficiently.
+	 * @param items
+	 * the processed items
+	 */
+	default public void produceAll(Collection<? extends B> items) {
+		for (B item : items) {
+			produce(item);
+		}
+	}
+	
 	/**
 	 * Links a matching {@link ProcessorSocket} to the output of this producer.
 	 * @param <C>
@@ -21,10 +21,13 @@ public class CollectionSequencer<B> extends AbstractProcessor<Collection<B>,B> {
 			//will produce an error if submitted to a linked module
 			return null;
 		}
-		for (B item : list) {
-			socket.produce(item);
-		}
+		socket.produceAll(list);
 		return null;
 	}
 
+	@Override
+	public boolean isCheap() {
+		return true;
+	}
+
 }
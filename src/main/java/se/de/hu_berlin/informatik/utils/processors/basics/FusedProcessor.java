@@ -0,0 +1,124 @@
+/**
+ *
+ */
+package se.de.hu_berlin.informatik.utils.processors.basics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import se.de.hu_berlin.informatik.utils.optionparser.OptionParser;
+import se.de.hu_berlin.informatik.utils.processors.AbstractProcessor;
+import se.de.hu_berlin.informatik.utils.processors.Processor;
+import se.de.hu_berlin.informatik.utils.processors.sockets.module.Module;
+import se.de.hu_berlin.informatik.utils.processors.sockets.pipe.PipeLinker;
+
+/**
+ * Processor that fuses a sequence of Processors into a single one. The given
+ * Processors are linked together as {@link Module}s, such that an item gets
+ * processed by all of them sequentially in the calling thread. Items that
+ * are produced by the last Processor are produced by this Processor.
+ *
+ * <p> This is used by the {@link PipeLinker} to run consecutive
+ * {@link Processor#isCheap() cheap} Processors inside of a single pipe
+ * instead of paying for a hand-off between threads for each of them.
+ *
+ * <p> Pipes pass on the results of {@link #getResultFromCollectedItems()}
+ * in the thread that flushes or shuts down the pipe. Thus, in contrast to
+ * unfused pipes, the collected results of the fused Processors are processed
+ * by the subsequent fused Processors in that thread, and not in the thread of
+ * the pipe.
+ *
+ * @author Simon Heiden
+ */
+public class FusedProcessor extends AbstractProcessor<Object, Object> {
+
+	private final List<Module<?, ?>> modules;
+
+	/**
+	 * Creates a new {@link FusedProcessor} object.
+	 * @param processors
+	 * the processors to fuse, in the order of processing
+	 */
+	public FusedProcessor(Processor<?, ?>... processors) {
+		super();
+		if (processors.length == 0) {
+			throw new IllegalArgumentException("No processors given.");
+		}
+		modules = new ArrayList<>(processors.length);
+		for (Processor<?, ?> processor : processors) {
+			modules.add(processor.asModule());
+		}
+		for (int i = 0; i < modules.size() - 1; ++i) {
+			modules.get(i).linkTo(modules.get(i + 1));
+		}
+		// pass the items produced by the last module on to this processor's socket
+		modules.get(modules.size() - 1).linkTo(new AbstractProcessor<Object, Object>() {
+			@Override
+			public Object processItem(Object item) {
+				FusedProcessor.this.getSocket().produce(item);
+				return null;
+			}
+		}.asModule());
+	}
+
+	@Override
+	public Object processItem(Object item) {
+		modules.get(0).submit(item);
+		return null;
+	}
+
+	@Override
+	public Object getResultFromCollectedItems() {
+		// process the collected items of each module in order,
+		// such that subsequent modules get to process them
+		// (in the calling thread, see the class comment)
+		for (Module<?, ?> module : modules) {
+			produceCollectedResult(module);
+		}
+		return null;
+	}
+
+	private static <B> void produceCollectedResult(Module<?, B> module) {
+		B result = module.getResultFromCollectedItems();
+		if (result != null) {
+			module.produce(result);
+		}
+	}
+
+	@Override
+	public boolean finalShutdown() {
+		boolean result = true;
+		for (Module<?, ?> module : modules) {
+			result &= module.finalShutdown();
+		}
+		return result;
+	}
+
+	@Override
+	public boolean isCheap() {
+		return true;
+	}
+
+	/**
+	 * Sets the given options object for all fused Processors.
+	 * @param options
+	 * an options object
+	 * @return
+	 * this processor
+	 */
+	public FusedProcessor setOptions(OptionParser options) {
+		for (Module<?, ?> module : modules) {
+			module.setOptions(options);
+		}
+		return this;
+	}
+
+	/**
+	 * @return
+	 * the number of fused Processors
+	 */
+	public int getNumberOfFusedProcessors() {
+		return modules.size();
+	}
+
+}
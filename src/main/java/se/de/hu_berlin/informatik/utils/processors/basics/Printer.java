@@ -29,4 +29,9 @@ public class Printer<A> extends AbstractProcessor<A, A> {
 		return item;
 	}
 
+	@Override
+	public boolean isCheap() {
+		return true;
+	}
+
 }
@@ -7,10 +7,12 @@ import se.de.hu_berlin.informatik.utils.processors.AbstractProcessor;
 import se.de.hu_berlin.informatik.utils.processors.sockets.ProcessorSocket;
 import se.de.hu_berlin.informatik.utils.processors.sockets.ProcessorSocketGenerator;
 import se.de.hu_berlin.informatik.utils.processors.sockets.eh.EHWithInputAndReturn;
+import se.de.hu_berlin.informatik.utils.threaded.ConfigurableThreadFactory;
 import se.de.hu_berlin.informatik.utils.threaded.ThreadLimit;
 import se.de.hu_berlin.informatik.utils.threaded.ThreadLimitDummy;
 import se.de.hu_berlin.informatik.utils.threaded.disruptor.AbstractDisruptorMultiplexer;
 import se.de.hu_berlin.informatik.utils.threaded.disruptor.DisruptorProvider;
+import se.de.hu_berlin.informatik.utils.threaded.disruptor.ReorderBuffer;
 import se.de.hu_berlin.informatik.utils.threaded.disruptor.eventhandler.AbstractDisruptorEventHandler;
 
 /**
@@ -19,6 +21,11 @@ import se.de.hu_berlin.informatik.utils.threaded.disruptor.eventhandler.Abstract
  * is collected with a multiplexer thread which returns it to the linked 
  * output pipe. {@code null} objects are ignored by the multiplexer.
  * 
+ * <p> By default, output objects are passed on in the order in which they
+ * are collected. In ordered mode, the outputs of each input object are
+ * passed on in the order of submission of the input objects, while the
+ * input objects are still processed in parallel.
+ * 
  * @author Simon Heiden
  */
 public class ThreadedProcessor<A,B> extends AbstractProcessor<A,B> {
@@ -26,9 +33,12 @@ public class ThreadedProcessor<A,B> extends AbstractProcessor<A,B> {
 	private DisruptorProvider<A> disruptorProvider;
 	private AbstractDisruptorMultiplexer<B> multiplexer;
 	private ProcessorSocket<A,B> socket;
+	private ClassLoader classLoader;
+	private ReorderBuffer<B> reorderBuffer = null;
 	
 	private ThreadedProcessor(ClassLoader classLoader) {
 		super();
+		this.classLoader = classLoader;
 		disruptorProvider = new DisruptorProvider<>(1024, classLoader);
 		//starts a multiplexer with the created disruptor
 		multiplexer = new AbstractDisruptorMultiplexer<B>(disruptorProvider) {
@@ -72,6 +82,91 @@ public class ThreadedProcessor<A,B> extends AbstractProcessor<A,B> {
 		this(threadCount, ThreadLimitDummy.getInstance(), transmitter, null);
 	}
 	
+	/**
+	 * Sets whether the handler threads and the multiplexer thread shall be 
+	 * virtual threads. This is recommended if the processed items mostly block 
+	 * on I/O, like waiting for external processes. Virtual threads require 
+	 * Java 21 or newer. Otherwise, platform threads are used. Takes effect the
+	 * next time that the handler threads are started. A running multiplexer
+	 * thread is replaced immediately.
+	 * Should not be called while items are being processed.
+	 * @param useVirtualThreads
+	 * whether to use virtual threads
+	 * @return
+	 * this
+	 * @see ConfigurableThreadFactory
+	 */
+	public ThreadedProcessor<A,B> useVirtualThreads(boolean useVirtualThreads) {
+		ConfigurableThreadFactory threadFactory = new ConfigurableThreadFactory(classLoader, useVirtualThreads);
+		disruptorProvider.setThreadFactory(threadFactory);
+		multiplexer.setThreadFactory(threadFactory);
+		if (multiplexer.isRunning()) {
+			//restart the multiplexer thread with the new thread factory
+			multiplexer.shutdown();
+			multiplexer.start();
+		}
+		return this;
+	}
+	
+	/**
+	 * Sets the size of the output buffer of each handler thread. Handlers
+	 * that produce multiple output items per input item may continue processing
+	 * while the multiplexer thread collects buffered output items. A size of 1
+	 * passes each output item on to the multiplexer immediately.
+	 * Should not be called while items are being processed.
+	 * @param size
+	 * the number of output items to buffer per handler
+	 * @return
+	 * this
+	 */
+	public ThreadedProcessor<A,B> setOutputBufferSize(int size) {
+		for (AbstractDisruptorEventHandler<A> handler : disruptorProvider.getHandlers()) {
+			if (handler instanceof EHWithInputAndReturn) {
+				((EHWithInputAndReturn<?,?>) handler).setOutputBufferSize(size);
+			}
+		}
+		return this;
+	}
+	
+	/**
+	 * Sets whether the order of the submitted input objects shall be preserved.
+	 * If set, each input object is tagged with its sequence number in the 
+	 * disruptor's ring buffer, and the output objects of each input object
+	 * are passed on in the order of the sequence numbers via a bounded
+	 * {@link ReorderBuffer}. Handler threads do not wait for each other,
+	 * but the outputs of an input object are held back until the outputs of
+	 * all previously submitted input objects were passed on.
+	 * Should not be called while items are being processed.
+	 * @param preserveOrder
+	 * whether to preserve the order of the input objects
+	 * @return
+	 * this
+	 */
+	@SuppressWarnings("unchecked")
+	public ThreadedProcessor<A,B> setPreserveOrder(boolean preserveOrder) {
+		if (preserveOrder && reorderBuffer == null) {
+			//the ring buffer does not allow for more out of order items than its size
+			int capacity = Math.max(disruptorProvider.getBufferSize(), disruptorProvider.getMinimalBufferSize());
+			reorderBuffer = new ReorderBuffer<>(capacity, multiplexer);
+		} else if (!preserveOrder) {
+			reorderBuffer = null;
+		}
+		for (AbstractDisruptorEventHandler<A> handler : disruptorProvider.getHandlers()) {
+			if (handler instanceof EHWithInputAndReturn) {
+				((EHWithInputAndReturn<A,B>) handler).setReorderBuffer(reorderBuffer);
+			}
+		}
+		return this;
+	}
+	
+	/**
+	 * @return
+	 * whether the order of the input objects is preserved
+	 */
+	public boolean isPreservingOrder() {
+		return reorderBuffer != null;
+	}
+	
 	private void initMultiplexer() {
 		//now that the handlers are instantiated, we can connect them to the multiplexer
 		//by starting the multiplexer thread (which will park itself until notified
@@ -98,11 +193,29 @@ public class ThreadedProcessor<A,B> extends AbstractProcessor<A,B> {
 		return null;
 	}
 	
+	/**
+	 * Waits until all submitted items have been processed by the handler
+	 * threads and until their outputs have been collected by the multiplexer
+	 * and passed on. All threads are kept alive.
+	 * @return
+	 * null, since no items are collected
+	 */
+	@Override
+	public B getResultFromCollectedItems() {
+		disruptorProvider.waitForPendingEvents();
+		multiplexer.waitForPendingItems();
+		return null;
+	}
+	
 	@Override
 	public boolean finalShutdown() {
 		disruptorProvider.shutdown();
 		//after shutting down the disruptor, we have to shut down the multiplexer, too
 		multiplexer.shutdown();
+		if (reorderBuffer != null) {
+			//sequence numbers start at 0 again with a new disruptor instance
+			reorderBuffer.reset();
+		}
 		return true;
 	}
 	
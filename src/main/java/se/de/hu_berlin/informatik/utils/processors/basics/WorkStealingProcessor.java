@@ -0,0 +1,307 @@
+/**
+ *
+ */
+package se.de.hu_berlin.informatik.utils.processors.basics;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
+import se.de.hu_berlin.informatik.utils.miscellaneous.Misc;
+import se.de.hu_berlin.informatik.utils.processors.AbstractProcessor;
+import se.de.hu_berlin.informatik.utils.processors.sockets.ProcessorSocket;
+import se.de.hu_berlin.informatik.utils.processors.sockets.ProcessorSocketGenerator;
+import se.de.hu_berlin.informatik.utils.processors.sockets.eh.EHWithInputAndReturn;
+import se.de.hu_berlin.informatik.utils.threaded.ConfigurableThreadFactory;
+import se.de.hu_berlin.informatik.utils.threaded.ThreadLimit;
+import se.de.hu_berlin.informatik.utils.threaded.ThreadLimitDummy;
+import se.de.hu_berlin.informatik.utils.threaded.disruptor.AbstractMultiplexer;
+import se.de.hu_berlin.informatik.utils.threaded.disruptor.MultiplexerInput;
+import se.de.hu_berlin.informatik.utils.threaded.disruptor.ReorderBuffer;
+import se.de.hu_berlin.informatik.utils.threaded.disruptor.eventhandler.SingleUseEvent;
+
+/**
+ * Alternative to the {@link ThreadedProcessor} that processes each submitted
+ * input element on a {@link ForkJoinPool} with work stealing instead of a
+ * disruptor. Each input element is processed by an event handler instance
+ * that is obtained from the given {@link ProcessorSocketGenerator} and that
+ * is not used by any other thread at the same time, such that processors
+ * are not shared between threads, just like with the {@link ThreadedProcessor}.
+ * The output of the threads is collected with a multiplexer thread which
+ * returns it to the linked output pipe.
+ * {@code null} objects are ignored by the multiplexer.
+ *
+ * <p> This is preferable if the costs of processing the input elements are
+ * very uneven, e.g. when starting external processes, since idle worker
+ * threads take over pending input elements from busy ones.
+ *
+ * <p> Like the ring buffer of the {@link ThreadedProcessor}, the number of
+ * input elements that are submitted to the pool but not yet processed is
+ * limited to {@link #MAX_PENDING_ITEMS}. Submitting threads wait for a free
+ * slot if the limit is reached.
+ *
+ * <p> The pool may temporarily run more threads than its parallelism level,
+ * and threads that wait for the pool may process pending input elements, too.
+ * Each of them needs a handler while processing an input element, but at most
+ * twice as many handlers as the parallelism level are created. Threads that do
+ * not get a handler wait for another thread to finish its input element.
+ *
+ * @author Simon Heiden
+ */
+public class WorkStealingProcessor<A,B> extends AbstractProcessor<A,B> {
+
+	/**
+	 * The maximal number of input elements that may be pending at any time.
+	 */
+	public static final int MAX_PENDING_ITEMS = 1024;
+
+	private final ProcessorSocketGenerator<A,B> transmitter;
+	private final int parallelism;
+	private final ThreadLimit limit;
+	private final ClassLoader classLoader;
+
+	//all created handlers and the ones that are currently not used by a thread
+	private final List<EHWithInputAndReturn<A,B>> handlers = new CopyOnWriteArrayList<>();
+	private final ConcurrentLinkedQueue<EHWithInputAndReturn<A,B>> idleHandlers = new ConcurrentLinkedQueue<>();
+	private final AbstractMultiplexer<B> multiplexer;
+	private ReorderBuffer<B> reorderBuffer = null;
+	private int outputBufferSize = EHWithInputAndReturn.DEFAULT_OUTPUT_BUFFER_SIZE;
+
+	//limits the number of handlers that are in use at the same time
+	private final Semaphore handlerPermits;
+	//unlike a ring buffer, the pool does not limit the number of pending items
+	private final Semaphore pendingItems = new Semaphore(MAX_PENDING_ITEMS);
+	private ForkJoinPool pool = null;
+	private ProcessorSocket<A,B> socket;
+	private long nextSequence = 0;
+
+	public WorkStealingProcessor(int parallelism, ThreadLimit limit, ProcessorSocketGenerator<A,B> transmitter, ClassLoader classLoader) {
+		super();
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Number of threads has to be at least 1.");
+		}
+		this.transmitter = transmitter;
+		this.parallelism = parallelism;
+		this.limit = limit;
+		this.classLoader = classLoader;
+		handlerPermits = new Semaphore(2 * parallelism);
+		multiplexer = new AbstractMultiplexer<B>(new ConfigurableThreadFactory(classLoader)) {
+			@Override
+			public void processNewOutputItem(B item) {
+				//submit results that are not null to the ouput pipe
+				socket.produce(item);
+			}
+		};
+
+		//instantiate one handler per worker thread in advance
+		EHWithInputAndReturn<A,B> firstEH = newHandler();
+		@SuppressWarnings("unchecked")
+		Class<EHWithInputAndReturn<A,B>> clazz = (Class<EHWithInputAndReturn<A, B>>) firstEH.getClass();
+		final EHWithInputAndReturn<A,B>[] initialHandlers = Misc.createGenericArray(clazz, parallelism);
+		initialHandlers[0] = firstEH;
+		for (int i = 1; i < parallelism; ++i) {
+			initialHandlers[i] = newHandler();
+		}
+		for (EHWithInputAndReturn<A,B> handler : initialHandlers) {
+			idleHandlers.add(handler);
+		}
+		multiplexer.connectHandlers((MultiplexerInput<B>[]) initialHandlers);
+	}
+
+	public WorkStealingProcessor(int parallelism, ThreadLimit limit, ProcessorSocketGenerator<A,B> transmitter) {
+		this(parallelism, limit, transmitter, null);
+	}
+
+	public WorkStealingProcessor(int parallelism, ProcessorSocketGenerator<A,B> transmitter, ClassLoader classLoader) {
+		this(parallelism, ThreadLimitDummy.getInstance(), transmitter, classLoader);
+	}
+
+	public WorkStealingProcessor(int parallelism, ProcessorSocketGenerator<A,B> transmitter) {
+		this(parallelism, ThreadLimitDummy.getInstance(), transmitter, null);
+	}
+
+	/**
+	 * Sets the size of the output buffer of each handler.
+	 * Should not be called while items are being processed.
+	 * @param size
+	 * the number of output items to buffer per handler
+	 * @return
+	 * this
+	 * @see ThreadedProcessor#setOutputBufferSize(int)
+	 */
+	public WorkStealingProcessor<A,B> setOutputBufferSize(int size) {
+		outputBufferSize = size;
+		for (EHWithInputAndReturn<A,B> handler : handlers) {
+			handler.setOutputBufferSize(size);
+		}
+		return this;
+	}
+
+	/**
+	 * Sets whether the order of the submitted input objects shall be preserved.
+	 * Should not be called while items are being processed.
+	 * @param preserveOrder
+	 * whether to preserve the order of the input objects
+	 * @return
+	 * this
+	 * @see ThreadedProcessor#setPreserveOrder(boolean)
+	 */
+	public WorkStealingProcessor<A,B> setPreserveOrder(boolean preserveOrder) {
+		if (preserveOrder && reorderBuffer == null) {
+			reorderBuffer = new ReorderBuffer<>(MAX_PENDING_ITEMS, multiplexer);
+		} else if (!preserveOrder) {
+			reorderBuffer = null;
+		}
+		for (EHWithInputAndReturn<A,B> handler : handlers) {
+			handler.setReorderBuffer(reorderBuffer);
+		}
+		return this;
+	}
+
+	private EHWithInputAndReturn<A,B> newHandler() {
+		EHWithInputAndReturn<A,B> handler = transmitter.newEHInstance();
+		handler.setThreadLimit(limit);
+		handler.setMultiplexer(multiplexer);
+		handlers.add(handler);
+		return handler;
+	}
+
+	/**
+	 * Waits until less than the maximal number of handlers are in use.
+	 * @return
+	 * an idle handler, or a new handler if all handlers are in use
+	 */
+	private EHWithInputAndReturn<A,B> acquireHandler() {
+		handlerPermits.acquireUninterruptibly();
+		EHWithInputAndReturn<A,B> handler = idleHandlers.poll();
+		if (handler == null) {
+			//the pool may temporarily use more threads than its parallelism level
+			handler = newHandler();
+			handler.setOutputBufferSize(outputBufferSize);
+			handler.setReorderBuffer(reorderBuffer);
+			if (socket != null && socket.hasOptions()) {
+				handler.setOptions(socket.getOptions());
+			}
+		}
+		return handler;
+	}
+
+	private void releaseHandler(EHWithInputAndReturn<A,B> handler) {
+		idleHandlers.add(handler);
+		handlerPermits.release();
+	}
+
+	/**
+	 * Worker thread that uses the given class loader as its context class loader.
+	 */
+	private class Worker extends ForkJoinWorkerThread {
+
+		protected Worker(ForkJoinPool pool) {
+			super(pool);
+			if (classLoader != null) {
+				setContextClassLoader(classLoader);
+			}
+		}
+
+	}
+
+	private void process(SingleUseEvent<A> event) {
+		//tasks may also be executed by an external thread that waits for the pool
+		EHWithInputAndReturn<A,B> handler = acquireHandler();
+		try {
+			handler.onEvent(event);
+		} catch (Throwable e) {
+			Log.err(this, e, "%s was thrown while processing item #%d.", e, event.getSequence());
+		} finally {
+			releaseHandler(handler);
+			pendingItems.release();
+		}
+	}
+
+	@Override
+	public B processItem(A input, ProcessorSocket<A, B> socket) {
+		if (this.socket == null) {
+			this.socket = socket;
+			if (this.socket.hasOptions()) {
+				for (EHWithInputAndReturn<A,B> handler : handlers) {
+					handler.setOptions(this.socket.getOptions());
+				}
+			}
+		}
+		//restart the multiplexer and the pool if they have been shut down
+		if (!multiplexer.isRunning()) {
+			multiplexer.start();
+		}
+		if (pool == null) {
+			//asynchronous mode processes locally queued tasks in FIFO order
+			pool = new ForkJoinPool(parallelism, Worker::new, null, true);
+		}
+		if (reorderBuffer != null) {
+			//processed items may still wait in the reorder buffer,
+			//so we have to make sure that the reorder buffer never overflows
+			reorderBuffer.awaitCapacity(nextSequence);
+		}
+		final SingleUseEvent<A> event = new SingleUseEvent<>();
+		event.set(input);
+		event.setSequence(nextSequence++);
+		//the slot is released after processing the item
+		pendingItems.acquireUninterruptibly();
+		try {
+			pool.execute(() -> process(event));
+		} catch (RuntimeException e) {
+			pendingItems.release();
+			throw e;
+		}
+		return null;
+	}
+
+	private void waitForPool() {
+		if (pool != null) {
+			while (!pool.awaitQuiescence(1, TimeUnit.SECONDS)) {
+				// wait some more
+			}
+		}
+	}
+
+	/**
+	 * Waits until all submitted items have been processed by the worker
+	 * threads and until their outputs have been collected by the multiplexer
+	 * and passed on. All threads are kept alive.
+	 * @return
+	 * null, since no items are collected
+	 */
+	@Override
+	public B getResultFromCollectedItems() {
+		waitForPool();
+		multiplexer.waitForPendingItems();
+		return null;
+	}
+
+	@Override
+	public boolean finalShutdown() {
+		waitForPool();
+		if (pool != null) {
+			pool.shutdown();
+			try {
+				while (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+					// wait some more
+				}
+			} catch (InterruptedException e) {
+				Log.err(this, e, "Interrupted while waiting for the worker threads to terminate.");
+			}
+			pool = null;
+		}
+		multiplexer.shutdown();
+		nextSequence = 0;
+		if (reorderBuffer != null) {
+			reorderBuffer.reset();
+		}
+		return true;
+	}
+
+}
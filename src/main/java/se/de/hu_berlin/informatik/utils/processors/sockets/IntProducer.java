@@ -0,0 +1,37 @@
+package se.de.hu_berlin.informatik.utils.processors.sockets;
+
+import se.de.hu_berlin.informatik.utils.processors.IntProcessor;
+
+/**
+ * Provides an interface for {@link ProcessorSocket}s that are able to
+ * produce primitive {@code int} values without boxing them, as long as 
+ * the consumer is an {@link IntProcessor}.
+ * 
+ * @author Simon Heiden
+ */
+public interface IntProducer {
+
+	/**
+	 * Produces the given {@code int} value as output.
+	 * @param item
+	 * the value to produce
+	 */
+	public void produceInt(int item);
+	
+	/**
+	 * Produces the given {@code int} value with the given socket. Avoids boxing
+	 * the value if the socket is an {@link IntProducer}.
+	 * @param socket
+	 * the socket to produce the value with
+	 * @param item
+	 * the value to produce
+	 */
+	public static void produceInt(ProcessorSocket<?, Integer> socket, int item) {
+		if (socket instanceof IntProducer) {
+			((IntProducer) socket).produceInt(item);
+		} else {
+			socket.produce(item);
+		}
+	}
+
+}
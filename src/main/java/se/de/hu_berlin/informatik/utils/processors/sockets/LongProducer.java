@@ -0,0 +1,37 @@
+package se.de.hu_berlin.informatik.utils.processors.sockets;
+
+import se.de.hu_berlin.informatik.utils.processors.LongProcessor;
+
+/**
+ * Provides an interface for {@link ProcessorSocket}s that are able to
+ * produce primitive {@code long} values without boxing them, as long as 
+ * the consumer is an {@link LongProcessor}.
+ * 
+ * @author Simon Heiden
+ */
+public interface LongProducer {
+
+	/**
+	 * Produces the given {@code long} value as output.
+	 * @param item
+	 * the value to produce
+	 */
+	public void produceLong(long item);
+	
+	/**
+	 * Produces the given {@code long} value with the given socket. Avoids boxing
+	 * the value if the socket is an {@link LongProducer}.
+	 * @param socket
+	 * the socket to produce the value with
+	 * @param item
+	 * the value to produce
+	 */
+	public static void produceLong(ProcessorSocket<?, Long> socket, long item) {
+		if (socket instanceof LongProducer) {
+			((LongProducer) socket).produceLong(item);
+		} else {
+			socket.produce(item);
+		}
+	}
+
+}
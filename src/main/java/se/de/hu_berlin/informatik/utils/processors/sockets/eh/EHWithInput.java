@@ -46,6 +46,11 @@ public class EHWithInput<A> extends DisruptorFCFSEventHandler<A> implements Cons
 		return processor;
 	}
 
+	@Override
+	protected int getThreadLimitWeight() {
+		return processor.getThreadLimitWeight();
+	}
+
 	@Override
 	public void setProcessor(Processor<A,Object> consumer) {
 		this.processor = consumer;
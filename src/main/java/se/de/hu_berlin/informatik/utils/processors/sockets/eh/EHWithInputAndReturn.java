@@ -3,7 +3,7 @@
  */
 package se.de.hu_berlin.informatik.utils.processors.sockets.eh;
 
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Arrays;
 
 import se.de.hu_berlin.informatik.utils.processors.Processor;
 import se.de.hu_berlin.informatik.utils.processors.sockets.ProcessorSocket;
@@ -11,13 +11,28 @@ import se.de.hu_berlin.informatik.utils.processors.sockets.module.Module;
 import se.de.hu_berlin.informatik.utils.processors.sockets.pipe.Pipe;
 import se.de.hu_berlin.informatik.utils.threaded.disruptor.Multiplexer;
 import se.de.hu_berlin.informatik.utils.threaded.disruptor.MultiplexerInput;
+import se.de.hu_berlin.informatik.utils.threaded.disruptor.ReorderBuffer;
 import se.de.hu_berlin.informatik.utils.threaded.disruptor.eventhandler.AbstractDisruptorEventHandler;
 import se.de.hu_berlin.informatik.utils.threaded.disruptor.eventhandler.DisruptorFCFSEventHandler;
 
 /**
  * A {@link ProcessorSocket} implementation that provides a simple API for 
  * a disruptor event handler that processes a single input object at a time 
- * and produces output objects that may be collected by a multiplexer thread.
+ * and produces output objects that are collected by a multiplexer thread.
+ * Produced output objects are published to the multiplexer without waiting
+ * for previous output objects to be collected.
+ * 
+ * <p> Output objects are first stored in a small output buffer that is only
+ * accessed by the handler's thread. The buffered objects are published to
+ * the multiplexer at once when the buffer is full and after processing each
+ * input object. This way, handlers that produce multiple output objects per 
+ * input object do not have to synchronize with the multiplexer for each one.
+ * Output objects have to be produced by the handler's thread, accordingly.
+ * 
+ * <p> If a {@link ReorderBuffer} is set, all output objects that are produced
+ * for an input object are buffered and passed to the reorder buffer after
+ * processing the input object, such that the order of the input objects 
+ * is preserved.
  * 
  * @author Simon Heiden
  * 
@@ -29,14 +44,19 @@ import se.de.hu_berlin.informatik.utils.threaded.disruptor.eventhandler.Disrupto
 public class EHWithInputAndReturn<A,B> extends DisruptorFCFSEventHandler<A> implements ProcessorSocket<A,B>, MultiplexerInput<B> {
 
 	/**
-	 * The output object.
+	 * The default size of the output buffer.
 	 */
-	private B output = null;
+	public static final int DEFAULT_OUTPUT_BUFFER_SIZE = 16;
 	
-	private AtomicBoolean hasNewOutput = new AtomicBoolean(false);
-	private final Object lock = new Object();
 	private Multiplexer<B> multiplexer = null;
 	
+	private B[] outputBuffer;
+	private int outputCount = 0;
+	//the configured size of the output buffer, which may grow in ordered mode
+	private int outputBufferSize;
+	
+	private ReorderBuffer<B> reorderBuffer = null;
+	
 	private Processor<A, B> processor;
 	
 	/**
@@ -47,11 +67,94 @@ public class EHWithInputAndReturn<A,B> extends DisruptorFCFSEventHandler<A> impl
 	public EHWithInputAndReturn(Processor<A,B> processor) {
 		super();
 		insert(processor);
+		setOutputBufferSize(DEFAULT_OUTPUT_BUFFER_SIZE);
 	}
 	
 	@Override
 	public void processEvent(A input) throws Exception {
-		initAndConsume(input);
+		try {
+			initAndConsume(input);
+		} finally {
+			if (reorderBuffer == null) {
+				flushOutput();
+			} else {
+				completeOutput();
+			}
+		}
+	}
+	
+	/**
+	 * Passes all output objects produced for the current input object
+	 * on to the reorder buffer. Shrinks the output buffer back to its 
+	 * configured size if it had to grow for the current input object.
+	 */
+	@SuppressWarnings("unchecked")
+	private void completeOutput() {
+		reorderBuffer.complete(getCurrentSequence(), outputBuffer, outputCount);
+		if (outputBuffer.length > outputBufferSize) {
+			outputBuffer = (B[]) new Object[outputBufferSize];
+		} else {
+			for (int i = 0; i < outputCount; ++i) {
+				outputBuffer[i] = null;
+			}
+		}
+		outputCount = 0;
+	}
+	
+	/**
+	 * Sets a reorder buffer that restores the order of the input objects.
+	 * Should not be called while the handler is processing an input object.
+	 * @param reorderBuffer
+	 * the reorder buffer, or {@code null} to publish output objects
+	 * to the multiplexer directly
+	 * @return
+	 * this handler
+	 */
+	public EHWithInputAndReturn<A,B> setReorderBuffer(ReorderBuffer<B> reorderBuffer) {
+		flushOutput();
+		this.reorderBuffer = reorderBuffer;
+		return this;
+	}
+	
+	/**
+	 * Sets the size of the output buffer. A size of 1 publishes each output
+	 * object immediately. Publishes all currently buffered output objects.
+	 * Should not be called while the handler is processing an input object.
+	 * @param size
+	 * the number of output objects to buffer
+	 * @return
+	 * this handler
+	 */
+	@SuppressWarnings("unchecked")
+	public EHWithInputAndReturn<A,B> setOutputBufferSize(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("Output buffer size must be positive.");
+		}
+		flushOutput();
+		outputBufferSize = size;
+		outputBuffer = (B[]) new Object[size];
+		return this;
+	}
+	
+	/**
+	 * @return
+	 * the size of the output buffer
+	 */
+	public int getOutputBufferSize() {
+		return outputBufferSize;
+	}
+	
+	/**
+	 * Publishes all buffered output objects to the multiplexer.
+	 */
+	public void flushOutput() {
+		if (outputCount > 0) {
+			multiplexer.submitItems(outputBuffer, outputCount);
+			for (int i = 0; i < outputCount; ++i) {
+				outputBuffer[i] = null;
+			}
+			outputCount = 0;
+		}
 	}
 
 	@Override
@@ -59,6 +162,11 @@ public class EHWithInputAndReturn<A,B> extends DisruptorFCFSEventHandler<A> impl
 		return processor;
 	}
 
+	@Override
+	protected int getThreadLimitWeight() {
+		return processor.getThreadLimitWeight();
+	}
+
 	@Override
 	public void setProcessor(Processor<A, B> consumer) {
 		this.processor = consumer;
@@ -66,7 +174,16 @@ public class EHWithInputAndReturn<A,B> extends DisruptorFCFSEventHandler<A> impl
 	
 	@Override
 	public void produce(B item) {
-		trySettingNewOutputAndValidate(item);
+		if (item != null) {
+			if (outputCount == outputBuffer.length) {
+				//all output objects of an input object have to be kept in ordered mode
+				outputBuffer = Arrays.copyOf(outputBuffer, outputBuffer.length * 2);
+			}
+			outputBuffer[outputCount++] = item;
+			if (outputCount == outputBuffer.length && reorderBuffer == null) {
+				flushOutput();
+			}
+		}
 	}
 	
 	/* (non-Javadoc)
@@ -80,55 +197,6 @@ public class EHWithInputAndReturn<A,B> extends DisruptorFCFSEventHandler<A> impl
 		this.multiplexer = multiplexer;
 	}
 
-	/* (non-Javadoc)
-	 * @see se.de.hu_berlin.informatik.utils.threaded.IMultiplexerInput#getLock()
-	 */
-	@Override
-	public Object getLock() {
-		return lock;
-	}
-	
-	/* (non-Javadoc)
-	 * @see se.de.hu_berlin.informatik.utils.threaded.IMultiplexerInput#getOutput()
-	 */
-	@Override
-	public B getOutput() {
-		return output;
-	}
-	
-	/* (non-Javadoc)
-	 * @see se.de.hu_berlin.informatik.utils.threaded.IMultiplexerInput#setOutput(java.lang.Object)
-	 */
-	@Override
-	public boolean setOutput(B item) {
-		output = item;
-		return true;
-	}
-	
-	/* (non-Javadoc)
-	 * @see se.de.hu_berlin.informatik.utils.threaded.IMultiplexerInput#outputItemIsValid()
-	 */
-	@Override
-	public boolean outputItemIsValid() {
-		return hasNewOutput.get();
-	}
-
-	/* (non-Javadoc)
-	 * @see se.de.hu_berlin.informatik.utils.threaded.IMultiplexerInput#setOutputItemValid()
-	 */
-	@Override
-	public void setOutputItemValid() {
-		hasNewOutput.set(true);
-	}
-
-	/* (non-Javadoc)
-	 * @see se.de.hu_berlin.informatik.utils.threaded.IMultiplexerInput#setOutputItemInvalid()
-	 */
-	@Override
-	public void setOutputItemInvalid() {
-		hasNewOutput.set(false);
-	}
-
 	/* (non-Javadoc)
 	 * @see se.de.hu_berlin.informatik.utils.threaded.IMultiplexerInput#getMultiplexer()
 	 */
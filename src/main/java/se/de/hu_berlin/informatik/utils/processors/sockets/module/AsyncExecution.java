@@ -0,0 +1,97 @@
+/**
+ *
+ */
+package se.de.hu_berlin.informatik.utils.processors.sockets.module;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import se.de.hu_berlin.informatik.utils.threaded.ConfigurableThreadFactory;
+import se.de.hu_berlin.informatik.utils.threaded.ExecutorServiceProvider;
+
+/**
+ * Provides the executor for items that are submitted asynchronously to a
+ * {@link Module} or a {@link ModuleLinker} and keeps track of the items
+ * that are still being processed.
+ *
+ * @author Simon Heiden
+ */
+final class AsyncExecution {
+
+	private Executor executor = null;
+	private ExecutorServiceProvider executorProvider = null;
+	private final Set<CompletableFuture<?>> pendingItems = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * @param executor
+	 * the executor to use
+	 */
+	synchronized void setExecutor(Executor executor) {
+		if (executor == null) {
+			throw new IllegalArgumentException("No executor given (null).");
+		}
+		this.executor = executor;
+	}
+
+	/**
+	 * Creates the default executor, if no executor was set. The default executor
+	 * uses an unbounded queue, such that submitting an item never blocks.
+	 * @return
+	 * the executor that processes asynchronously submitted items
+	 */
+	synchronized Executor getExecutor() {
+		if (executor == null) {
+			ThreadPoolExecutor poolExecutor = new ThreadPoolExecutor(
+					Module.DEFAULT_ASYNC_THREADS, Module.DEFAULT_ASYNC_THREADS, 10L, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<>(), new ConfigurableThreadFactory());
+			poolExecutor.allowCoreThreadTimeOut(true);
+			executorProvider = new ExecutorServiceProvider(poolExecutor);
+			executor = poolExecutor;
+		}
+		return executor;
+	}
+
+	/**
+	 * Executes the given supplier with the executor and tracks the returned
+	 * future until it completes.
+	 * @param <T>
+	 * the type of the result
+	 * @param supplier
+	 * the supplier to execute
+	 * @return
+	 * a future that completes with the result of the supplier
+	 */
+	<T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+		CompletableFuture<T> future = CompletableFuture.supplyAsync(supplier, getExecutor());
+		pendingItems.add(future);
+		future.whenComplete((result, e) -> pendingItems.remove(future));
+		return future;
+	}
+
+	/**
+	 * Waits for all tracked futures to complete, whether normally or exceptionally.
+	 */
+	void awaitPendingItems() {
+		CompletableFuture.allOf(pendingItems.toArray(new CompletableFuture<?>[0]))
+		.handle((result, e) -> null).join();
+	}
+
+	/**
+	 * Shuts down the default executor, if it was created. A new default
+	 * executor is created when the next item is submitted.
+	 */
+	synchronized void shutdownDefaultExecutor() {
+		if (executorProvider != null) {
+			executorProvider.shutdownAndWaitForTermination(false);
+			executorProvider = null;
+			executor = null;
+		}
+	}
+
+}
@@ -3,9 +3,20 @@
  */
 package se.de.hu_berlin.informatik.utils.processors.sockets.module;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
 import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
+import se.de.hu_berlin.informatik.utils.processors.IntProcessor;
+import se.de.hu_berlin.informatik.utils.processors.LongProcessor;
 import se.de.hu_berlin.informatik.utils.processors.Processor;
 import se.de.hu_berlin.informatik.utils.processors.sockets.AbstractProcessorSocket;
+import se.de.hu_berlin.informatik.utils.processors.sockets.IntProducer;
+import se.de.hu_berlin.informatik.utils.processors.sockets.LongProducer;
 import se.de.hu_berlin.informatik.utils.processors.sockets.ProcessorSocket;
 import se.de.hu_berlin.informatik.utils.processors.sockets.module.ModuleLinker;
 import se.de.hu_berlin.informatik.utils.processors.sockets.pipe.Pipe;
@@ -32,6 +43,17 @@ import se.de.hu_berlin.informatik.utils.threaded.disruptor.eventhandler.Abstract
  * also obtain the intermediate results from each of the linked Modules if
  * needed.
  * 
+ * <br><br> Items may also be processed asynchronously with {@link #submitAsync(Object)}.
+ * In this case, each concurrently processed item uses its own Module instance
+ * that is obtained via {@link Processor#newModuleInstance()}, such that
+ * multiple items may be processed concurrently. The created instances are
+ * finished with {@link #shutdownAsync()}.
+ * 
+ * <br><br> Primitive {@code int} and {@code long} values that are produced via
+ * {@link #produceInt(int)} or {@link #produceLong(long)} are passed on to linked
+ * Modules without boxing them, if the linked Module uses an {@link IntProcessor}
+ * or a {@link LongProcessor}, respectively.
+ * 
  * <br><br> In general, Modules should not be linked manually and should
  * preferably be linked together with a {@link ModuleLinker} which provides
  * more general and easier access methods.
@@ -45,12 +67,25 @@ import se.de.hu_berlin.informatik.utils.threaded.disruptor.eventhandler.Abstract
  * 
  * @see ModuleLinker
  */
-public class Module<A,B> extends AbstractProcessorSocket<A,B> {
+public class Module<A,B> extends AbstractProcessorSocket<A,B> implements IntProducer, LongProducer {
+	
+	/**
+	 * The number of threads of the default executor for asynchronously
+	 * submitted items. Higher than the number of processors, since
+	 * asynchronously processed items typically block on I/O.
+	 */
+	public static final int DEFAULT_ASYNC_THREADS = 4 * Runtime.getRuntime().availableProcessors();
 	
 	private B output = null;
 	
 	private Module<B,?> linkedModule = null;
 	
+	private final AsyncExecution asyncExecution = new AsyncExecution();
+	//module instances for asynchronous processing that are currently not in use
+	private final Queue<Module<A,B>> idleAsyncInstances = new ConcurrentLinkedQueue<>();
+	//all created module instances for asynchronous processing
+	private final Queue<Module<A,B>> asyncInstances = new ConcurrentLinkedQueue<>();
+	
 	/**
 	 * Creates a new module with the given parameter.
 	 * @param processor
@@ -112,6 +147,194 @@ public class Module<A,B> extends AbstractProcessorSocket<A,B> {
 		return this;
 	}
 	
+	/**
+	 * Sets the executor that processes asynchronously submitted items.
+	 * Per default, a dedicated thread pool with {@link #DEFAULT_ASYNC_THREADS}
+	 * threads and an unbounded queue is created when the first item is submitted
+	 * asynchronously. The executor should not be the common 
+	 * {@link java.util.concurrent.ForkJoinPool} if items block on I/O.
+	 * @param executor
+	 * the executor to use
+	 * @return
+	 * this module
+	 */
+	public Module<A,B> setExecutor(Executor executor) {
+		asyncExecution.setExecutor(executor);
+		return this;
+	}
+	
+	/**
+	 * @return
+	 * the executor that processes asynchronously submitted items
+	 */
+	public Executor getExecutor() {
+		return asyncExecution.getExecutor();
+	}
+	
+	/**
+	 * Submits the given item to be processed asynchronously by the set executor.
+	 * With the default executor, this does not wait for the item to be processed.
+	 * A set executor with a bounded, blocking queue may block the caller instead,
+	 * though, and should then not be used to submit items from within processed
+	 * items, since all threads may end up waiting. Each concurrently processed
+	 * item uses its own Module instance with a new Processor instance, such that
+	 * multiple items may be processed concurrently. The output is not passed on to a linked module
+	 * and does not change the result of this module. Call {@link #shutdownAsync()}
+	 * after the last item was submitted.
+	 * @param item
+	 * the item to be processed by the module
+	 * @return
+	 * a future that completes with the last output item that was produced 
+	 * for the given item (may be null), or exceptionally if processing failed
+	 * @see ModuleLinker#submitAsync(Object)
+	 */
+	public CompletableFuture<B> submitAsync(Object item) {
+		return asyncExecution.supplyAsync(() -> {
+			Module<A,B> instance = acquireAsyncInstance();
+			try {
+				return instance.submitAndGetResult(item);
+			} finally {
+				idleAsyncInstances.add(instance);
+			}
+		});
+	}
+	
+	private Module<A,B> acquireAsyncInstance() {
+		Module<A,B> module = idleAsyncInstances.poll();
+		if (module == null) {
+			module = getProcessor().newModuleInstance();
+			module.setOptions(getOptions());
+			asyncInstances.add(module);
+		}
+		return module;
+	}
+	
+	/**
+	 * Waits for all asynchronously submitted items to be processed and
+	 * finishes the Module instances that were created for asynchronous 
+	 * processing, i.e., calls {@link Processor#getResultFromCollectedItems()}
+	 * and {@link Processor#finalShutdown()} on each of them. Shuts down the
+	 * default executor, if it was created. Items may be submitted 
+	 * asynchronously again, afterwards.
+	 * @return
+	 * the (non-null) collected results of the finished Module instances
+	 */
+	public List<B> shutdownAsync() {
+		asyncExecution.awaitPendingItems();
+		
+		List<B> results = new ArrayList<>();
+		Module<A,B> module;
+		while ((module = asyncInstances.poll()) != null) {
+			B result = module.getResultFromCollectedItems();
+			if (result != null) {
+				results.add(result);
+			}
+			module.finalShutdown();
+		}
+		idleAsyncInstances.clear();
+		
+		asyncExecution.shutdownDefaultExecutor();
+		return results;
+	}
+	
+	/**
+	 * Submits the given item to the module and processes it.
+	 * @param item
+	 * the item to be processed by the module
+	 * @return
+	 * the last output item that was produced for the given item, or null
+	 */
+	B submitAndGetResult(Object item) {
+		output = null;
+		submit(item);
+		return output;
+	}
+	
+	/**
+	 * Resets the result of this module to null.
+	 */
+	void clearResult() {
+		output = null;
+	}
+	
+	/**
+	 * @return
+	 * whether a module is linked to the output of this module
+	 */
+	boolean hasLinkedModule() {
+		return linkedModule != null;
+	}
+	
+	/**
+	 * Submits the given {@code int} value to the module and processes it.
+	 * The value does not get boxed if the module uses an {@link IntProcessor}.
+	 * @param item
+	 * the value to be processed by the module
+	 * @return
+	 * this module
+	 */
+	public Module<A,B> submitInt(int item) {
+		Processor<A,B> processor = getProcessor();
+		if (processor instanceof IntProcessor) {
+			((IntProcessor<?>) processor).resetTrackAndConsumeInt(item);
+		} else {
+			submit(item);
+		}
+		return this;
+	}
+	
+	/**
+	 * Submits the given {@code long} value to the module and processes it.
+	 * The value does not get boxed if the module uses a {@link LongProcessor}.
+	 * @param item
+	 * the value to be processed by the module
+	 * @return
+	 * this module
+	 */
+	public Module<A,B> submitLong(long item) {
+		Processor<A,B> processor = getProcessor();
+		if (processor instanceof LongProcessor) {
+			((LongProcessor<?>) processor).resetTrackAndConsumeLong(item);
+		} else {
+			submit(item);
+		}
+		return this;
+	}
+	
+	/**
+	 * Produces the given {@code int} value. If the linked module uses an
+	 * {@link IntProcessor}, the value gets passed on without boxing it,
+	 * and the result of this module does not change.
+	 * @param item
+	 * the value to produce
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public void produceInt(int item) {
+		if (linkedModule != null && linkedModule.getProcessor() instanceof IntProcessor) {
+			linkedModule.submitInt(item);
+		} else {
+			produce((B) Integer.valueOf(item));
+		}
+	}
+	
+	/**
+	 * Produces the given {@code long} value. If the linked module uses a
+	 * {@link LongProcessor}, the value gets passed on without boxing it,
+	 * and the result of this module does not change.
+	 * @param item
+	 * the value to produce
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public void produceLong(long item) {
+		if (linkedModule != null && linkedModule.getProcessor() instanceof LongProcessor) {
+			linkedModule.submitLong(item);
+		} else {
+			produce((B) Long.valueOf(item));
+		}
+	}
+	
 	@Override
 	public void produce(B item) {
 		output = item;
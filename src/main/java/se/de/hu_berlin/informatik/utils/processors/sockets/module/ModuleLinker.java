@@ -3,9 +3,18 @@
  */
 package se.de.hu_berlin.informatik.utils.processors.sockets.module;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
 import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
 import se.de.hu_berlin.informatik.utils.optionparser.OptionCarrier;
 import se.de.hu_berlin.informatik.utils.optionparser.OptionParser;
+import se.de.hu_berlin.informatik.utils.processors.Processor;
 import se.de.hu_berlin.informatik.utils.processors.sockets.ProcessorSocketGenerator;
 import se.de.hu_berlin.informatik.utils.tracking.Trackable;
 import se.de.hu_berlin.informatik.utils.tracking.TrackingStrategy;
@@ -16,6 +25,12 @@ import se.de.hu_berlin.informatik.utils.tracking.TrackerDummy;
  * for the submission of items to a chain of Modules and for obtaining
  * result items.
  * 
+ * <p> Items may also be processed asynchronously with {@link #submitAsync(Object)}.
+ * In this case, each concurrently processed item uses its own chain of new
+ * Module instances, such that multiple items may be processed concurrently,
+ * e.g. to overlap I/O operations on many files. The created chains are
+ * finished with {@link #shutdownAsync()}.
+ * 
  * @author Simon Heiden
  *
  * @see Module
@@ -26,6 +41,13 @@ public class ModuleLinker implements Trackable, OptionCarrier {
 	private Module<?,?> endModule = null;
 	private OptionParser options = null;
 	
+	private final AsyncExecution asyncExecution = new AsyncExecution();
+	//chains of new module instances for asynchronous processing that are currently
+	//not in use; gets replaced if modules are appended
+	private Queue<Module<?,?>[]> idleAsyncChains = new ConcurrentLinkedQueue<>();
+	//all created chains for asynchronous processing
+	private final Queue<Module<?,?>[]> asyncChains = new ConcurrentLinkedQueue<>();
+	
 	public ModuleLinker() {
 		super();
 	}
@@ -66,6 +88,8 @@ public class ModuleLinker implements Trackable, OptionCarrier {
 					generators[i+1].asModule().setOptions(options);
 				}
 				endModule = generators[generators.length-1].asModule();
+				//chains for asynchronous processing have to be created anew
+				idleAsyncChains = new ConcurrentLinkedQueue<>();
 			} catch(UnsupportedOperationException e) {
 				Log.abort(this, e, "Unable to get module from a given transmitter.");
 			}
@@ -110,6 +134,191 @@ public class ModuleLinker implements Trackable, OptionCarrier {
 		return this;
 	}
 	
+	/**
+	 * Submits the given {@code int} values to the underlying chain of modules.
+	 * The values do not get boxed if the first module uses an
+	 * {@link se.de.hu_berlin.informatik.utils.processors.IntProcessor}.
+	 * @param items
+	 * values to be submitted
+	 * @return
+	 * this module linker
+	 */
+	public ModuleLinker submitInts(int... items) {
+		Module<?,?> module = getStartModule();
+		for (int i = 0; i < items.length; ++i) {
+			module.submitInt(items[i]);
+		}
+		return this;
+	}
+	
+	/**
+	 * Submits the given {@code long} values to the underlying chain of modules.
+	 * The values do not get boxed if the first module uses a
+	 * {@link se.de.hu_berlin.informatik.utils.processors.LongProcessor}.
+	 * @param items
+	 * values to be submitted
+	 * @return
+	 * this module linker
+	 */
+	public ModuleLinker submitLongs(long... items) {
+		Module<?,?> module = getStartModule();
+		for (int i = 0; i < items.length; ++i) {
+			module.submitLong(items[i]);
+		}
+		return this;
+	}
+	
+	/**
+	 * Sets the executor that processes asynchronously submitted items.
+	 * Per default, a dedicated thread pool with {@link Module#DEFAULT_ASYNC_THREADS}
+	 * threads and an unbounded queue is created when the first item is submitted
+	 * asynchronously. The executor should not be the common 
+	 * {@link java.util.concurrent.ForkJoinPool} if items block on I/O.
+	 * @param executor
+	 * the executor to use
+	 * @return
+	 * this module linker
+	 */
+	public ModuleLinker setExecutor(Executor executor) {
+		asyncExecution.setExecutor(executor);
+		return this;
+	}
+	
+	/**
+	 * @return
+	 * the executor that processes asynchronously submitted items
+	 */
+	public Executor getExecutor() {
+		return asyncExecution.getExecutor();
+	}
+	
+	/**
+	 * Submits the given item to be processed asynchronously by the underlying
+	 * chain of modules. With the default executor, this does not wait for the
+	 * item to be processed. A set executor with a bounded, blocking queue may
+	 * block the caller instead, though, and should then not be used to submit
+	 * items from within processed items, since all threads may end up waiting.
+	 * Each concurrently processed item
+	 * uses its own chain of new Module instances that are obtained via 
+	 * {@link Processor#newModuleInstance()}, such that multiple items may be 
+	 * processed concurrently. Does not change the results of the appended modules.
+	 * Call {@link #shutdownAsync()} after the last item was submitted.
+	 * @param item
+	 * the item to be submitted
+	 * @return
+	 * a future that completes with the last output item that was produced by
+	 * the last module in the chain for the given item (may be null), or
+	 * exceptionally if processing failed
+	 */
+	public CompletableFuture<Object> submitAsync(Object item) {
+		getStartModule();
+		final Queue<Module<?,?>[]> idleChains = idleAsyncChains;
+		return asyncExecution.supplyAsync(() -> {
+			Module<?,?>[] modules = idleChains.poll();
+			if (modules == null) {
+				modules = newAsyncChain();
+				asyncChains.add(modules);
+			}
+			try {
+				Module<?,?> lastModule = modules[modules.length-1];
+				lastModule.clearResult();
+				modules[0].submit(item);
+				return lastModule.getResult();
+			} finally {
+				idleChains.add(modules);
+			}
+		});
+	}
+	
+	/**
+	 * Waits for all asynchronously submitted items to be processed and
+	 * finishes the chains of Module instances that were created for 
+	 * asynchronous processing. The results of {@link Processor#getResultFromCollectedItems()}
+	 * of each module are passed on to the subsequent module in the respective
+	 * chain, and {@link Processor#finalShutdown()} is called on each module,
+	 * afterwards. Shuts down the default executor, if it was created. Items
+	 * may be submitted asynchronously again, afterwards.
+	 * @return
+	 * for each chain, the last output item (if any) of the last module in 
+	 * the chain that was produced while finishing the chain
+	 */
+	public List<Object> shutdownAsync() {
+		asyncExecution.awaitPendingItems();
+		
+		List<Object> results = new ArrayList<>();
+		Module<?,?>[] modules;
+		while ((modules = asyncChains.poll()) != null) {
+			Module<?,?> lastModule = modules[modules.length-1];
+			lastModule.clearResult();
+			for (Module<?,?> module : modules) {
+				produceCollectedResult(module);
+			}
+			if (lastModule.getResult() != null) {
+				results.add(lastModule.getResult());
+			}
+			for (Module<?,?> module : modules) {
+				module.finalShutdown();
+			}
+		}
+		idleAsyncChains = new ConcurrentLinkedQueue<>();
+		
+		asyncExecution.shutdownDefaultExecutor();
+		return results;
+	}
+	
+	private static <B> void produceCollectedResult(Module<?, B> module) {
+		B result = module.getResultFromCollectedItems();
+		if (result != null) {
+			module.produce(result);
+		}
+	}
+	
+	/**
+	 * Submits all given items to be processed asynchronously.
+	 * @param items
+	 * the items to be submitted
+	 * @return
+	 * a future that completes with the results of all items in the 
+	 * order of the given items, after all items were processed
+	 * @see #submitAsync(Object)
+	 */
+	public CompletableFuture<List<Object>> submitAllAsync(Collection<?> items) {
+		final List<CompletableFuture<Object>> futures = new ArrayList<>(items.size());
+		for (Object item : items) {
+			futures.add(submitAsync(item));
+		}
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]))
+				.thenApply(v -> {
+					List<Object> results = new ArrayList<>(futures.size());
+					for (CompletableFuture<Object> future : futures) {
+						results.add(future.join());
+					}
+					return results;
+				});
+	}
+	
+	/**
+	 * @return
+	 * a new chain of module instances that matches the appended modules
+	 */
+	private Module<?,?>[] newAsyncChain() {
+		List<Module<?,?>> modules = new ArrayList<>();
+		Module<?,?> module = getStartModule();
+		while (true) {
+			Module<?,?> instance = module.getProcessor().newModuleInstance();
+			instance.setOptions(module.getOptions());
+			if (!modules.isEmpty()) {
+				modules.get(modules.size()-1).linkTo(instance);
+			}
+			modules.add(instance);
+			if (module == endModule || !module.hasLinkedModule()) {
+				break;
+			}
+			module = module.getLinkedModule();
+		}
+		return modules.toArray(new Module<?,?>[modules.size()]);
+	}
+	
 	/**
 	 * @return
 	 * the result item of the last module in the chain, if any
@@ -0,0 +1,282 @@
+/**
+ *
+ */
+package se.de.hu_berlin.informatik.utils.processors.sockets.module;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BinaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import se.de.hu_berlin.informatik.utils.optionparser.OptionCarrier;
+import se.de.hu_berlin.informatik.utils.optionparser.OptionParser;
+import se.de.hu_berlin.informatik.utils.processors.AbstractProcessor;
+import se.de.hu_berlin.informatik.utils.processors.Processor;
+
+/**
+ * Runs a chain of Processors as part of a {@link Stream} pipeline. Each
+ * thread that processes elements of the stream uses its own chain of
+ * {@link Module}s with new Processor instances that are obtained via
+ * {@link Processor#newProcessorInstance()}, such that Processors are not
+ * shared between threads. This way, bulk in-memory workloads may use the
+ * fork/join parallelism of parallel streams without handing each item
+ * over to another thread, as with a {@link se.de.hu_berlin.informatik.utils.processors.sockets.pipe.PipeLinker}.
+ *
+ * <br><br> Example:
+ *
+ * <br><br> {@code List<Object> results = new StreamLinker().append(p1, p2, p3).process(items);}
+ *
+ * <br><br> The results of {@link Processor#getResultFromCollectedItems()}
+ * are obtained from each thread's chain after all elements were processed.
+ * They are either passed on to the subsequent Processors of the same chain,
+ * similar to a Pipe getting shut down, or merged with a given reducer.
+ *
+ * @author Simon Heiden
+ *
+ * @see ModuleLinker
+ */
+public class StreamLinker implements OptionCarrier {
+
+	private final List<Processor<?,?>> processors = new ArrayList<>();
+	private OptionParser options = null;
+
+	public StreamLinker() {
+		super();
+	}
+
+	/**
+	 * @param options
+	 * an options object to distribute to the Processors in this linker
+	 */
+	public StreamLinker(OptionParser options) {
+		this();
+		this.options = options;
+	}
+
+	/**
+	 * Appends the given Processors to former appended Processors, if any.
+	 * The given Processors are only used as templates to obtain new
+	 * instances from for each thread.
+	 * @param processors
+	 * Processors to be linked together
+	 * @return
+	 * this StreamLinker
+	 */
+	public StreamLinker append(Processor<?,?>... processors) {
+		for (Processor<?,?> processor : processors) {
+			this.processors.add(processor);
+		}
+		return this;
+	}
+
+	/**
+	 * Processes all items of the given stream. Returns all items that are
+	 * produced by the last Processor, in encounter order if the given stream
+	 * is ordered. The collected results of all Processors are passed on to
+	 * the subsequent Processors after all items were processed, and the
+	 * resulting items are appended to the returned list.
+	 * @param input
+	 * a (possibly parallel) stream of input items
+	 * @return
+	 * the produced items
+	 * @param <B>
+	 * the type of the produced items
+	 */
+	public <B> List<B> process(Stream<?> input) {
+		Run run = new Run();
+		List<B> result = input
+				.flatMap(item -> run.getChain().<B>process(item).stream())
+				.collect(Collectors.toList());
+		for (Chain chain : run.chains) {
+			result.addAll(chain.<B>finish(processors.size()));
+			chain.shutdown();
+		}
+		return result;
+	}
+
+	/**
+	 * Processes all items of the given collection in parallel.
+	 * @param items
+	 * the input items
+	 * @return
+	 * the produced items, in the order of the given collection
+	 * @param <B>
+	 * the type of the produced items
+	 * @see #process(Stream)
+	 */
+	public <B> List<B> process(Collection<?> items) {
+		return process(items.parallelStream());
+	}
+
+	/**
+	 * Processes all items of the given stream and merges the collected results
+	 * of the last Processor's instances with the given reducer. Items that are
+	 * produced by the last Processor are discarded. The collected results of
+	 * the other Processors are passed on to the subsequent Processors of
+	 * the same chain before.
+	 * @param input
+	 * a (possibly parallel) stream of input items
+	 * @param reducer
+	 * an associative function to merge two collected results with
+	 * @return
+	 * the merged collected result, or null if no Processor instance
+	 * collected a result
+	 * @param <B>
+	 * the type of the collected results
+	 */
+	public <B> B processAndReduce(Stream<?> input, BinaryOperator<B> reducer) {
+		Run run = new Run();
+		input.forEach(item -> run.getChain().process(item));
+		B result = null;
+		for (Chain chain : run.chains) {
+			chain.finish(processors.size() - 1);
+			B collected = chain.getCollectedResultOfLast();
+			if (collected != null) {
+				result = result == null ? collected : reducer.apply(result, collected);
+			}
+			chain.shutdown();
+		}
+		return result;
+	}
+
+	/**
+	 * Processes all items of the given collection in parallel and merges
+	 * the collected results with the given reducer.
+	 * @param items
+	 * the input items
+	 * @param reducer
+	 * an associative function to merge two collected results with
+	 * @return
+	 * the merged collected result, or null if no Processor instance
+	 * collected a result
+	 * @param <B>
+	 * the type of the collected results
+	 * @see #processAndReduce(Stream, BinaryOperator)
+	 */
+	public <B> B processAndReduce(Collection<?> items, BinaryOperator<B> reducer) {
+		return processAndReduce(items.parallelStream(), reducer);
+	}
+
+	/**
+	 * Holds the chains of a single stream execution, one per thread.
+	 */
+	private class Run {
+
+		private final ThreadLocal<Chain> chain = ThreadLocal.withInitial(this::newChain);
+		private final Queue<Chain> chains = new ConcurrentLinkedQueue<>();
+
+		private Chain newChain() {
+			Chain newChain = new Chain();
+			chains.add(newChain);
+			return newChain;
+		}
+
+		private Chain getChain() {
+			return chain.get();
+		}
+	}
+
+	/**
+	 * A chain of modules with new Processor instances that is used by
+	 * a single thread.
+	 */
+	private class Chain {
+
+		private final List<Module<?,?>> modules;
+		private final List<Object> outputs = new ArrayList<>();
+
+		private Chain() {
+			if (processors.isEmpty()) {
+				throw new IllegalStateException("No processors appended.");
+			}
+			modules = new ArrayList<>(processors.size());
+			for (Processor<?,?> processor : processors) {
+				Module<?,?> module = processor.newModuleInstance();
+				module.setOptions(options);
+				modules.add(module);
+			}
+			for (int i = 0; i < modules.size() - 1; ++i) {
+				modules.get(i).linkTo(modules.get(i + 1));
+			}
+			//collect the items that are produced by the last module
+			modules.get(modules.size() - 1).linkTo(new AbstractProcessor<Object, Object>() {
+				@Override
+				public Object processItem(Object item) {
+					outputs.add(item);
+					return null;
+				}
+			}.asModule());
+		}
+
+		@SuppressWarnings("unchecked")
+		private <B> List<B> process(Object item) {
+			modules.get(0).submit(item);
+			return (List<B>) drainOutputs();
+		}
+
+		/**
+		 * Passes the collected results of the given number of modules on
+		 * to their respective subsequent modules.
+		 * @param numberOfModules
+		 * the number of modules, starting with the first one
+		 * @return
+		 * the items produced by the last module in the process
+		 */
+		@SuppressWarnings("unchecked")
+		private <B> List<B> finish(int numberOfModules) {
+			for (int i = 0; i < numberOfModules; ++i) {
+				produceCollectedResult(modules.get(i));
+			}
+			return (List<B>) drainOutputs();
+		}
+
+		@SuppressWarnings("unchecked")
+		private <B> B getCollectedResultOfLast() {
+			return (B) modules.get(modules.size() - 1).getResultFromCollectedItems();
+		}
+
+		private List<Object> drainOutputs() {
+			if (outputs.isEmpty()) {
+				return Collections.emptyList();
+			}
+			List<Object> result = new ArrayList<>(outputs);
+			outputs.clear();
+			return result;
+		}
+
+		private void shutdown() {
+			for (Module<?,?> module : modules) {
+				module.finalShutdown();
+			}
+		}
+	}
+
+	private static <B> void produceCollectedResult(Module<?, B> module) {
+		B result = module.getResultFromCollectedItems();
+		if (result != null) {
+			module.produce(result);
+		}
+	}
+
+	@Override
+	public OptionParser getOptions() {
+		return options;
+	}
+
+	@Override
+	public StreamLinker setOptions(OptionParser options) {
+		this.options = options;
+		return this;
+	}
+
+	@Override
+	public boolean hasOptions() {
+		return options != null;
+	}
+
+}
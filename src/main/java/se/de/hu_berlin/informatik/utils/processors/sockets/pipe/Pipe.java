@@ -3,12 +3,22 @@
  */
 package se.de.hu_berlin.informatik.utils.processors.sockets.pipe;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
 import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
 import se.de.hu_berlin.informatik.utils.processors.Processor;
 import se.de.hu_berlin.informatik.utils.processors.sockets.AbstractProcessorSocket;
 import se.de.hu_berlin.informatik.utils.processors.sockets.ProcessorSocket;
 import se.de.hu_berlin.informatik.utils.processors.sockets.module.Module;
+import se.de.hu_berlin.informatik.utils.threaded.ConfigurableThreadFactory;
 import se.de.hu_berlin.informatik.utils.threaded.disruptor.DisruptorProvider;
+import se.de.hu_berlin.informatik.utils.threaded.disruptor.DisruptorWaitStrategy;
 import se.de.hu_berlin.informatik.utils.threaded.disruptor.eventhandler.AbstractDisruptorEventHandler;
 import se.de.hu_berlin.informatik.utils.threaded.disruptor.eventhandler.DisruptorFCFSEventHandler;
 
@@ -48,6 +58,20 @@ import se.de.hu_berlin.informatik.utils.threaded.disruptor.eventhandler.Disrupto
  * linked together with a {@link PipeLinker} which provides more general and
  * easier access methods.
  * 
+ * <br>
+ * <br>
+ * A Pipe may also branch out to multiple Pipes, either passing each produced
+ * item on to every branch (broadcast) or only to a single branch, selected by
+ * a key that is computed for each item (partition). Each branch has its own
+ * buffer and thread. In reverse, multiple Pipes may be linked to a single
+ * Pipe (merge), which then gets shut down or flushed after all of its input
+ * Pipes have been shut down or flushed.
+ * 
+ * <br>
+ * <br>
+ * Optionally, a Pipe records {@link PipeMetrics}, e.g., to find the
+ * bottleneck in a chain of Pipes.
+ * 
  * @author Simon Heiden
  *
  * @param <A>
@@ -61,12 +85,27 @@ public class Pipe<A, B> extends AbstractProcessorSocket<A, B> {
 
 	private DisruptorProvider<A> disruptorProvider;
 	private int bufferSize;
+	private DisruptorWaitStrategy waitStrategy = DisruptorWaitStrategy.BLOCKING;
+	private boolean useVirtualThreads = false;
 
 	private boolean hasInput = false;
+	private boolean acceptsMultipleInputs = false;
+	private int numberOfInputs = 0;
+	private final AtomicInteger shutdownSignals = new AtomicInteger(0);
+	private final AtomicInteger flushSignals = new AtomicInteger(0);
+	
 	private Pipe<B, ?> output = null;
+	private List<Pipe<B, ?>> branches = null;
+	private Function<? super B, ?> partitionKey = null;
 
 	private final boolean singleWriter;
 	private ClassLoader classLoader;
+	
+	private volatile PipeMetrics metrics = null;
+	// the thread that currently processes an item, if metrics are enabled
+	private Thread processingThread = null;
+	// the time spent submitting produced items while processing the current item
+	private long submitNanosOfItem = 0;
 
 	/**
 	 * Creates a pipe object with a buffer size of 8.
@@ -130,6 +169,10 @@ public class Pipe<A, B> extends AbstractProcessorSocket<A, B> {
 		this.bufferSize = bufferSize;
 		this.classLoader = cl;
 		disruptorProvider = new DisruptorProvider<>(bufferSize, cl);
+		disruptorProvider.setWaitStrategy(waitStrategy);
+		if (useVirtualThreads) {
+			disruptorProvider.setThreadFactory(new ConfigurableThreadFactory(cl, true));
+		}
 		// event handler used for transmitting items from one pipe to another
 		disruptorProvider.connectHandlers(new DisruptorFCFSEventHandler<A>() {
 
@@ -139,18 +182,104 @@ public class Pipe<A, B> extends AbstractProcessorSocket<A, B> {
 
 			@Override
 			public void processEvent(A item) {
-				Pipe.this.initAndConsume(item);
+				PipeMetrics metrics = Pipe.this.metrics;
+				if (metrics == null) {
+					Pipe.this.initAndConsume(item);
+				} else {
+					processingThread = Thread.currentThread();
+					submitNanosOfItem = 0;
+					long start = System.nanoTime();
+					try {
+						Pipe.this.initAndConsume(item);
+					} finally {
+						// the time spent submitting produced items is recorded separately
+						metrics.recordProcessed(System.nanoTime() - start - submitNanosOfItem);
+						processingThread = null;
+					}
+				}
 			}
 		});
 	}
 
 	@Override
 	public void produce(B item) {
+		PipeMetrics metrics = this.metrics;
+		if (metrics == null) {
+			passOn(item);
+		} else {
+			long start = System.nanoTime();
+			passOn(item);
+			recordProduced(metrics, item == null ? 0 : 1, System.nanoTime() - start);
+		}
+	}
+	
+	private void recordProduced(PipeMetrics metrics, long count, long submitNanos) {
+		metrics.recordProduced(count, submitNanos);
+		if (Thread.currentThread() == processingThread) {
+			submitNanosOfItem += submitNanos;
+		}
+	}
+	
+	private void passOn(B item) {
 		if (output != null) {
 			output.submit(item);
+		} else if (branches != null) {
+			if (partitionKey == null) {
+				// broadcast the item to all branches
+				for (Pipe<B, ?> branch : branches) {
+					branch.submit(item);
+				}
+			} else if (item != null) {
+				getBranchForItem(item).submit(item);
+			}
 		}
 	}
 
+	@Override
+	public void produceAll(Collection<? extends B> items) {
+		PipeMetrics metrics = this.metrics;
+		if (metrics == null) {
+			passOnAll(items);
+		} else {
+			long start = System.nanoTime();
+			passOnAll(items);
+			recordProduced(metrics, items.size(), System.nanoTime() - start);
+		}
+	}
+	
+	private void passOnAll(Collection<? extends B> items) {
+		if (output != null) {
+			output.submitAll(items);
+		} else if (branches != null) {
+			if (partitionKey == null) {
+				// broadcast the items to all branches
+				for (Pipe<B, ?> branch : branches) {
+					branch.submitAll(items);
+				}
+			} else {
+				for (B item : items) {
+					passOn(item);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Selects the branch that the given item belongs to, based on 
+	 * the hash code of the item's partition key.
+	 * @param item
+	 * the item
+	 * @return
+	 * the branch to submit the item to
+	 */
+	private Pipe<B, ?> getBranchForItem(B item) {
+		Object key = partitionKey.apply(item);
+		int hash = key == null ? 0 : key.hashCode();
+		// spread the higher bits to avoid clustering of similar hash codes
+		hash ^= (hash >>> 16);
+		return branches.get(Math.floorMod(hash, branches.size()));
+	}
+
 	// /**
 	// * Submits an object of type {@code B} to a connected output pipe.
 	// * If the pipe is not linked to any other pipe, then the item is
@@ -170,8 +299,14 @@ public class Pipe<A, B> extends AbstractProcessorSocket<A, B> {
 	 * whether the input pipe writes to this pipe with only a single thread
 	 */
 	protected void setInput(boolean singleWriter) {
-		setProducerType(singleWriter);
+		if (acceptsMultipleInputs) {
+			// multiple pipes write to this pipe
+			setProducerType(false);
+		} else {
+			setProducerType(singleWriter);
+		}
 		hasInput = true;
+		++numberOfInputs;
 	}
 
 	/**
@@ -183,21 +318,201 @@ public class Pipe<A, B> extends AbstractProcessorSocket<A, B> {
 		disruptorProvider.setProducerType(singleWriter);
 	}
 
+	/**
+	 * Sets the strategy that the thread of this pipe uses to wait for
+	 * new input items.
+	 * @param waitStrategy
+	 * the wait strategy to use
+	 * @return
+	 * this pipe
+	 */
+	public Pipe<A, B> setWaitStrategy(DisruptorWaitStrategy waitStrategy) {
+		disruptorProvider.setWaitStrategy(waitStrategy);
+		this.waitStrategy = waitStrategy;
+		return this;
+	}
+
+	/**
+	 * @return
+	 * the strategy that the thread of this pipe uses to wait for new input items
+	 */
+	public DisruptorWaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+
+	/**
+	 * Sets whether the thread of this pipe shall be a virtual thread. 
+	 * This is recommended for pipes that mostly block on I/O, like reading or
+	 * writing files or waiting for external processes, and allows to use many 
+	 * of these pipes without occupying an operating system thread for each one.
+	 * Virtual threads require Java 21 or newer. Otherwise, a platform
+	 * thread is used.
+	 * @param useVirtualThreads
+	 * whether to use a virtual thread
+	 * @return
+	 * this pipe
+	 * @see ConfigurableThreadFactory
+	 */
+	public Pipe<A, B> useVirtualThreads(boolean useVirtualThreads) {
+		if (this.useVirtualThreads != useVirtualThreads) {
+			this.useVirtualThreads = useVirtualThreads;
+			disruptorProvider.setThreadFactory(new ConfigurableThreadFactory(classLoader, useVirtualThreads));
+		}
+		return this;
+	}
+
+	/**
+	 * Sets the minimal size of the buffer in front of this pipe. If the pipe
+	 * is currently running, the new size takes effect after the next shutdown.
+	 * @param bufferSize
+	 * the minimal buffer size
+	 * @return
+	 * this pipe
+	 */
+	public Pipe<A, B> setBufferSize(int bufferSize) {
+		disruptorProvider.setMinimalBufferSize(bufferSize);
+		this.bufferSize = bufferSize;
+		return this;
+	}
+	
+	/**
+	 * @return
+	 * the minimal size of the buffer in front of this pipe
+	 */
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
 	/**
 	 * @return whether an input pipe exists
 	 */
 	private boolean hasInput() {
 		return hasInput;
 	}
+	
+	/**
+	 * Allows multiple pipes to be linked to this pipe. The pipe then only
+	 * gets shut down (or flushed) after all of its input pipes have been 
+	 * shut down (or flushed).
+	 * @return
+	 * this pipe
+	 */
+	protected Pipe<A, B> acceptMultipleInputs() {
+		this.acceptsMultipleInputs = true;
+		if (hasInput) {
+			setProducerType(false);
+		}
+		return this;
+	}
+	
+	/**
+	 * @return
+	 * whether this pipe is already linked to an output pipe or to branches
+	 */
+	private boolean hasOutput() {
+		return output != null || branches != null;
+	}
 
 	/**
 	 * @param pipe
 	 * the output pipe
 	 */
 	private void setOutput(Pipe<B, ?> pipe) {
+		if (hasOutput()) {
+			throw new IllegalStateException("Pipe is already linked to an output.");
+		}
 		output = pipe;
 	}
+	
+	/**
+	 * Links the given pipes to the output of this pipe. Each produced item
+	 * is either submitted to all branches (if no partition key function is
+	 * given) or to exactly one branch, selected by the hash code of the 
+	 * item's key. Items with equal keys are always submitted to the same branch.
+	 * 
+	 * <p> Broadcast items are not copied, such that all branches receive the
+	 * same object. Branches should therefore not modify received items.
+	 * @param partitionKey
+	 * a function that computes the partition key for an item, or null to
+	 * broadcast the items to all branches
+	 * @param pipes
+	 * the pipes to branch out to
+	 * @return
+	 * this pipe
+	 * @throws IllegalArgumentException
+	 * if no pipes are given or the input types of the given pipes do not
+	 * match the output type of this pipe
+	 * @throws IllegalStateException
+	 * if the pipes can't be linked due to other reasons
+	 */
+	@SuppressWarnings("unchecked")
+	public Pipe<A, B> branchTo(Function<? super B, ?> partitionKey, List<? extends Pipe<?, ?>> pipes)
+			throws IllegalArgumentException, IllegalStateException {
+		if (pipes == null || pipes.isEmpty()) {
+			throw new IllegalArgumentException("No pipes to branch out to given.");
+		}
+		if (hasOutput()) {
+			throw new IllegalStateException("Pipe is already linked to an output.");
+		}
+		List<Pipe<B, ?>> branches = new ArrayList<>(pipes.size());
+		for (Pipe<?, ?> pipe : pipes) {
+			if (pipe.hasInput()) {
+				throw new IllegalStateException("No linking to already used pipes allowed!");
+			}
+			try {
+				branches.add((Pipe<B, ?>) pipe);
+			} catch (ClassCastException e) {
+				throw new IllegalArgumentException("Type mismatch while linking to other pipe.", e);
+			}
+		}
+		for (Pipe<B, ?> branch : branches) {
+			branch.setInput(singleWriter);
+		}
+		this.partitionKey = partitionKey;
+		this.branches = branches;
+		return this;
+	}
 
+	/**
+	 * Enables recording metrics for this pipe. Does nothing if 
+	 * metrics are already enabled. As long as metrics are disabled,
+	 * the pipe does not measure any times.
+	 * @param name
+	 * a name that identifies this pipe
+	 * @return
+	 * this pipe
+	 * @see PipeMetrics
+	 */
+	public Pipe<A, B> enableMetrics(String name) {
+		if (metrics == null) {
+			metrics = new PipeMetrics(name, this);
+		}
+		return this;
+	}
+	
+	/**
+	 * Disables recording metrics for this pipe and unregisters
+	 * the metrics' MBean, if registered.
+	 * @return
+	 * this pipe
+	 */
+	public Pipe<A, B> disableMetrics() {
+		PipeMetrics metrics = this.metrics;
+		if (metrics != null) {
+			metrics.unregisterMBean();
+			this.metrics = null;
+		}
+		return this;
+	}
+	
+	/**
+	 * @return
+	 * the metrics of this pipe, or null if metrics are disabled
+	 */
+	public PipeMetrics getMetrics() {
+		return metrics;
+	}
+	
 	protected DisruptorProvider<A> getDisruptorProvider() {
 		return disruptorProvider;
 	}
@@ -232,7 +547,7 @@ public class Pipe<A, B> extends AbstractProcessorSocket<A, B> {
 	@SuppressWarnings("unchecked")
 	private <C, D> Pipe<C, D> linkPipeTo(Pipe<C, D> pipe, boolean singleWriter)
 			throws IllegalArgumentException, IllegalStateException {
-		if (!pipe.hasInput()) {
+		if (!pipe.hasInput() || pipe.acceptsMultipleInputs) {
 			// output pipe has no input yet
 			try {
 				setOutput((Pipe<B, ?>) pipe);
@@ -251,6 +566,10 @@ public class Pipe<A, B> extends AbstractProcessorSocket<A, B> {
 	 */
 	public void shutdown() {
 		// Log.out(this, "Shutting down..., %s", Thread.currentThread());
+		if (!isLastSignal(shutdownSignals)) {
+			// wait for the remaining input pipes to shut down
+			return;
+		}
 		// shut down the disruptor
 		disruptorProvider.shutdown();
 
@@ -266,6 +585,61 @@ public class Pipe<A, B> extends AbstractProcessorSocket<A, B> {
 		// initiate shut down of the pipe linked to this pipe's output (if any)
 		if (output != null) {
 			output.shutdown();
+		} else if (branches != null) {
+			for (Pipe<B, ?> branch : branches) {
+				branch.shutdown();
+			}
+		}
+	}
+	
+	/**
+	 * Registers a signal from an input pipe and checks whether all input
+	 * pipes have sent the signal. Resets the counter in that case.
+	 * @param signals
+	 * the counter for the signals
+	 * @return
+	 * true if the signal is the last one to wait for
+	 */
+	private boolean isLastSignal(AtomicInteger signals) {
+		if (numberOfInputs <= 1) {
+			return true;
+		}
+		if (signals.incrementAndGet() < numberOfInputs) {
+			return false;
+		}
+		signals.set(0);
+		return true;
+	}
+
+	/**
+	 * Waits until all items submitted so far have been processed by this pipe
+	 * and passes the result of {@link Processor#getResultFromCollectedItems()} 
+	 * (if any) on to the linked output pipe. Then flushes the linked output
+	 * pipe or branches (if any). In contrast to {@link #shutdown()}, all threads are kept
+	 * alive, such that new items may be submitted without restarting the pipes.
+	 */
+	public void flush() {
+		if (!isLastSignal(flushSignals)) {
+			// wait for the remaining input pipes to be flushed
+			return;
+		}
+		// wait for the disruptor to process all pending items
+		disruptorProvider.waitForPendingEvents();
+
+		// check whether there are collected items to submit
+		B result;
+		if ((result = getProcessor().getResultFromCollectedItems()) != null) {
+			// submit the collected result
+			produce(result);
+		}
+
+		// flush the pipe linked to this pipe's output (if any)
+		if (output != null) {
+			output.flush();
+		} else if (branches != null) {
+			for (Pipe<B, ?> branch : branches) {
+				branch.flush();
+			}
 		}
 	}
 
@@ -280,6 +654,42 @@ public class Pipe<A, B> extends AbstractProcessorSocket<A, B> {
 		}
 	}
 
+	/**
+	 * Tries to submit an item to this pipe without waiting for free space 
+	 * in the buffer.
+	 * @param item
+	 * the item to be submitted
+	 * @return
+	 * true if the item was submitted or equals {@code null}, 
+	 * false if the buffer is full
+	 */
+	public boolean trySubmit(A item) {
+		if (item != null) {
+			return disruptorProvider.trySubmit(item);
+		}
+		return true;
+	}
+
+	/**
+	 * Submits an item to this pipe. Waits for at most the given amount 
+	 * of time if the buffer is full.
+	 * @param item
+	 * the item to be submitted
+	 * @param timeout
+	 * the maximal time to wait
+	 * @param unit
+	 * the time unit of the timeout
+	 * @return
+	 * true if the item was submitted or equals {@code null}, 
+	 * false if the timeout elapsed
+	 */
+	public boolean submit(A item, long timeout, TimeUnit unit) {
+		if (item != null) {
+			return disruptorProvider.submit(item, timeout, unit);
+		}
+		return true;
+	}
+
 	/**
 	 * Submits an item of some kind to this pipe. Will abort the application if
 	 * the type does not match the pipe's input type. More specificially, it
@@ -296,6 +706,92 @@ public class Pipe<A, B> extends AbstractProcessorSocket<A, B> {
 		}
 	}
 
+	/**
+	 * Tries to submit an item of some kind to this pipe without waiting for
+	 * free space in the buffer. Will abort the application if the type does 
+	 * not match the pipe's input type.
+	 * @param item
+	 * the item to be submitted
+	 * @return
+	 * true if the item was submitted or equals {@code null}, 
+	 * false if the buffer is full
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean trySubmitObject(Object item) {
+		try {
+			return trySubmit((A) item);
+		} catch (ClassCastException e) {
+			Log.abort(this, e, "Type mismatch while submitting item.");
+			return false;
+		}
+	}
+
+	/**
+	 * Submits an item of some kind to this pipe. Waits for at most the given 
+	 * amount of time if the buffer is full. Will abort the application if the 
+	 * type does not match the pipe's input type.
+	 * @param item
+	 * the item to be submitted
+	 * @param timeout
+	 * the maximal time to wait
+	 * @param unit
+	 * the time unit of the timeout
+	 * @return
+	 * true if the item was submitted or equals {@code null}, 
+	 * false if the timeout elapsed
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean submitObject(Object item, long timeout, TimeUnit unit) {
+		try {
+			return submit((A) item, timeout, unit);
+		} catch (ClassCastException e) {
+			Log.abort(this, e, "Type mismatch while submitting item.");
+			return false;
+		}
+	}
+
+	/**
+	 * Submits all items of the given collection to this pipe. The items
+	 * are published in batches. Items that equal {@code null} are ignored.
+	 * @param items
+	 * the items to be submitted
+	 */
+	public void submitAll(Collection<? extends A> items) {
+		disruptorProvider.submitAll(items);
+	}
+
+	/**
+	 * Submits all items of the given array to this pipe. The items
+	 * are published in batches. Items that equal {@code null} are ignored.
+	 * @param items
+	 * the items to be submitted
+	 */
+	public void submitAll(A[] items) {
+		disruptorProvider.submitAll(items);
+	}
+
+	/**
+	 * Submits all remaining items of the given iterator to this pipe. The items
+	 * are published in batches. Items that equal {@code null} are ignored.
+	 * @param items
+	 * an iterator over the items to be submitted
+	 */
+	public void submitAll(Iterator<? extends A> items) {
+		disruptorProvider.submitAll(items);
+	}
+
+	/**
+	 * Submits all remaining items of some kind of the given iterator to this
+	 * pipe. The items are published in batches. Items that equal {@code null}
+	 * are ignored. The items are assumed to match the pipe's input type.
+	 * @param items
+	 * an iterator over the items to be submitted
+	 */
+	@SuppressWarnings("unchecked")
+	public void submitAllObjects(Iterator<?> items) {
+		submitAll((Iterator<? extends A>) items);
+	}
+
 	@Override
 	public Module<A, B> asModule() throws UnsupportedOperationException {
 		throw new UnsupportedOperationException("not supported");
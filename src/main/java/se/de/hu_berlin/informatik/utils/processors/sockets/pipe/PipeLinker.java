@@ -3,10 +3,22 @@
  */
 package se.de.hu_berlin.informatik.utils.processors.sockets.pipe;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
 import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
 import se.de.hu_berlin.informatik.utils.optionparser.OptionCarrier;
 import se.de.hu_berlin.informatik.utils.optionparser.OptionParser;
+import se.de.hu_berlin.informatik.utils.processors.Processor;
+import se.de.hu_berlin.informatik.utils.processors.basics.FusedProcessor;
 import se.de.hu_berlin.informatik.utils.processors.sockets.ProcessorSocketGenerator;
+import se.de.hu_berlin.informatik.utils.threaded.disruptor.BufferSizingPolicy;
+import se.de.hu_berlin.informatik.utils.threaded.disruptor.DisruptorWaitStrategy;
 import se.de.hu_berlin.informatik.utils.tracking.Trackable;
 import se.de.hu_berlin.informatik.utils.tracking.TrackingStrategy;
 import se.de.hu_berlin.informatik.utils.tracking.TrackerDummy;
@@ -15,6 +27,39 @@ import se.de.hu_berlin.informatik.utils.tracking.TrackerDummy;
  * Provides more general and easy access methods for the linking of Pipes
  * and for the submission of items to a chain of Pipes.
  * 
+ * <p> Besides linear chains, branching topologies are supported. The end of
+ * the chain may branch out to multiple other pipe linkers, either with
+ * {@link #appendBroadcast(PipeLinker...)} or with 
+ * {@link #appendPartition(Function, PipeLinker...)}. Pipes that are appended
+ * after branching out merge the outputs of all branches:
+ * 
+ * <br>
+ * <br>
+ * {@code new PipeLinker().append(reader).appendBroadcast(branch1, branch2).append(writer);}
+ * 
+ * <br>
+ * <br>
+ * Each branch has its own buffers and threads. The branches are shut down and
+ * flushed together with the pipe linker they are appended to and must not
+ * be shut down separately.
+ * 
+ * <p> Per default, consecutive {@link Processor#isCheap() cheap} Processors
+ * that are appended together are fused into a single pipe, such that they
+ * run inside of the same thread. This can be disabled with
+ * {@link #setFuseCheapStages(boolean)}.
+ * 
+ * <p> The buffer in front of each pipe records how often submitting threads
+ * had to wait for free slots and how full it got. Based on these statistics,
+ * a {@link BufferSizingPolicy} suggests buffer sizes for each stage with 
+ * {@link #getSuggestedBufferSizes()}. With adaptive buffer sizing enabled,
+ * the suggested sizes are applied automatically after each shutdown, such
+ * that they are used for the next run.
+ * 
+ * <p> To find bottlenecks, metrics may be recorded for each pipe with
+ * {@link #enableMetrics()}. They are available as snapshots via
+ * {@link #getMetricsSnapshots()} and may be monitored via JMX after
+ * calling {@link #registerMBeans(String)}.
+ * 
  * @author Simon Heiden
  *
  */
@@ -67,7 +112,29 @@ public class PipeLinker implements Trackable, OptionCarrier {
 	private boolean singleWriter = true;
 	private Pipe<?,?> startPipe = null;
 	private Pipe<?,?> endPipe = null;
+	private List<Pipe<?,?>> branchEndPipes = null;
 	private OptionParser options;
+	private boolean fuseCheapStages = true;
+	private final List<Pipe<?,?>> pipes = new ArrayList<>();
+	private final List<PipeLinker> branchLinkers = new ArrayList<>();
+	private BufferSizingPolicy bufferSizingPolicy = new BufferSizingPolicy();
+	private boolean adaptiveBufferSizing = false;
+	
+	/**
+	 * Sets whether consecutive {@link Processor#isCheap() cheap} Processors
+	 * that are appended together in a single call shall be fused into a single 
+	 * pipe. Only affects Processors that are appended afterwards.
+	 * Enabled per default.
+	 * @param fuseCheapStages
+	 * whether to fuse cheap stages
+	 * @return
+	 * this PipeLinker
+	 * @see FusedProcessor
+	 */
+	public PipeLinker setFuseCheapStages(boolean fuseCheapStages) {
+		this.fuseCheapStages = fuseCheapStages;
+		return this;
+	}
 
 	/**
 	 * Links the given Pipes (provided by socket generators, possibly) 
@@ -94,9 +161,48 @@ public class PipeLinker implements Trackable, OptionCarrier {
 	 * this PipeLinker
 	 */
 	public PipeLinker append(int bufferSize, ProcessorSocketGenerator<?,?>... generators) {	
+		return append(bufferSize, null, generators);
+	}
+	
+	/**
+	 * Links the given Pipes (provided by socket generators, possibly) 
+	 * together and appends them to former appended Pipes, if any. 
+	 * If the Pipes don't match, then execution stops and the application aborts.
+	 * @param waitStrategy
+	 * the strategy that the threads of the linked pipes use to wait for new items
+	 * @param generators
+	 * Pipes to be linked together (given as generators, possibly)
+	 * @return
+	 * this PipeLinker
+	 */
+	public PipeLinker append(DisruptorWaitStrategy waitStrategy, ProcessorSocketGenerator<?,?>... generators) {	
+		return append(8, waitStrategy, generators);
+	}
+	
+	/**
+	 * Links the given Pipes (provided by socket generators, possibly) 
+	 * together and appends them to former appended Pipes, if any. 
+	 * If the Pipes don't match, then execution stops and the application aborts.
+	 * @param bufferSize
+	 * size of buffers in front of linked pipes
+	 * @param waitStrategy
+	 * the strategy that the threads of the linked pipes use to wait for new items;
+	 * if null, the wait strategies of the pipes are left unchanged
+	 * @param generators
+	 * Pipes to be linked together (given as generators, possibly)
+	 * @return
+	 * this PipeLinker
+	 */
+	public PipeLinker append(int bufferSize, DisruptorWaitStrategy waitStrategy, ProcessorSocketGenerator<?,?>... generators) {	
+		if (fuseCheapStages) {
+			generators = fuseCheapStages(generators);
+		}
 		if (generators.length != 0) {
 			try {
 				generators[0].asPipe(bufferSize).setOptions(options);
+				if (waitStrategy != null) {
+					generators[0].asPipe(bufferSize).setWaitStrategy(waitStrategy);
+				}
 				if (startPipe == null) {
 					startPipe = generators[0].asPipe(bufferSize);
 					//set whether input items are submitted with a single thread
@@ -104,16 +210,24 @@ public class PipeLinker implements Trackable, OptionCarrier {
 					if (isTracking()) {
 						startPipe.enableTracking(getTracker());
 					}
-				} else {
+				} else if (endPipe != null) {
 					endPipe.linkTo(generators[0].asPipe(bufferSize));
+				} else {
+					mergeBranchesInto(generators[0].asPipe(bufferSize));
 				}
 
 				for (int i = 0; i < generators.length-1; ++i) {
 					generators[i].asPipe(bufferSize).linkTo(generators[i+1].asPipe(bufferSize));
 					generators[i+1].asPipe(bufferSize).setOptions(options);
+					if (waitStrategy != null) {
+						generators[i+1].asPipe(bufferSize).setWaitStrategy(waitStrategy);
+					}
 				}
 
 				endPipe = generators[generators.length-1].asPipe(bufferSize);
+				for (ProcessorSocketGenerator<?,?> generator : generators) {
+					pipes.add(generator.asPipe(bufferSize));
+				}
 			} catch(UnsupportedOperationException e) {
 				Log.abort(this, e, "Unable to get pipe from a given transmitter.");
 			}
@@ -121,6 +235,132 @@ public class PipeLinker implements Trackable, OptionCarrier {
 		return this;
 	}
 	
+	/**
+	 * Replaces each sequence of at least two consecutive cheap Processors
+	 * with a single {@link FusedProcessor}.
+	 * @param generators
+	 * the socket generators to check
+	 * @return
+	 * the resulting socket generators
+	 */
+	private ProcessorSocketGenerator<?,?>[] fuseCheapStages(ProcessorSocketGenerator<?,?>[] generators) {
+		List<ProcessorSocketGenerator<?,?>> result = new ArrayList<>(generators.length);
+		List<Processor<?,?>> cheapProcessors = new ArrayList<>();
+		for (ProcessorSocketGenerator<?,?> generator : generators) {
+			if (generator instanceof Processor && ((Processor<?,?>) generator).isCheap()) {
+				cheapProcessors.add((Processor<?,?>) generator);
+			} else {
+				addFusedProcessors(result, cheapProcessors);
+				result.add(generator);
+			}
+		}
+		addFusedProcessors(result, cheapProcessors);
+		if (result.size() == generators.length) {
+			return generators;
+		}
+		return result.toArray(new ProcessorSocketGenerator<?,?>[result.size()]);
+	}
+
+	private void addFusedProcessors(List<ProcessorSocketGenerator<?,?>> result, List<Processor<?,?>> cheapProcessors) {
+		if (cheapProcessors.size() == 1) {
+			result.add(cheapProcessors.get(0));
+		} else if (cheapProcessors.size() > 1) {
+			result.add(new FusedProcessor(cheapProcessors.toArray(new Processor<?,?>[cheapProcessors.size()]))
+					.setOptions(options));
+		}
+		cheapProcessors.clear();
+	}
+	
+	/**
+	 * Links the end of each branch to the given pipe.
+	 * @param pipe
+	 * the pipe to merge the branches into
+	 */
+	private void mergeBranchesInto(Pipe<?,?> pipe) {
+		pipe.acceptMultipleInputs();
+		for (Pipe<?,?> branchEndPipe : branchEndPipes) {
+			branchEndPipe.linkTo(pipe);
+		}
+		branchEndPipes = null;
+	}
+	
+	/**
+	 * Branches out to the given pipe linkers. Every item that leaves the
+	 * current end of the pipe chain is submitted to each of the branches.
+	 * Pipes that get appended afterwards merge the outputs of all branches.
+	 * The branches receive the same objects, such that they should not 
+	 * modify the received items.
+	 * @param branches
+	 * pipe linkers that contain the pipes of each branch
+	 * @return
+	 * this PipeLinker
+	 */
+	public PipeLinker appendBroadcast(PipeLinker... branches) {
+		return appendBranches(null, branches);
+	}
+	
+	/**
+	 * Branches out to the given pipe linkers. Every item that leaves the
+	 * current end of the pipe chain is submitted to exactly one of the branches,
+	 * depending on the hash code of the item's key. Items with equal keys 
+	 * are always processed by the same branch.
+	 * Pipes that get appended afterwards merge the outputs of all branches.
+	 * @param partitionKey
+	 * a function that computes the key of an item
+	 * @param branches
+	 * pipe linkers that contain the pipes of each branch
+	 * @return
+	 * this PipeLinker
+	 */
+	public PipeLinker appendPartition(Function<Object, ?> partitionKey, PipeLinker... branches) {
+		if (partitionKey == null) {
+			Log.abort(this, "No partition key function given (null).");
+		}
+		return appendBranches(partitionKey, branches);
+	}
+	
+	private PipeLinker appendBranches(Function<Object, ?> partitionKey, PipeLinker[] branches) {
+		if (branches.length == 0) {
+			Log.abort(this, "No branches given.");
+		}
+		if (endPipe == null) {
+			Log.abort(this, "No pipe to branch out from. Append a pipe first.");
+		}
+		List<Pipe<?,?>> branchStartPipes = new ArrayList<>(branches.length);
+		List<Pipe<?,?>> endPipes = new ArrayList<>(branches.length);
+		for (PipeLinker branch : branches) {
+			branchStartPipes.add(branch.getStartPipe());
+			endPipes.addAll(branch.getEndPipes());
+		}
+		try {
+			endPipe.branchTo(partitionKey, branchStartPipes);
+		} catch (IllegalArgumentException | IllegalStateException e) {
+			Log.abort(this, e, "Unable to branch out to the given pipe linkers.");
+		}
+		branchLinkers.addAll(Arrays.asList(branches));
+		endPipe = null;
+		branchEndPipes = endPipes;
+		return this;
+	}
+	
+	/**
+	 * @return
+	 * the pipes at the end of the chain, i.e., either the single end
+	 * pipe or the end pipes of all unmerged branches
+	 */
+	private List<Pipe<?,?>> getEndPipes() {
+		if (endPipe != null) {
+			List<Pipe<?,?>> endPipes = new ArrayList<>(1);
+			endPipes.add(endPipe);
+			return endPipes;
+		} else if (branchEndPipes != null) {
+			return branchEndPipes;
+		} else {
+			Log.abort(this, "No end pipe available.");
+			return null;
+		}
+	}
+	
 	/**
 	 * Retrieves the start pipe or aborts the application if none set.
 	 * @return
@@ -142,12 +382,81 @@ public class PipeLinker implements Trackable, OptionCarrier {
 	 * this pipe linker
 	 */
 	public PipeLinker submit(Object... items) {
-		for (int i = 0; i < items.length; ++i) {
-			getStartPipe().submitObject(items[i]);
+		if (items.length == 1) {
+			getStartPipe().submitObject(items[0]);
+		} else {
+			getStartPipe().submitAllObjects(Arrays.asList(items).iterator());
 		}
 		return this;
 	}
 	
+	/**
+	 * Tries to submit a single item to the underlying chain of pipes 
+	 * without waiting for free space in the buffer of the first pipe.
+	 * @param item
+	 * the item to be submitted
+	 * @return
+	 * true if the item was submitted, false if the buffer is full
+	 */
+	public boolean trySubmit(Object item) {
+		return getStartPipe().trySubmitObject(item);
+	}
+	
+	/**
+	 * Submits a single item to the underlying chain of pipes. Waits for
+	 * at most the given amount of time if the buffer of the first pipe is full.
+	 * @param item
+	 * the item to be submitted
+	 * @param timeout
+	 * the maximal time to wait
+	 * @param unit
+	 * the time unit of the timeout
+	 * @return
+	 * true if the item was submitted, false if the timeout elapsed
+	 */
+	public boolean submit(Object item, long timeout, TimeUnit unit) {
+		return getStartPipe().submitObject(item, timeout, unit);
+	}
+	
+	/**
+	 * Submits all items of the given collection to the underlying chain
+	 * of pipes. The items are published in batches.
+	 * @param items
+	 * items to be submitted
+	 * @return
+	 * this pipe linker
+	 */
+	public PipeLinker submitAll(Collection<?> items) {
+		getStartPipe().submitAllObjects(items.iterator());
+		return this;
+	}
+	
+	/**
+	 * Submits all items of the given array to the underlying chain
+	 * of pipes. The items are published in batches.
+	 * @param items
+	 * items to be submitted
+	 * @return
+	 * this pipe linker
+	 */
+	public PipeLinker submitAll(Object[] items) {
+		getStartPipe().submitAllObjects(Arrays.asList(items).iterator());
+		return this;
+	}
+	
+	/**
+	 * Submits all remaining items of the given iterator to the underlying 
+	 * chain of pipes. The items are published in batches.
+	 * @param items
+	 * an iterator over the items to be submitted
+	 * @return
+	 * this pipe linker
+	 */
+	public PipeLinker submitAll(Iterator<?> items) {
+		getStartPipe().submitAllObjects(items);
+		return this;
+	}
+	
 	/**
 	 * Shuts down the pipe chain. Has to be called to complete execution.
 	 * Otherwise, the application won't stop. Will return when the pipe
@@ -155,6 +464,196 @@ public class PipeLinker implements Trackable, OptionCarrier {
 	 */
 	public void shutdown() {
 		getStartPipe().shutdown();
+		if (adaptiveBufferSizing) {
+			applySuggestedBufferSizes();
+		}
+	}
+	
+	/**
+	 * Sets the policy that suggests buffer sizes for the pipes.
+	 * @param bufferSizingPolicy
+	 * the policy to use
+	 * @return
+	 * this PipeLinker
+	 */
+	public PipeLinker setBufferSizingPolicy(BufferSizingPolicy bufferSizingPolicy) {
+		if (bufferSizingPolicy == null) {
+			throw new IllegalArgumentException("No buffer sizing policy given (null).");
+		}
+		this.bufferSizingPolicy = bufferSizingPolicy;
+		return this;
+	}
+	
+	/**
+	 * Sets whether the suggested buffer sizes shall be applied to the 
+	 * pipes (including the pipes of appended branches) after each 
+	 * shutdown, such that they are used when the pipes get restarted.
+	 * Disabled per default.
+	 * @param adaptiveBufferSizing
+	 * whether to adapt the buffer sizes between runs
+	 * @return
+	 * this PipeLinker
+	 */
+	public PipeLinker setAdaptiveBufferSizing(boolean adaptiveBufferSizing) {
+		this.adaptiveBufferSizing = adaptiveBufferSizing;
+		return this;
+	}
+	
+	/**
+	 * Suggests buffer sizes for the appended pipes, based on the statistics
+	 * that were recorded since the last application of suggested sizes.
+	 * Does not include the pipes of appended branches.
+	 * @return
+	 * the suggested buffer sizes, in the order the pipes were appended
+	 */
+	public int[] getSuggestedBufferSizes() {
+		int[] sizes = new int[pipes.size()];
+		for (int i = 0; i < sizes.length; ++i) {
+			sizes[i] = bufferSizingPolicy.suggestBufferSize(pipes.get(i).getDisruptorProvider());
+		}
+		return sizes;
+	}
+	
+	/**
+	 * @return
+	 * the minimal buffer sizes of the appended pipes, in the order 
+	 * the pipes were appended
+	 */
+	public int[] getBufferSizes() {
+		int[] sizes = new int[pipes.size()];
+		for (int i = 0; i < sizes.length; ++i) {
+			sizes[i] = pipes.get(i).getBufferSize();
+		}
+		return sizes;
+	}
+	
+	/**
+	 * Applies the suggested buffer sizes to the appended pipes and to
+	 * the pipes of appended branches. Resets the recorded statistics.
+	 * Sizes of running pipes take effect after the next shutdown.
+	 * @return
+	 * this PipeLinker
+	 */
+	public PipeLinker applySuggestedBufferSizes() {
+		int[] sizes = getSuggestedBufferSizes();
+		for (int i = 0; i < sizes.length; ++i) {
+			pipes.get(i).setBufferSize(sizes[i]);
+			pipes.get(i).getDisruptorProvider().resetStatistics();
+		}
+		for (PipeLinker branch : branchLinkers) {
+			branch.setBufferSizingPolicy(bufferSizingPolicy).applySuggestedBufferSizes();
+		}
+		return this;
+	}
+	
+	/**
+	 * Enables recording metrics for the appended pipes and for the pipes
+	 * of appended branches. Each pipe is named after its position and its
+	 * Processor's class, e.g. {@code 0-Printer} or {@code 2.1-Printer} for 
+	 * the second pipe of the third branch.
+	 * @return
+	 * this PipeLinker
+	 * @see PipeMetrics
+	 */
+	public PipeLinker enableMetrics() {
+		return enableMetrics("");
+	}
+	
+	private PipeLinker enableMetrics(String prefix) {
+		for (int i = 0; i < pipes.size(); ++i) {
+			Pipe<?,?> pipe = pipes.get(i);
+			String name = pipe.getProcessor().getClass().getSimpleName();
+			pipe.enableMetrics(prefix + i + "-" + (name.isEmpty() ? "Processor" : name));
+		}
+		for (int i = 0; i < branchLinkers.size(); ++i) {
+			branchLinkers.get(i).enableMetrics(prefix + i + ".");
+		}
+		return this;
+	}
+	
+	/**
+	 * Disables recording metrics for all pipes and unregisters their MBeans.
+	 * @return
+	 * this PipeLinker
+	 */
+	public PipeLinker disableMetrics() {
+		for (Pipe<?,?> pipe : pipes) {
+			pipe.disableMetrics();
+		}
+		for (PipeLinker branch : branchLinkers) {
+			branch.disableMetrics();
+		}
+		return this;
+	}
+	
+	/**
+	 * @return
+	 * snapshots of the metrics of all pipes with enabled metrics, 
+	 * including the pipes of appended branches
+	 */
+	public List<PipeMetricsSnapshot> getMetricsSnapshots() {
+		List<PipeMetricsSnapshot> snapshots = new ArrayList<>();
+		for (PipeMetrics metrics : getAllMetrics()) {
+			snapshots.add(metrics.getSnapshot());
+		}
+		return snapshots;
+	}
+	
+	/**
+	 * Registers the metrics of all pipes with enabled metrics with the
+	 * platform MBean server.
+	 * @param domain
+	 * the domain of the MBeans' object names
+	 * @return
+	 * this PipeLinker
+	 * @see PipeMetrics#registerMBean(String)
+	 */
+	public PipeLinker registerMBeans(String domain) {
+		for (PipeMetrics metrics : getAllMetrics()) {
+			metrics.registerMBean(domain);
+		}
+		return this;
+	}
+	
+	private List<PipeMetrics> getAllMetrics() {
+		List<PipeMetrics> result = new ArrayList<>();
+		for (Pipe<?,?> pipe : pipes) {
+			if (pipe.getMetrics() != null) {
+				result.add(pipe.getMetrics());
+			}
+		}
+		for (int i = 0; i < branchLinkers.size(); ++i) {
+			result.addAll(branchLinkers.get(i).getAllMetrics());
+		}
+		return result;
+	}
+	
+	/**
+	 * Waits until all items submitted so far have passed every pipe in the
+	 * chain, including the results of collected items of each pipe. 
+	 * In contrast to {@link #shutdown()}, the threads of the pipes are 
+	 * kept alive, such that the pipe chain may be reused for further items.
+	 * The pipe chain still has to be shut down after the last usage.
+	 * @return
+	 * this pipe linker
+	 */
+	public PipeLinker flush() {
+		getStartPipe().flush();
+		return this;
+	}
+	
+	/**
+	 * Submits a single or multiple items to the underlying chain
+	 * of pipes and waits until all items have passed the pipe chain.
+	 * The threads of the pipes are kept alive for further items.
+	 * @param items
+	 * items to be submitted
+	 * @return
+	 * this pipe linker
+	 */
+	public PipeLinker submitAndFlush(Object... items) {
+		submit(items);
+		return flush();
 	}
 	
 	/**
@@ -164,9 +663,7 @@ public class PipeLinker implements Trackable, OptionCarrier {
 	 * items to be submitted
 	 */
 	public void submitAndShutdown(Object... items) {
-		for (int i = 0; i < items.length; ++i) {
-			getStartPipe().submitObject(items[i]);
-		}
+		submit(items);
 		shutdown();
 	}
 	
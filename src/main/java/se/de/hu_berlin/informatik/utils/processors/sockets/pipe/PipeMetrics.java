@@ -0,0 +1,193 @@
+package se.de.hu_berlin.informatik.utils.processors.sockets.pipe;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
+
+/**
+ * Records metrics of a single {@link Pipe}: the number of processed and 
+ * produced items, a histogram of the processing times, the time spent
+ * submitting items to the linked pipes and the remaining capacity of the
+ * pipe's buffer. Metrics are only recorded while they are enabled for
+ * the pipe. Otherwise, the pipe does not even measure any times.
+ * 
+ * <p> The current values may be obtained as an immutable snapshot via
+ * {@link #getSnapshot()} or monitored via JMX after calling
+ * {@link #registerMBean(String)}.
+ * 
+ * @author Simon Heiden
+ * 
+ * @see Pipe#enableMetrics(String)
+ * @see PipeLinker#enableMetrics()
+ */
+public class PipeMetrics implements PipeMetricsMXBean {
+
+	/**
+	 * The number of buckets of the processing time histogram. The last
+	 * bucket contains all items that took at least 2^36 nanoseconds
+	 * (about 68.7 seconds).
+	 */
+	public static final int NUMBER_OF_BUCKETS = 38;
+	
+	private final String name;
+	private final Pipe<?,?> pipe;
+	
+	private final LongAdder itemsIn = new LongAdder();
+	private final LongAdder itemsOut = new LongAdder();
+	private final LongAdder processingNanos = new LongAdder();
+	private final LongAdder downstreamSubmitNanos = new LongAdder();
+	private final AtomicLongArray histogram = new AtomicLongArray(NUMBER_OF_BUCKETS);
+	
+	private ObjectName objectName = null;
+	
+	PipeMetrics(String name, Pipe<?,?> pipe) {
+		this.name = name;
+		this.pipe = pipe;
+	}
+	
+	/**
+	 * Records the processing of a single item.
+	 * @param nanos
+	 * the time spent processing the item
+	 */
+	void recordProcessed(long nanos) {
+		itemsIn.increment();
+		processingNanos.add(nanos);
+		histogram.incrementAndGet(getBucket(nanos));
+	}
+	
+	/**
+	 * Records produced items.
+	 * @param count
+	 * the number of produced items
+	 * @param submitNanos
+	 * the time spent submitting the items to the linked pipes
+	 */
+	void recordProduced(long count, long submitNanos) {
+		itemsOut.add(count);
+		downstreamSubmitNanos.add(submitNanos);
+	}
+	
+	private static int getBucket(long nanos) {
+		int bucket = 64 - Long.numberOfLeadingZeros(nanos);
+		return bucket < NUMBER_OF_BUCKETS ? bucket : NUMBER_OF_BUCKETS - 1;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public long getItemsIn() {
+		return itemsIn.sum();
+	}
+
+	@Override
+	public long getItemsOut() {
+		return itemsOut.sum();
+	}
+
+	@Override
+	public long getProcessingTimeNanos() {
+		return processingNanos.sum();
+	}
+
+	@Override
+	public double getMeanProcessingTimeNanos() {
+		long items = itemsIn.sum();
+		return items == 0 ? 0 : (double) processingNanos.sum() / items;
+	}
+
+	@Override
+	public long[] getProcessingTimeHistogram() {
+		long[] result = new long[NUMBER_OF_BUCKETS];
+		for (int i = 0; i < NUMBER_OF_BUCKETS; ++i) {
+			result[i] = histogram.get(i);
+		}
+		return result;
+	}
+
+	@Override
+	public long getDownstreamSubmitTimeNanos() {
+		return downstreamSubmitNanos.sum();
+	}
+
+	@Override
+	public int getRemainingCapacity() {
+		return pipe.getDisruptorProvider().getRemainingCapacity();
+	}
+
+	@Override
+	public int getBufferSize() {
+		return pipe.getDisruptorProvider().getBufferSize();
+	}
+
+	@Override
+	public void reset() {
+		itemsIn.reset();
+		itemsOut.reset();
+		processingNanos.reset();
+		downstreamSubmitNanos.reset();
+		for (int i = 0; i < NUMBER_OF_BUCKETS; ++i) {
+			histogram.set(i, 0);
+		}
+	}
+	
+	/**
+	 * @return
+	 * an immutable snapshot of the current metrics
+	 */
+	public PipeMetricsSnapshot getSnapshot() {
+		return new PipeMetricsSnapshot(name, getItemsIn(), getItemsOut(), getProcessingTimeNanos(),
+				getProcessingTimeHistogram(), getDownstreamSubmitTimeNanos(), 
+				getRemainingCapacity(), getBufferSize());
+	}
+	
+	/**
+	 * Registers these metrics with the platform MBean server, using an object
+	 * name of the form {@code domain:type=Pipe,name=<name>}. Replaces
+	 * any previously registered MBean with the same name.
+	 * @param domain
+	 * the domain of the object name
+	 * @return
+	 * true if successful; false otherwise
+	 */
+	public boolean registerMBean(String domain) {
+		unregisterMBean();
+		try {
+			ObjectName newName = new ObjectName(domain + ":type=Pipe,name=" + ObjectName.quote(name));
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(newName)) {
+				server.unregisterMBean(newName);
+			}
+			server.registerMBean(this, newName);
+			objectName = newName;
+			return true;
+		} catch (JMException e) {
+			Log.err(this, e, "Could not register MBean for pipe '%s'.", name);
+			return false;
+		}
+	}
+	
+	/**
+	 * Unregisters these metrics from the platform MBean server, if registered.
+	 */
+	public void unregisterMBean() {
+		if (objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			} catch (JMException e) {
+				// not registered anymore
+			}
+			objectName = null;
+		}
+	}
+	
+}
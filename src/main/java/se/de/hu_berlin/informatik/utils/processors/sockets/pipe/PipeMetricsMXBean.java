@@ -0,0 +1,76 @@
+package se.de.hu_berlin.informatik.utils.processors.sockets.pipe;
+
+/**
+ * Management interface for the metrics of a single {@link Pipe}, 
+ * such that they may be monitored via JMX.
+ * 
+ * @author Simon Heiden
+ * 
+ * @see PipeMetrics
+ */
+public interface PipeMetricsMXBean {
+
+	/**
+	 * @return
+	 * the name of the pipe
+	 */
+	public String getName();
+	
+	/**
+	 * @return
+	 * the number of items that were processed by the pipe
+	 */
+	public long getItemsIn();
+	
+	/**
+	 * @return
+	 * the number of items that were produced by the pipe
+	 */
+	public long getItemsOut();
+	
+	/**
+	 * @return
+	 * the total time spent processing items, excluding the time spent
+	 * submitting produced items to the linked pipes, in nanoseconds
+	 */
+	public long getProcessingTimeNanos();
+	
+	/**
+	 * @return
+	 * the mean time spent processing a single item, in nanoseconds
+	 */
+	public double getMeanProcessingTimeNanos();
+	
+	/**
+	 * @return
+	 * the number of processed items per processing time bucket, where
+	 * bucket i contains the items that took less than 2^i nanoseconds
+	 * (and at least 2^(i-1) nanoseconds for i &gt; 0)
+	 */
+	public long[] getProcessingTimeHistogram();
+	
+	/**
+	 * @return
+	 * the total time spent submitting produced items to the linked pipes, 
+	 * including the time blocked on their full buffers, in nanoseconds
+	 */
+	public long getDownstreamSubmitTimeNanos();
+	
+	/**
+	 * @return
+	 * the number of free slots in the pipe's buffer
+	 */
+	public int getRemainingCapacity();
+	
+	/**
+	 * @return
+	 * the size of the pipe's buffer
+	 */
+	public int getBufferSize();
+	
+	/**
+	 * Resets all recorded metrics.
+	 */
+	public void reset();
+	
+}
@@ -0,0 +1,146 @@
+package se.de.hu_berlin.informatik.utils.processors.sockets.pipe;
+
+/**
+ * An immutable snapshot of the metrics of a single {@link Pipe}.
+ * 
+ * @author Simon Heiden
+ * 
+ * @see PipeMetrics
+ */
+public class PipeMetricsSnapshot {
+
+	private final String name;
+	private final long itemsIn;
+	private final long itemsOut;
+	private final long processingTimeNanos;
+	private final long[] processingTimeHistogram;
+	private final long downstreamSubmitTimeNanos;
+	private final int remainingCapacity;
+	private final int bufferSize;
+	
+	PipeMetricsSnapshot(String name, long itemsIn, long itemsOut, long processingTimeNanos,
+			long[] processingTimeHistogram, long downstreamSubmitTimeNanos, 
+			int remainingCapacity, int bufferSize) {
+		this.name = name;
+		this.itemsIn = itemsIn;
+		this.itemsOut = itemsOut;
+		this.processingTimeNanos = processingTimeNanos;
+		this.processingTimeHistogram = processingTimeHistogram;
+		this.downstreamSubmitTimeNanos = downstreamSubmitTimeNanos;
+		this.remainingCapacity = remainingCapacity;
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * @return
+	 * the name of the pipe
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return
+	 * the number of items that were processed by the pipe
+	 */
+	public long getItemsIn() {
+		return itemsIn;
+	}
+
+	/**
+	 * @return
+	 * the number of items that were produced by the pipe
+	 */
+	public long getItemsOut() {
+		return itemsOut;
+	}
+
+	/**
+	 * @return
+	 * the total time spent processing items, excluding the time spent
+	 * submitting produced items to the linked pipes, in nanoseconds
+	 */
+	public long getProcessingTimeNanos() {
+		return processingTimeNanos;
+	}
+	
+	/**
+	 * @return
+	 * the mean time spent processing a single item, in nanoseconds
+	 */
+	public double getMeanProcessingTimeNanos() {
+		return itemsIn == 0 ? 0 : (double) processingTimeNanos / itemsIn;
+	}
+
+	/**
+	 * @return
+	 * the number of processed items per processing time bucket
+	 * @see PipeMetricsMXBean#getProcessingTimeHistogram()
+	 */
+	public long[] getProcessingTimeHistogram() {
+		return processingTimeHistogram.clone();
+	}
+	
+	/**
+	 * Computes an upper bound for the given percentile of the processing times.
+	 * @param percentile
+	 * the percentile, between 0 and 100
+	 * @return
+	 * the upper bound of the histogram bucket that contains the percentile,
+	 * in nanoseconds, or 0 if no items were processed
+	 */
+	public long getProcessingTimePercentile(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+		}
+		long total = 0;
+		for (long count : processingTimeHistogram) {
+			total += count;
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long threshold = (long) Math.ceil(total * percentile / 100);
+		long count = 0;
+		for (int i = 0; i < processingTimeHistogram.length; ++i) {
+			count += processingTimeHistogram[i];
+			if (count >= threshold && count > 0) {
+				return i == processingTimeHistogram.length - 1 ? Long.MAX_VALUE : 1L << i;
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * @return
+	 * the total time spent submitting produced items to the linked pipes, 
+	 * including the time blocked on their full buffers, in nanoseconds
+	 */
+	public long getDownstreamSubmitTimeNanos() {
+		return downstreamSubmitTimeNanos;
+	}
+
+	/**
+	 * @return
+	 * the number of free slots in the pipe's buffer
+	 */
+	public int getRemainingCapacity() {
+		return remainingCapacity;
+	}
+
+	/**
+	 * @return
+	 * the size of the pipe's buffer
+	 */
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: in=%d, out=%d, mean=%.0fns, p99<=%dns, downstream=%dms, free=%d/%d", 
+				name, itemsIn, itemsOut, getMeanProcessingTimeNanos(), getProcessingTimePercentile(99),
+				downstreamSubmitTimeNanos / 1000000, remainingCapacity, bufferSize);
+	}
+	
+}
@@ -0,0 +1,112 @@
+package se.de.hu_berlin.informatik.utils.threaded;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
+
+/**
+ * Thread factory that is shared by the thread-based components of this
+ * framework, e.g. {@link ExecutorServiceProvider} or the disruptor provider.
+ * Optionally sets a class loader as the context class loader for created
+ * threads and may create virtual threads instead of platform threads.
+ *
+ * <p> Virtual threads are only available when running on Java 21 or newer.
+ * They are looked up at runtime, such that this class still compiles for and
+ * runs on older Java versions. If virtual threads are requested but not
+ * available, platform threads are created instead.
+ *
+ * <p> Virtual threads are best suited for stages that mostly block on I/O,
+ * like reading or writing files or waiting for external processes. They should
+ * not be combined with busy spinning wait strategies.
+ *
+ * @author Simon Heiden
+ */
+public class ConfigurableThreadFactory implements ThreadFactory {
+
+	private static final ThreadFactory VIRTUAL_THREAD_FACTORY = lookUpVirtualThreadFactory();
+
+	private final ThreadFactory factory;
+	private final ClassLoader classLoader;
+
+	/**
+	 * Creates a new thread factory.
+	 * @param classLoader
+	 * a class loader to set as the context class loader for created threads
+	 * (may be null)
+	 * @param useVirtualThreads
+	 * whether to create virtual threads, if available
+	 */
+	public ConfigurableThreadFactory(ClassLoader classLoader, boolean useVirtualThreads) {
+		super();
+		this.classLoader = classLoader;
+		if (useVirtualThreads) {
+			if (VIRTUAL_THREAD_FACTORY == null) {
+				Log.warn(this, "Virtual threads are not available. Using platform threads instead.");
+				this.factory = Executors.defaultThreadFactory();
+			} else {
+				this.factory = VIRTUAL_THREAD_FACTORY;
+			}
+		} else {
+			this.factory = Executors.defaultThreadFactory();
+		}
+	}
+
+	/**
+	 * Creates a new thread factory that creates platform threads.
+	 * @param classLoader
+	 * a class loader to set as the context class loader for created threads
+	 * (may be null)
+	 */
+	public ConfigurableThreadFactory(ClassLoader classLoader) {
+		this(classLoader, false);
+	}
+
+	/**
+	 * Creates a new thread factory that creates platform threads.
+	 */
+	public ConfigurableThreadFactory() {
+		this(null, false);
+	}
+
+	@Override
+	public Thread newThread(Runnable r) {
+		Thread thread = factory.newThread(r);
+		if (classLoader != null) {
+			thread.setContextClassLoader(classLoader);
+		}
+		return thread;
+	}
+
+	/**
+	 * @return
+	 * whether this factory creates virtual threads
+	 */
+	public boolean createsVirtualThreads() {
+		return factory == VIRTUAL_THREAD_FACTORY;
+	}
+
+	/**
+	 * @return
+	 * whether virtual threads are available in the running JVM
+	 */
+	public static boolean areVirtualThreadsAvailable() {
+		return VIRTUAL_THREAD_FACTORY != null;
+	}
+
+	/**
+	 * Looks up a factory for virtual threads via {@code Thread.ofVirtual().factory()}.
+	 * @return
+	 * the factory, or null if virtual threads are not available
+	 */
+	private static ThreadFactory lookUpVirtualThreadFactory() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			return (ThreadFactory) Class.forName("java.lang.Thread$Builder")
+					.getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+}
@@ -6,7 +6,6 @@ package se.de.hu_berlin.informatik.utils.threaded;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -52,27 +51,40 @@ public class ExecutorServiceProvider {
 	 */
 	public ExecutorServiceProvider(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
 			ClassLoader cl) {
-		super();
+		this(createExecutor(corePoolSize, maximumPoolSize, keepAliveTime, unit, new ConfigurableThreadFactory(cl)));
+	}
+
+	/**
+	 * Creates an {@link ExecutorServiceProvider} object with the given
+	 * parameters.
+	 * @param corePoolSize
+	 * the number of threads to keep in the pool, even if they are idle, unless
+	 * allowCoreThreadTimeOut is set
+	 * @param maximumPoolSize
+	 * the maximum number of threads to allow in the pool
+	 * @param keepAliveTime
+	 * when the number of threads is greater than the core, this is the maximum
+	 * time that excess idle threads will wait for new tasks before terminating.
+	 * @param unit
+	 * the time unit for the keepAliveTime argument
+	 * @param threadFactory
+	 * the thread factory to create new threads with (e.g., a 
+	 * {@link ConfigurableThreadFactory} that creates virtual threads)
+	 * @return
+	 * a new {@link ExecutorServiceProvider} object
+	 */
+	public static ExecutorServiceProvider withThreadFactory(int corePoolSize, int maximumPoolSize, 
+			long keepAliveTime, TimeUnit unit, ThreadFactory threadFactory) {
+		return new ExecutorServiceProvider(
+				createExecutor(corePoolSize, maximumPoolSize, keepAliveTime, unit, threadFactory));
+	}
+
+	private static ExecutorService createExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, 
+			TimeUnit unit, ThreadFactory threadFactory) {
 		// create an executor service
 		 ThreadPoolExecutor poolExecutor = new ThreadPoolExecutor(corePoolSize, maximumPoolSize, keepAliveTime, unit, 
 				new LimitedQueue<>(2 * maximumPoolSize),
-				new ThreadFactory() {
-
-					ThreadFactory factory = Executors.defaultThreadFactory();
-
-					// int counter = 0;
-					@Override
-					public Thread newThread(Runnable r) {
-						// ++counter;
-						// Log.out(this, "Creating Thread no. %d for %s.",
-						// counter, r);
-						Thread thread = factory.newThread(r);
-						if (cl != null) {
-							thread.setContextClassLoader(cl);
-						}
-						return thread;
-					}
-				}) {
+				threadFactory) {
 			 
 			 @Override
 			 protected void afterExecute(Runnable r, Throwable t) {
@@ -98,7 +110,7 @@ public class ExecutorServiceProvider {
 			    }
 		 };
 		poolExecutor.allowCoreThreadTimeOut(true);
-		this.executor = poolExecutor;
+		return poolExecutor;
 	}
 
 	/**
@@ -24,4 +24,14 @@ public class SemaphoreThreadLimit implements ThreadLimit {
 		threads.release();
 	}
 	
+	@Override
+	public void acquireSlots(int weight) {
+		threads.acquireUninterruptibly(weight);
+	}
+	
+	@Override
+	public void releaseSlots(int weight) {
+		threads.release(weight);
+	}
+	
 }
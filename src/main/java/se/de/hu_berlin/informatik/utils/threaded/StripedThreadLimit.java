@@ -0,0 +1,186 @@
+package se.de.hu_berlin.informatik.utils.threaded;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Thread limit that distributes its slots over multiple stripes instead of
+ * a single shared semaphore. Each thread acquires slots from the stripe that
+ * it is mapped to, if possible, and always releases slots to that stripe.
+ * This way, threads that acquire and release slots for each processed item
+ * mostly do not compete for the same memory location, while the total number
+ * of slots is still limited.
+ *
+ * <p> If the thread's own stripe does not hold enough free slots, the other
+ * stripes are tried. If no stripe holds enough free slots, the free slots of
+ * all stripes are collected, one thread at a time, and the collecting thread
+ * blocks on its own stripe until enough slots are released. In the meantime,
+ * releasing threads hand their slots off to that stripe.
+ *
+ * @author Simon Heiden
+ */
+public class StripedThreadLimit implements ThreadLimit {
+
+	final private Semaphore[] stripes;
+	final private int mask;
+	final private int slots;
+	final private Object collectLock = new Object();
+	//the stripe that a collecting thread waits on, or -1
+	private volatile int waitingStripe = -1;
+
+	/**
+	 * Creates a thread limit with the given number of slots and one stripe
+	 * per available processor.
+	 * @param threads
+	 * the total number of slots
+	 */
+	public StripedThreadLimit(int threads) {
+		this(threads, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a thread limit with the given number of slots and stripes.
+	 * @param threads
+	 * the total number of slots
+	 * @param numberOfStripes
+	 * the number of stripes; will be rounded up to a power of two,
+	 * but will not exceed the number of slots
+	 */
+	public StripedThreadLimit(int threads, int numberOfStripes) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads has to be at least 1.");
+		}
+		if (numberOfStripes < 1) {
+			throw new IllegalArgumentException("Number of stripes has to be at least 1.");
+		}
+		int size = numberOfStripes > 1 ? Integer.highestOneBit(numberOfStripes - 1) << 1 : 1;
+		while (size > threads) {
+			size >>= 1;
+		}
+		this.slots = threads;
+		this.mask = size - 1;
+		this.stripes = new Semaphore[size];
+		for (int i = 0; i < size; ++i) {
+			//distribute the slots evenly
+			stripes[i] = new Semaphore(threads / size + (i < threads % size ? 1 : 0));
+		}
+	}
+
+	private int getStripeIndex() {
+		long id = Thread.currentThread().getId();
+		//spread the thread ids
+		int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	@Override
+	public void acquireSlot() {
+		acquireSlots(1);
+	}
+
+	@Override
+	public void releaseSlot() {
+		releaseSlots(1);
+	}
+
+	@Override
+	public void acquireSlots(int weight) {
+		if (weight < 1 || weight > slots) {
+			throw new IllegalArgumentException("Can not acquire " + weight + " of " + slots + " slots.");
+		}
+		int index = getStripeIndex();
+		//try the own stripe first, then the others
+		for (int i = 0; i < stripes.length; ++i) {
+			if (stripes[(index + i) & mask].tryAcquire(weight)) {
+				return;
+			}
+		}
+		collectSlots(weight, index);
+	}
+
+	/**
+	 * Collects the given number of slots from all stripes. Only one thread
+	 * at a time may collect slots, such that collecting threads do not hold
+	 * partial slots that other collecting threads wait for.
+	 * @param weight
+	 * the number of slots to acquire
+	 * @param index
+	 * the stripe index of the calling thread
+	 */
+	private void collectSlots(int weight, int index) {
+		synchronized (collectLock) {
+			//from now on, released slots are handed off to the own stripe
+			waitingStripe = index;
+			try {
+				int acquired = 0;
+				for (int i = 0; i < stripes.length && acquired < weight; ++i) {
+					acquired += drain(stripes[(index + i) & mask], weight - acquired);
+				}
+				if (acquired < weight) {
+					//blocks until enough slots are released
+					stripes[index].acquireUninterruptibly(weight - acquired);
+				}
+			} finally {
+				waitingStripe = -1;
+			}
+		}
+	}
+
+	/**
+	 * Acquires up to the given number of free slots from the given stripe.
+	 * @param stripe
+	 * the stripe
+	 * @param max
+	 * the maximal number of slots to acquire
+	 * @return
+	 * the number of acquired slots
+	 */
+	private static int drain(Semaphore stripe, int max) {
+		int available = Math.min(stripe.availablePermits(), max);
+		if (available > 0 && stripe.tryAcquire(available)) {
+			return available;
+		}
+		return 0;
+	}
+
+	@Override
+	public void releaseSlots(int weight) {
+		int waiting = waitingStripe;
+		if (waiting >= 0) {
+			//hand the slots off to the waiting thread
+			stripes[waiting].release(weight);
+			return;
+		}
+		int index = getStripeIndex();
+		stripes[index].release(weight);
+		//a thread may have started to wait in the meantime, without having collected these slots
+		waiting = waitingStripe;
+		if (waiting >= 0 && waiting != index) {
+			int handedOff = drain(stripes[index], weight);
+			if (handedOff > 0) {
+				stripes[waiting].release(handedOff);
+			}
+		}
+	}
+
+	/**
+	 * @return
+	 * the number of currently available slots (only an estimate if
+	 * slots are acquired or released concurrently)
+	 */
+	public int getAvailableSlots() {
+		int available = 0;
+		for (Semaphore stripe : stripes) {
+			available += stripe.availablePermits();
+		}
+		return available;
+	}
+
+	/**
+	 * @return
+	 * the number of stripes
+	 */
+	public int getNumberOfStripes() {
+		return stripes.length;
+	}
+
+}
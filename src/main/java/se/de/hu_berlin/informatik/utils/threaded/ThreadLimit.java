@@ -6,4 +6,27 @@ public interface ThreadLimit {
 	
 	public void releaseSlot();
 	
+	/**
+	 * Acquires the given number of slots. Per default, acquires
+	 * single slots one after another.
+	 * @param weight
+	 * the number of slots to acquire
+	 */
+	default public void acquireSlots(int weight) {
+		for (int i = 0; i < weight; ++i) {
+			acquireSlot();
+		}
+	}
+	
+	/**
+	 * Releases the given number of slots.
+	 * @param weight
+	 * the number of slots to release
+	 */
+	default public void releaseSlots(int weight) {
+		for (int i = 0; i < weight; ++i) {
+			releaseSlot();
+		}
+	}
+	
 }
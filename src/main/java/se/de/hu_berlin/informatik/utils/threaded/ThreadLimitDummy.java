@@ -22,4 +22,14 @@ final public class ThreadLimitDummy implements ThreadLimit {
 		//do nothing
 	}
 	
+	@Override
+	public void acquireSlots(int weight) {
+		//do nothing
+	}
+	
+	@Override
+	public void releaseSlots(int weight) {
+		//do nothing
+	}
+	
 }
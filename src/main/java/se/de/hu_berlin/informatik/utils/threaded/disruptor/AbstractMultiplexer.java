@@ -1,26 +1,95 @@
 package se.de.hu_berlin.informatik.utils.threaded.disruptor;
 
+import java.util.concurrent.ThreadFactory;
+
+import com.lmax.disruptor.AlertException;
+import com.lmax.disruptor.LiteBlockingWaitStrategy;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.Sequencer;
+import com.lmax.disruptor.TimeoutException;
+
+import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
+import se.de.hu_berlin.informatik.utils.threaded.disruptor.eventhandler.SingleUseEvent;
+
 /**
  * Abstract multiplexer that collects output generated by multiple
  * threads and processes it.
- * 
+ *
+ * <p> The output items are published to a bounded multi-producer ring buffer.
+ * Publishing threads do not acquire any locks, as long as the multiplexer thread
+ * is busy. If there are no items to collect, the multiplexer thread blocks
+ * until it is signalled by a publishing thread, such that an idle multiplexer
+ * does not use any CPU time. If the ring buffer is full, publishing threads
+ * wait until the multiplexer thread has caught up.
+ *
  * @author Simon Heiden
  * @param <B>
  * the type of objects that are processed
  */
 public abstract class AbstractMultiplexer<B> implements Multiplexer<B> {
 
+	/**
+	 * The default number of output items that may be pending at any time.
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
 	private MultiplexerInput<B>[] handlers;
-	
+
+	private final RingBuffer<SingleUseEvent<B>> ringBuffer;
+	private final SequenceBarrier barrier;
+	//the sequence of the last collected item
+	private final Sequence sequence = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+
 	private Thread thread = null;
-	private boolean shouldStop;
+	private volatile boolean shouldStop;
+
+	private volatile boolean isRunning = false;
+
+	private ThreadFactory threadFactory = null;
 
-	private boolean isRunning = false;
-	
 	public AbstractMultiplexer() {
+		this(DEFAULT_CAPACITY, null);
+	}
+
+	/**
+	 * @param threadFactory
+	 * the thread factory to create the multiplexer thread with
+	 */
+	public AbstractMultiplexer(ThreadFactory threadFactory) {
+		this(DEFAULT_CAPACITY, threadFactory);
+	}
+
+	/**
+	 * @param capacity
+	 * the number of output items that may be pending at any time;
+	 * will be rounded up to a power of two
+	 * @param threadFactory
+	 * the thread factory to create the multiplexer thread with (may be null)
+	 */
+	public AbstractMultiplexer(int capacity, ThreadFactory threadFactory) {
 		super();
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive.");
+		}
+		this.threadFactory = threadFactory;
+		ringBuffer = RingBuffer.createMultiProducer(SingleUseEvent<B>::new,
+				capacity > 1 ? Integer.highestOneBit(capacity - 1) << 1 : 1, new LiteBlockingWaitStrategy());
+		barrier = ringBuffer.newBarrier();
+		ringBuffer.addGatingSequences(sequence);
 	}
-	
+
+	/**
+	 * Sets the thread factory that is used to create the multiplexer thread.
+	 * Takes effect the next time that the multiplexer thread is started.
+	 * @param threadFactory
+	 * the thread factory to create the multiplexer thread with
+	 */
+	public void setThreadFactory(ThreadFactory threadFactory) {
+		this.threadFactory = threadFactory;
+	}
+
 	/* (non-Javadoc)
 	 * @see se.de.hu_berlin.informatik.utils.threaded.IMultiplexer#setHandlers(se.de.hu_berlin.informatik.utils.threaded.IMultiplexerInput[])
 	 */
@@ -29,7 +98,7 @@ public abstract class AbstractMultiplexer<B> implements Multiplexer<B> {
 		this.handlers = handlers;
 	}
 
-	
+
 	@Override
 	public boolean isRunning() {
 		return isRunning;
@@ -42,36 +111,106 @@ public abstract class AbstractMultiplexer<B> implements Multiplexer<B> {
 	public void start() {
 		if (!isRunning) {
 //			Log.out(this, "Creating new Multiplexer thread.");
-			thread = new Thread(this);
+			shouldStop = false;
+			barrier.clearAlert();
+			if (threadFactory == null) {
+				thread = new Thread(this);
+			} else {
+				thread = threadFactory.newThread(this);
+			}
 			thread.start();
 			isRunning = true;
 		}
 	}
-	
+
+	@Override
+	public void submitItem(B item) {
+		long next = ringBuffer.next();
+		ringBuffer.get(next).set(item);
+		ringBuffer.publish(next);
+	}
+
+	@Override
+	public void submitItems(B[] items, int count) {
+		int offset = 0;
+		while (offset < count) {
+			//a batch may not be larger than the ring buffer itself
+			int batchSize = Math.min(count - offset, ringBuffer.getBufferSize());
+			//claim the sequences for the whole batch at once
+			long hi = ringBuffer.next(batchSize);
+			long lo = hi - (batchSize - 1);
+			for (int i = 0; i < batchSize; ++i) {
+				ringBuffer.get(lo + i).set(items[offset + i]);
+			}
+			ringBuffer.publish(lo, hi);
+			offset += batchSize;
+		}
+	}
+
 	@Override
 	public void run() {
-		shouldStop = false;
-		boolean shouldDefinitivelyStop = false;
 		if (handlers == null || handlers.length == 0) {
 			throw new IllegalStateException("No handlers given to multiplexer.");
 		}
-		//collect available output in an infinite loop
+		long nextSequence = sequence.get() + 1;
+		//collect available output until the multiplexer gets shut down
 		while (true) {
-			//iterate over all input threads (all handlers)
-			processPendingItems(handlers);
-			
-			//test if shutdown condition is fulfilled 
-			if (shouldStop) {
-				//test if we already checked for any pending outputs
-				if (shouldDefinitivelyStop) {
-					//then we may return now...
+			try {
+				if (shouldStop && ringBuffer.getCursor() < nextSequence) {
+					//all published items have been collected
 					return;
 				}
+				//blocks until new items are available and returns the highest published sequence
+				long availableSequence = barrier.waitFor(nextSequence);
+				nextSequence = processItems(nextSequence, availableSequence);
+			} catch (AlertException e) {
+				if (shouldStop) {
+					//no more items are published at this point, so collect the remaining ones;
+					//the barrier does not block anymore, since the cursor is beyond the remaining items
+					barrier.clearAlert();
+				}
+			} catch (InterruptedException | TimeoutException e) {
+				// try again
+			}
+		}
+	}
 
-				//there might still be pending output items, so better check once more...
-				//but next time around, we can definitively stop!
-				shouldDefinitivelyStop = true;
+	/**
+	 * Processes the items in the given range of sequences.
+	 * @param nextSequence
+	 * the first sequence to process
+	 * @param availableSequence
+	 * the last sequence to process
+	 * @return
+	 * the next sequence to process afterwards
+	 */
+	private long processItems(long nextSequence, long availableSequence) {
+		if (availableSequence >= nextSequence) {
+			while (nextSequence <= availableSequence) {
+				//getting the item clears the slot, such that the item may be garbage collected
+				B item = ringBuffer.get(nextSequence).get();
+				try {
+					processNewOutputItem(item);
+				} catch (RuntimeException e) {
+					//keep the multiplexer thread alive for the remaining items
+					Log.err(this, e, "%s was thrown while processing output item #%d.", e, nextSequence);
+				}
+				++nextSequence;
 			}
+			//free the slots for the publishing threads
+			sequence.set(availableSequence);
+		}
+		return nextSequence;
+	}
+
+	@Override
+	public void waitForPendingItems() {
+		if (!isRunning) {
+			return;
+		}
+		int attempt = 0;
+		while (sequence.get() < ringBuffer.getCursor() && thread.isAlive()) {
+			DisruptorProvider.backOff(attempt++);
 		}
 	}
 
@@ -80,7 +219,12 @@ public abstract class AbstractMultiplexer<B> implements Multiplexer<B> {
 	 */
 	@Override
 	public void shutdown() {
+		if (thread == null) {
+			return;
+		}
 		shouldStop = true;
+		//wake up the multiplexer thread
+		barrier.alert();
 		while (thread.isAlive()) {
 			try {
 				thread.join();
@@ -90,5 +234,5 @@ public abstract class AbstractMultiplexer<B> implements Multiplexer<B> {
 		}
 		isRunning = false;
 	}
-	
+
 }
@@ -0,0 +1,102 @@
+package se.de.hu_berlin.informatik.utils.threaded.disruptor;
+
+/**
+ * Suggests ring buffer sizes for {@link DisruptorProvider}s based on their
+ * recorded usage statistics, i.e., the number of stalls of submitting threads
+ * due to a full buffer and the peak occupancy of the buffer.
+ *
+ * <p> A buffer gets doubled if submitting threads frequently had to wait for
+ * free slots, since a larger buffer absorbs bursts of submitted items instead
+ * of stalling the producer. A buffer gets shrunk if it was never filled by
+ * more than a quarter, since the unused slots only waste memory.
+ * The suggested sizes lie between a minimal and a maximal size and get 
+ * rounded up to powers of two by the disruptor provider.
+ *
+ * @author Simon Heiden
+ */
+public class BufferSizingPolicy {
+
+	private int minimalBufferSize = 8;
+	private int maximalBufferSize = 1024;
+	private double stallThreshold = 0.01;
+
+	/**
+	 * Sets the minimal buffer size to suggest. Default is 8.
+	 * @param minimalBufferSize
+	 * the minimal buffer size
+	 * @return
+	 * this
+	 */
+	public BufferSizingPolicy setMinimalBufferSize(int minimalBufferSize) {
+		if (minimalBufferSize < 1) {
+			throw new IllegalArgumentException("Buffer size must be positive.");
+		}
+		this.minimalBufferSize = minimalBufferSize;
+		return this;
+	}
+
+	/**
+	 * Sets the maximal buffer size to suggest. Default is 1024.
+	 * @param maximalBufferSize
+	 * the maximal buffer size
+	 * @return
+	 * this
+	 */
+	public BufferSizingPolicy setMaximalBufferSize(int maximalBufferSize) {
+		if (maximalBufferSize < 1) {
+			throw new IllegalArgumentException("Buffer size must be positive.");
+		}
+		this.maximalBufferSize = maximalBufferSize;
+		return this;
+	}
+
+	/**
+	 * Sets the ratio of stalled submissions to all submissions above which
+	 * the buffer size should be increased. Default is 0.01.
+	 * @param stallThreshold
+	 * the threshold
+	 * @return
+	 * this
+	 */
+	public BufferSizingPolicy setStallThreshold(double stallThreshold) {
+		if (stallThreshold < 0) {
+			throw new IllegalArgumentException("Threshold must not be negative.");
+		}
+		this.stallThreshold = stallThreshold;
+		return this;
+	}
+
+	/**
+	 * Suggests a buffer size for the given disruptor provider, based on its
+	 * usage statistics. If no items were submitted so far, the current
+	 * buffer size is kept.
+	 * @param provider
+	 * the disruptor provider
+	 * @return
+	 * the suggested buffer size
+	 */
+	public int suggestBufferSize(DisruptorProvider<?> provider) {
+		int bufferSize = provider.getBufferSize();
+		if (bufferSize <= 0) {
+			bufferSize = provider.getMinimalBufferSize();
+		}
+		long submitted = provider.getSubmittedEvents();
+		if (submitted == 0) {
+			return bufferSize;
+		}
+
+		int suggestion;
+		if (provider.getFullBufferStalls() > stallThreshold * submitted) {
+			// producers had to wait too often
+			suggestion = bufferSize * 2;
+		} else if (provider.getPeakOccupancy() * 4 <= bufferSize) {
+			// the buffer was never filled by more than a quarter
+			suggestion = bufferSize / 2;
+		} else {
+			suggestion = bufferSize;
+		}
+
+		return Math.max(minimalBufferSize, Math.min(maximalBufferSize, suggestion));
+	}
+
+}
@@ -1,10 +1,19 @@
 package se.de.hu_berlin.informatik.utils.threaded.disruptor;
 
-import java.util.concurrent.Executors;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.concurrent.ThreadFactory;
-import com.lmax.disruptor.BlockingWaitStrategy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
 import com.lmax.disruptor.ExceptionHandler;
+import com.lmax.disruptor.InsufficientCapacityException;
 import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.WorkHandler;
 import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
 
@@ -13,6 +22,7 @@ import se.de.hu_berlin.informatik.utils.miscellaneous.Misc;
 import se.de.hu_berlin.informatik.utils.processors.sockets.ConsumingProcessorSocketGenerator;
 import se.de.hu_berlin.informatik.utils.processors.sockets.ProcessorSocketGenerator;
 import se.de.hu_berlin.informatik.utils.processors.sockets.eh.EHWithInputAndReturn;
+import se.de.hu_berlin.informatik.utils.threaded.ConfigurableThreadFactory;
 import se.de.hu_berlin.informatik.utils.threaded.ThreadLimit;
 import se.de.hu_berlin.informatik.utils.threaded.ThreadLimitDummy;
 import se.de.hu_berlin.informatik.utils.threaded.disruptor.eventhandler.AbstractDisruptorEventHandler;
@@ -57,7 +67,20 @@ public class DisruptorProvider<A> implements Trackable {
 	private AbstractDisruptorEventHandler<A>[] handlers = null;
 	private int bufferSize = 0;
 	
+	//maximal number of sequences claimed at once when submitting multiple items
+	private static final int MAX_BATCH_SIZE = 1024;
+	//the occupancy of the ring buffer is sampled every 16 submitted items
+	private static final long OCCUPANCY_SAMPLE_MASK = 15;
+	
+	//statistics about the usage of the ring buffer
+	private final LongAdder submittedEvents = new LongAdder();
+	private final LongAdder fullBufferStalls = new LongAdder();
+	private final LongAdder stallNanos = new LongAdder();
+	private final LongAccumulator peakOccupancy = new LongAccumulator(Math::max, 0);
+	
 	private ProducerType producerType = ProducerType.MULTI;
+	private DisruptorWaitStrategy waitStrategy = DisruptorWaitStrategy.BLOCKING;
+	private boolean useWorkerPool = true;
 	
 	private boolean abortOnEventError = false;
 	private boolean abortOnStartupError = false;
@@ -65,12 +88,15 @@ public class DisruptorProvider<A> implements Trackable {
 	
 	private int exceptions;
 	
-	private boolean isRunning = false;
+	private volatile boolean isRunning = false;
+	private final AtomicBoolean isStarting = new AtomicBoolean(false);
 	private boolean isConnectedToHandlers = false;
 	private int minimalBufferSize = 0;
 	
 	private TrackingStrategy tracker = TrackerDummy.getInstance();
 	private boolean onlyForced = false;
+	//guards the (not thread-safe) tracker if items are submitted concurrently
+	private final Object trackLock = new Object();
 
 	/**
 	 * Creates a new disruptor provider with the minimal given buffer size. 
@@ -87,22 +113,7 @@ public class DisruptorProvider<A> implements Trackable {
 	public DisruptorProvider(int minimalBufferSize, ClassLoader cl) {
 		super();
 		this.minimalBufferSize  = minimalBufferSize;
-		
-		threadFactory = //Executors.defaultThreadFactory();
-				new ThreadFactory() {
-			ThreadFactory factory = Executors.defaultThreadFactory();
-//			int counter = 0;
-			@Override
-			public Thread newThread(Runnable r) {
-//				++counter;
-//				Log.out(this, "Creating Thread no. %d for %s.", counter, r);
-				Thread thread = factory.newThread(r);
-				if (cl != null) {
-					thread.setContextClassLoader(cl);
-				}
-				return thread;
-			}
-		};
+		this.threadFactory = new ConfigurableThreadFactory(cl);
 		
 //		mainThread = Thread.currentThread();
 	}
@@ -147,13 +158,111 @@ public class DisruptorProvider<A> implements Trackable {
 		return value > 1 ? Integer.highestOneBit(value-1) << 1 : 1;
 	}
 	
+	/**
+	 * Sets the minimal buffer size. If the disruptor is currently running, 
+	 * the new buffer size takes effect after the next shutdown. 
+	 * @param minimalBufferSize
+	 * a minimal buffer size
+	 * @return
+	 * this
+	 */
+	public DisruptorProvider<A> setMinimalBufferSize(int minimalBufferSize) {
+		if (minimalBufferSize < 1) {
+			throw new IllegalArgumentException("Buffer size must be positive.");
+		}
+		if (this.minimalBufferSize != minimalBufferSize) {
+			this.minimalBufferSize = minimalBufferSize;
+			//discard a not yet started disruptor instance, such that it will
+			//be created with the new buffer size when starting
+			cleanup();
+		}
+		return this;
+	}
+	
+	/**
+	 * @return
+	 * the minimal buffer size
+	 */
+	public int getMinimalBufferSize() {
+		return minimalBufferSize;
+	}
+	
+	/**
+	 * @return
+	 * the actual size of the ring buffer, or 0 if no disruptor
+	 * instance was created, yet
+	 */
+	public int getBufferSize() {
+		return bufferSize;
+	}
+	
+	/**
+	 * @return
+	 * the number of free slots in the ring buffer, or 0 if no disruptor
+	 * instance was created, yet
+	 */
+	public int getRemainingCapacity() {
+		RingBuffer<SingleUseEvent<A>> ringBuffer = this.ringBuffer;
+		return ringBuffer == null ? 0 : (int) ringBuffer.remainingCapacity();
+	}
+	
+	/**
+	 * @return
+	 * the number of items that were submitted since the last reset of the statistics
+	 */
+	public long getSubmittedEvents() {
+		return submittedEvents.sum();
+	}
+	
+	/**
+	 * @return
+	 * the number of times that a submitting thread found the ring buffer 
+	 * full and had to wait for the handlers to catch up, since the last
+	 * reset of the statistics
+	 */
+	public long getFullBufferStalls() {
+		return fullBufferStalls.sum();
+	}
+	
+	/**
+	 * @return
+	 * the total time in nanoseconds that submitting threads waited for free
+	 * slots in the ring buffer, since the last reset of the statistics
+	 */
+	public long getStallTimeNanos() {
+		return stallNanos.sum();
+	}
+	
+	/**
+	 * @return
+	 * the highest observed number of published but not yet processed 
+	 * events in the ring buffer, since the last reset of the statistics.
+	 * The occupancy is only sampled from time to time.
+	 */
+	public long getPeakOccupancy() {
+		return peakOccupancy.get();
+	}
+	
+	/**
+	 * Resets the statistics about the usage of the ring buffer.
+	 * @return
+	 * this
+	 */
+	public DisruptorProvider<A> resetStatistics() {
+		submittedEvents.reset();
+		fullBufferStalls.reset();
+		stallNanos.reset();
+		peakOccupancy.reset();
+		return this;
+	}
+	
 	/**
 	 * Creates a new disruptor instance.
 	 */
 	private void createNewDisruptorInstance() {
 		// Construct the Disruptor
 		disruptor = new Disruptor<>(SingleUseEvent<A>::new, bufferSize, threadFactory,
-				producerType, new BlockingWaitStrategy());
+				producerType, waitStrategy.newInstance());
 
 		disruptor.setDefaultExceptionHandler(new ExceptionHandler<Event<A>>() {
 			@Override
@@ -210,6 +319,8 @@ public class DisruptorProvider<A> implements Trackable {
 	}
 	
 	/**
+	 * Since submitting items is not synchronized, this has to be set to
+	 * false if items may be submitted by multiple threads concurrently.
 	 * @param singleWriter
 	 * whether only a single thread is writing to this disruptor
 	 */
@@ -223,6 +334,64 @@ public class DisruptorProvider<A> implements Trackable {
 		}
 	}
 	
+	/**
+	 * Sets the strategy that the handler threads use to wait for new events.
+	 * If the disruptor is currently running, the new strategy takes effect
+	 * after the next shutdown.
+	 * @param waitStrategy
+	 * the wait strategy to use
+	 * @return
+	 * this
+	 */
+	public DisruptorProvider<A> setWaitStrategy(DisruptorWaitStrategy waitStrategy) {
+		if (waitStrategy == null) {
+			throw new IllegalArgumentException("No wait strategy given (null).");
+		}
+		if (this.waitStrategy != waitStrategy) {
+			this.waitStrategy = waitStrategy;
+			//discard a not yet started disruptor instance, such that it will
+			//be created with the new wait strategy when starting
+			cleanup();
+		}
+		return this;
+	}
+	
+	/**
+	 * Sets the thread factory that is used to create the handler threads.
+	 * If the disruptor is currently running, the new thread factory takes 
+	 * effect after the next shutdown.
+	 * @param threadFactory
+	 * the thread factory to use
+	 * @return
+	 * this
+	 * @see ConfigurableThreadFactory
+	 */
+	public DisruptorProvider<A> setThreadFactory(ThreadFactory threadFactory) {
+		if (threadFactory == null) {
+			throw new IllegalArgumentException("No thread factory given (null).");
+		}
+		this.threadFactory = threadFactory;
+		//discard a not yet started disruptor instance, such that it will
+		//be created with the new thread factory when starting
+		return cleanup();
+	}
+	
+	/**
+	 * @return
+	 * the thread factory that is used to create the handler threads
+	 */
+	public ThreadFactory getThreadFactory() {
+		return threadFactory;
+	}
+	
+	/**
+	 * @return
+	 * the strategy that the handler threads use to wait for new events
+	 */
+	public DisruptorWaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+	
 	/**
 	 * @return
 	 * whether the disruptor is running
@@ -247,6 +416,39 @@ public class DisruptorProvider<A> implements Trackable {
 		return this;
 	}
 	
+	/**
+	 * Creates an array to hold the given number of work handlers.
+	 * @param length
+	 * the length of the array
+	 * @return
+	 * an empty array of work handlers
+	 */
+	@SuppressWarnings("unchecked")
+	private static <A> WorkHandler<SingleUseEvent<A>>[] newWorkHandlerArray(int length) {
+		return (WorkHandler<SingleUseEvent<A>>[]) new WorkHandler<?>[length];
+	}
+	
+	/**
+	 * Sets whether multiple connected "first come, first serve" handlers 
+	 * (see {@link DisruptorFCFSEventHandler}) shall be used as a worker pool,
+	 * which delivers each event to exactly one handler. This is the default.
+	 * If set to false, every handler sees every event and the handlers race for 
+	 * processing it. Takes effect the next time that handlers get connected to
+	 * a new disruptor instance.
+	 * @param useWorkerPool
+	 * whether to use a worker pool
+	 * @return
+	 * this
+	 */
+	public DisruptorProvider<A> setUseWorkerPool(boolean useWorkerPool) {
+		if (this.useWorkerPool != useWorkerPool) {
+			this.useWorkerPool = useWorkerPool;
+			//discard a not yet started disruptor instance
+			cleanup();
+		}
+		return this;
+	}
+	
 	/**
 	 * Connects the given event handlers to the disruptor. The handlers process submitted events
 	 * in parallel. If no disruptor instance is available, a new one is created beforehand.
@@ -279,11 +481,23 @@ public class DisruptorProvider<A> implements Trackable {
 		}
 		
 		boolean isSingle = handlers.length == 1;
+		boolean areAllFCFSHandlers = true;
 		for (AbstractDisruptorEventHandler<A> handler : handlers) {
 			handler.setSingleConsumer(isSingle);
+			areAllFCFSHandlers &= handler instanceof DisruptorFCFSEventHandler;
 		}
 		// Connect the handlers
-		disruptor.handleEventsWith(handlers);
+		if (!isSingle && useWorkerPool && areAllFCFSHandlers) {
+			//each event is delivered to exactly one handler
+			WorkHandler<SingleUseEvent<A>>[] workHandlers = newWorkHandlerArray(handlers.length);
+			for (int i = 0; i < handlers.length; ++i) {
+				workHandlers[i] = (DisruptorFCFSEventHandler<A>) handlers[i];
+			}
+			disruptor.handleEventsWithWorkerPool(workHandlers);
+		} else {
+			//each handler sees every event
+			disruptor.handleEventsWith(handlers);
+		}
 		this.handlers = handlers;
 		
 		isConnectedToHandlers = true;
@@ -402,40 +616,54 @@ public class DisruptorProvider<A> implements Trackable {
 	}
 	
 	/**
-	 * Starts the disruptor if it is not already running.
+	 * Starts the disruptor if it is not already running. Only the thread that
+	 * wins the race for the start flag starts the disruptor. All other threads
+	 * wait until the disruptor is running.
 	 */
-	private synchronized void startIfNotRunning() {
-		if (!isRunning) {
-			if (disruptor == null || !isConnectedToHandlers) {
-				if (handlers == null) {
-					throw new IllegalStateException("No handlers given. Cannot start the disruptor.");
+	private void startIfNotRunning() {
+		if (isStarting.compareAndSet(false, true)) {
+			try {
+				if (disruptor == null || !isConnectedToHandlers) {
+					if (handlers == null) {
+						throw new IllegalStateException("No handlers given. Cannot start the disruptor.");
+					}
+					connectHandlers(handlers);
 				}
-				connectHandlers(handlers);
-			}
 
-			// Start the Disruptor, starts all threads running
-			disruptor.start();
-			isRunning = true;
+				// Start the Disruptor, starts all threads running
+				disruptor.start();
+				isRunning = true;
+			} catch (RuntimeException e) {
+				isStarting.set(false);
+				throw e;
+			}
+		} else {
+			while (!isRunning) {
+				if (!isStarting.get()) {
+					//start failed or disruptor got shut down in the meantime
+					startIfNotRunning();
+					return;
+				}
+				Thread.yield();
+			}
 		}
 	}
 	
 	/**
-	 * Shuts down the disruptor.
+	 * Shuts down the disruptor. Waits until all submitted events have been
+	 * processed by the connected handlers and halts the handler threads afterwards.
 	 * @return
 	 * this
 	 */
 	public DisruptorProvider<A> shutdown() {
 		if (disruptor != null && isRunning) {
-			try {
-				Thread.sleep(250);
-			} catch (InterruptedException e) {
-				// do nothing
-			}
 //			Log.out(this, "shutting down disruptor..., %s", Thread.currentThread());
-			// Shuts down the disruptor
-			disruptor.shutdown();
+			waitForPendingEvents();
+			// all events are processed, so we can halt the processor threads
+			disruptor.halt();
 			
 			isRunning = false;
+			isStarting.set(false);
 			if (exceptions > 0) {
 				Log.warn(this, "%d event(s) ended by throwing an exception.", exceptions);
 			}
@@ -444,21 +672,265 @@ public class DisruptorProvider<A> implements Trackable {
 		return this;
 	}
 	
+	/**
+	 * Waits until the sequences of all connected handlers have reached the
+	 * cursor of the ring buffer, i.e. until all published events are processed.
+	 * Spins for a short while and parks the calling thread for increasing
+	 * periods of time afterwards. In contrast to {@link #shutdown()}, the
+	 * handler threads are kept alive, such that new items may be submitted
+	 * afterwards without creating a new disruptor instance.
+	 * Returns immediately if the disruptor is not running.
+	 * @return
+	 * this
+	 */
+	public DisruptorProvider<A> waitForPendingEvents() {
+		if (!isRunning) {
+			return this;
+		}
+		int attempt = 0;
+		while (ringBuffer.getMinimumGatingSequence() < ringBuffer.getCursor()) {
+			backOff(attempt++);
+		}
+		return this;
+	}
+	
+	/**
+	 * Yields the calling thread for the first 100 attempts and parks it for
+	 * increasing periods of time afterwards, but for at most 1 ms at a time.
+	 * @param attempt
+	 * the number of previous attempts
+	 */
+	static void backOff(int attempt) {
+		if (attempt < 100) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(Math.min(1000L << Math.min(attempt - 100, 10), 1000000L));
+		}
+	}
+	
+	/**
+	 * Claims the next n sequences in the ring buffer. If the ring buffer is
+	 * full, waits until enough slots are available and records the stall.
+	 * @param n
+	 * the number of sequences to claim
+	 * @return
+	 * the highest claimed sequence
+	 */
+	private long claim(int n) {
+		try {
+			return ringBuffer.tryNext(n);
+		} catch (InsufficientCapacityException e) {
+			//the handlers can not keep up with the submitting threads
+			fullBufferStalls.increment();
+			long startTime = System.nanoTime();
+			long hi = ringBuffer.next(n);
+			stallNanos.add(System.nanoTime() - startTime);
+			return hi;
+		}
+	}
+	
+	/**
+	 * Updates the statistics after publishing the given number of events.
+	 * @param hi
+	 * the highest published sequence
+	 * @param n
+	 * the number of published events
+	 */
+	private void recordPublished(long hi, int n) {
+		submittedEvents.add(n);
+		//reading the gating sequences is not free, so only sample the occupancy
+		if (n > 1 || (hi & OCCUPANCY_SAMPLE_MASK) == 0) {
+			peakOccupancy.accumulate(hi - ringBuffer.getMinimumGatingSequence());
+		}
+	}
+	
+	/**
+	 * Stores the given item in the event with the given sequence, together
+	 * with the sequence number itself, such that handlers may restore the
+	 * order of submission.
+	 * @param sequence
+	 * the claimed sequence
+	 * @param item
+	 * the item to store
+	 */
+	private void setEvent(long sequence, A item) {
+		SingleUseEvent<A> event = ringBuffer.get(sequence);
+		event.set(item);
+		event.setSequence(sequence);
+	}
+	
 	/**
 	 * Submits an item to the disruptor. Starts the disruptor threads
 	 * if it is not running. If no handlers are connected, then this
 	 * will throw an exception.
+	 * 
+	 * <p> This method does not acquire any locks, apart from a lock around the
+	 * tracker if tracking is enabled. If multiple threads submit
+	 * items concurrently, the producer type has to be set to allow multiple
+	 * writers (which is the default), such that the disruptor's sequencer
+	 * coordinates the publishing threads.
 	 * @param item
 	 * the item to submit
 	 */
-	public synchronized void submit(A item) {
-		//avoid calling synchronized method call if already running
+	public void submit(A item) {
 		if (!isRunning) {
 			startIfNotRunning();
 		}
 		track();
 //		Log.out(this, "%s, submitting %s", Thread.currentThread(), item);
-		ringBuffer.publishEvent(Event::translate, item);
+		long sequence = claim(1);
+		setEvent(sequence, item);
+		ringBuffer.publish(sequence);
+		recordPublished(sequence, 1);
+	}
+	
+	/**
+	 * Tries to submit an item to the disruptor without waiting. Starts the 
+	 * disruptor threads if it is not running.
+	 * @param item
+	 * the item to submit
+	 * @return
+	 * true if the item was submitted, false if the ring buffer is full
+	 */
+	public boolean trySubmit(A item) {
+		if (!isRunning) {
+			startIfNotRunning();
+		}
+		long sequence;
+		try {
+			sequence = ringBuffer.tryNext();
+		} catch (InsufficientCapacityException e) {
+			return false;
+		}
+		track();
+		setEvent(sequence, item);
+		ringBuffer.publish(sequence);
+		recordPublished(sequence, 1);
+		return true;
+	}
+	
+	/**
+	 * Submits an item to the disruptor. If the ring buffer is full, waits
+	 * for at most the given amount of time for a free slot. Starts the 
+	 * disruptor threads if it is not running.
+	 * @param item
+	 * the item to submit
+	 * @param timeout
+	 * the maximal time to wait
+	 * @param unit
+	 * the time unit of the timeout
+	 * @return
+	 * true if the item was submitted, false if the timeout elapsed
+	 * before a free slot was available
+	 */
+	public boolean submit(A item, long timeout, TimeUnit unit) {
+		if (trySubmit(item)) {
+			return true;
+		}
+		fullBufferStalls.increment();
+		long startTime = System.nanoTime();
+		long deadline = startTime + unit.toNanos(timeout);
+		int attempt = 0;
+		try {
+			while (System.nanoTime() - deadline < 0) {
+				backOff(attempt++);
+				if (trySubmit(item)) {
+					return true;
+				}
+			}
+			return false;
+		} finally {
+			stallNanos.add(System.nanoTime() - startTime);
+		}
+	}
+
+	/**
+	 * Submits all items of the given collection to the disruptor. Items are
+	 * published in batches, claiming a range of sequences in the ring buffer
+	 * at once for each batch. Items that equal {@code null} are skipped.
+	 * Starts the disruptor threads if it is not running.
+	 * @param items
+	 * the items to submit
+	 */
+	public void submitAll(Collection<? extends A> items) {
+		submitAll(items.iterator(), items.size());
+	}
+	
+	/**
+	 * Submits all items of the given array to the disruptor. Items are
+	 * published in batches, claiming a range of sequences in the ring buffer
+	 * at once for each batch. Items that equal {@code null} are skipped.
+	 * Starts the disruptor threads if it is not running.
+	 * @param items
+	 * the items to submit
+	 */
+	public void submitAll(A[] items) {
+		submitAll(Arrays.asList(items).iterator(), items.length);
+	}
+	
+	/**
+	 * Submits all remaining items of the given iterator to the disruptor. Items are
+	 * published in batches, claiming a range of sequences in the ring buffer
+	 * at once for each batch. Items that equal {@code null} are skipped.
+	 * Starts the disruptor threads if it is not running.
+	 * @param items
+	 * an iterator over the items to submit
+	 */
+	public void submitAll(Iterator<? extends A> items) {
+		submitAll(items, Integer.MAX_VALUE);
+	}
+	
+	private void submitAll(Iterator<? extends A> items, int expectedSize) {
+		if (!items.hasNext()) {
+			return;
+		}
+		if (!isRunning) {
+			startIfNotRunning();
+		}
+		boolean isTracking = isTracking();
+		//a batch may not be larger than the ring buffer itself
+		int maxBatchSize = Math.min(Math.min(bufferSize, MAX_BATCH_SIZE), expectedSize);
+		@SuppressWarnings("unchecked")
+		A[] batch = (A[]) new Object[maxBatchSize];
+		while (items.hasNext()) {
+			int batchSize = 0;
+			while (batchSize < maxBatchSize && items.hasNext()) {
+				A item = items.next();
+				if (item != null) {
+					batch[batchSize++] = item;
+				}
+			}
+			if (batchSize == 0) {
+				return;
+			}
+			// claim the sequences for the whole batch at once
+			long hi = claim(batchSize);
+			long lo = hi - (batchSize - 1);
+			for (int i = 0; i < batchSize; ++i) {
+				setEvent(lo + i, batch[i]);
+				batch[i] = null;
+				if (isTracking) {
+					track();
+				}
+			}
+			ringBuffer.publish(lo, hi);
+			recordPublished(hi, batchSize);
+		}
+	}
+
+	/**
+	 * Tracks the progress for a submitted element if tracking has been enabled.
+	 * Since items may be submitted by multiple threads concurrently, the tracker
+	 * is only accessed while holding a lock. The lock is not acquired if
+	 * tracking is disabled.
+	 */
+	@Override
+	public void track() {
+		if (isTracking()) {
+			synchronized (trackLock) {
+				Trackable.super.track();
+			}
+		}
 	}
 
 	@Override
@@ -0,0 +1,73 @@
+package se.de.hu_berlin.informatik.utils.threaded.disruptor;
+
+import java.util.concurrent.TimeUnit;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.BusySpinWaitStrategy;
+import com.lmax.disruptor.PhasedBackoffWaitStrategy;
+import com.lmax.disruptor.SleepingWaitStrategy;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.YieldingWaitStrategy;
+
+/**
+ * Selectable strategies that event handler threads of a {@link DisruptorProvider}
+ * use to wait for new events.
+ *
+ * <p> The strategies differ in the trade-off between latency and CPU usage:
+ * {@link #BUSY_SPIN} yields the lowest latency but keeps a core busy for each
+ * handler thread, while {@link #BLOCKING} uses a lock and a condition variable
+ * and thus costs the most latency per hand-off, but does not burn CPU cycles
+ * while idle.
+ *
+ * @author Simon Heiden
+ */
+public enum DisruptorWaitStrategy {
+
+	/**
+	 * Busy spins in a tight loop. Lowest latency, but each handler thread
+	 * occupies a whole core. Should only be used if the number of handler
+	 * threads is lower than the number of available cores.
+	 */
+	BUSY_SPIN,
+	/**
+	 * Spins for a while and then yields the thread. Low latency, but high
+	 * CPU usage while idle.
+	 */
+	YIELDING,
+	/**
+	 * Spins, then yields and then parks the thread for short periods.
+	 * A good compromise between latency and CPU usage.
+	 */
+	SLEEPING,
+	/**
+	 * Spins for 1 microsecond, then yields for up to 1 millisecond and
+	 * falls back to blocking after that.
+	 */
+	PHASED_BACKOFF,
+	/**
+	 * Uses a lock and a condition variable. Highest latency, but idle
+	 * threads do not use any CPU. This is the default.
+	 */
+	BLOCKING;
+
+	/**
+	 * @return
+	 * a new wait strategy instance that corresponds to this strategy type
+	 */
+	public WaitStrategy newInstance() {
+		switch (this) {
+		case BUSY_SPIN:
+			return new BusySpinWaitStrategy();
+		case YIELDING:
+			return new YieldingWaitStrategy();
+		case SLEEPING:
+			return new SleepingWaitStrategy();
+		case PHASED_BACKOFF:
+			return PhasedBackoffWaitStrategy.withLock(1, 1000, TimeUnit.MICROSECONDS);
+		case BLOCKING:
+		default:
+			return new BlockingWaitStrategy();
+		}
+	}
+
+}
@@ -1,5 +1,13 @@
 package se.de.hu_berlin.informatik.utils.threaded.disruptor;
 
+/**
+ * A multiplexer collects output items that are generated by multiple
+ * threads and processes them inside of a single thread.
+ * 
+ * @author Simon Heiden
+ * @param <B>
+ * the type of objects that are processed
+ */
 public interface Multiplexer<B> extends Runnable {
 
 	/**
@@ -29,19 +37,35 @@ public interface Multiplexer<B> extends Runnable {
 	public void shutdown();
 	
 	/**
-	 * Checks for any pending items and processes each item that is valid.
-	 * @param handlers
-	 * the connected handlers
-	 */
-	default public void processPendingItems(MultiplexerInput<B>[] handlers) {
-		for (int i = 0; i < handlers.length; ++i) {
-			//check for validity
-			if (handlers[i].outputItemIsValid()) {
-				//get the output and notify the handler
-				B result = handlers[i].getValidOutputAndNotifyHandler();
-				//process valid item
-				processNewOutputItem(result);
-			}
+	 * Waits until all output items that are available at the time of calling 
+	 * this method have been collected and processed by the multiplexer thread.
+	 * Does not shut down the multiplexer thread. Returns immediately if the 
+	 * multiplexer is not running.
+	 */
+	public void waitForPendingItems();
+	
+	/**
+	 * Publishes an output item to be collected and processed by the 
+	 * multiplexer thread. May be called by multiple threads concurrently.
+	 * Waits for free space if the multiplexer's buffer is full.
+	 * @param item
+	 * the item to publish (not {@code null})
+	 */
+	public void submitItem(B item);
+	
+	/**
+	 * Publishes the first {@code count} output items of the given array to be 
+	 * collected and processed by the multiplexer thread. May be called by 
+	 * multiple threads concurrently. Waits for free space if the multiplexer's
+	 * buffer is full. Per default, publishes the items one by one.
+	 * @param items
+	 * an array containing the items to publish (not {@code null})
+	 * @param count
+	 * the number of items to publish
+	 */
+	default public void submitItems(B[] items, int count) {
+		for (int i = 0; i < count; ++i) {
+			submitItem(items[i]);
 		}
 	}
 	
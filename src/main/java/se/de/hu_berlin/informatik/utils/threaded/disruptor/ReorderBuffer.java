@@ -0,0 +1,164 @@
+package se.de.hu_berlin.informatik.utils.threaded.disruptor;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Restores the submission order of output items that are produced by
+ * multiple handler threads. Each handler completes an input item by passing
+ * all output items that it produced for it, together with the input item's
+ * sequence number in the disruptor's ring buffer. Completed output items are
+ * passed on to a multiplexer strictly in the order of the sequence numbers.
+ *
+ * <p> Handlers do not wait for each other. Output items that were completed
+ * out of order are stored in a bounded buffer, and the handler that completes
+ * the next expected sequence passes on all consecutive completed output items.
+ * Only handlers that are ahead by more than the buffer's capacity have to wait.
+ * If the capacity is at least the size of the disruptor's ring buffer, this
+ * may not happen for a longer time, since the ring buffer does not allow to
+ * submit an input item before all input items that are older by the ring
+ * buffer's size were processed.
+ *
+ * @author Simon Heiden
+ * @param <B>
+ * the type of output items
+ */
+public class ReorderBuffer<B> {
+
+	private static final Object[] NO_OUTPUT = new Object[0];
+
+	private final Multiplexer<B> multiplexer;
+	private final AtomicReferenceArray<Object[]> slots;
+	private final int mask;
+
+	//only modified by the thread that holds the release flag
+	private volatile long nextSequence = 0;
+	private final AtomicBoolean isReleasing = new AtomicBoolean(false);
+
+	/**
+	 * Creates a new reorder buffer.
+	 * @param capacity
+	 * the maximal number of completed input items that may be stored
+	 * out of order; will be rounded up to a power of two
+	 * @param multiplexer
+	 * the multiplexer to pass the ordered output items on to
+	 */
+	public ReorderBuffer(int capacity, Multiplexer<B> multiplexer) {
+		super();
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive.");
+		}
+		if (multiplexer == null) {
+			throw new IllegalStateException("No multiplexer given (null).");
+		}
+		this.multiplexer = multiplexer;
+		int size = capacity > 1 ? Integer.highestOneBit(capacity - 1) << 1 : 1;
+		this.slots = new AtomicReferenceArray<>(size);
+		this.mask = size - 1;
+	}
+
+	/**
+	 * @return
+	 * the maximal number of completed input items that may be stored out of order
+	 */
+	public int getCapacity() {
+		return slots.length();
+	}
+
+	/**
+	 * Completes the input item with the given sequence number. The given
+	 * output items are passed on to the multiplexer after the output items
+	 * of all input items with lower sequence numbers. Each sequence number
+	 * has to be completed exactly once, even if no output was produced.
+	 * @param sequence
+	 * the sequence number of the input item
+	 * @param outputs
+	 * the output items produced for the input item (may be {@code null});
+	 * the items get copied, such that the array may be reused afterwards
+	 * @param count
+	 * the number of output items in the given array
+	 */
+	public void complete(long sequence, B[] outputs, int count) {
+		if (sequence < 0) {
+			throw new IllegalArgumentException("Invalid sequence number: " + sequence);
+		}
+		Object[] items = count == 0 || outputs == null ? NO_OUTPUT : Arrays.copyOf(outputs, count, Object[].class);
+		//wait if the item is too far ahead of the oldest incomplete item
+		int attempt = 0;
+		while (sequence - nextSequence >= slots.length()) {
+			release();
+			DisruptorProvider.backOff(attempt++);
+		}
+		slots.set((int) (sequence & mask), items);
+		release();
+	}
+
+	/**
+	 * Waits until the input item with the given sequence number may be 
+	 * completed without waiting, i.e., until it is not ahead of the oldest 
+	 * incomplete input item by more than the capacity of this buffer.
+	 * May be used to throttle the submission of input items if their
+	 * number is not limited otherwise.
+	 * @param sequence
+	 * the sequence number of an input item
+	 */
+	public void awaitCapacity(long sequence) {
+		int attempt = 0;
+		while (sequence - nextSequence >= slots.length()) {
+			DisruptorProvider.backOff(attempt++);
+		}
+	}
+
+	/**
+	 * Passes on the output items of all consecutive completed input items,
+	 * starting at the next expected sequence number. Does nothing if another
+	 * thread is already doing this.
+	 */
+	@SuppressWarnings("unchecked")
+	private void release() {
+		while (isReleasing.compareAndSet(false, true)) {
+			try {
+				long next = nextSequence;
+				int index;
+				Object[] items;
+				while ((items = slots.get(index = (int) (next & mask))) != null) {
+					slots.set(index, null);
+					if (items.length > 0) {
+						multiplexer.submitItems((B[]) items, items.length);
+					}
+					nextSequence = ++next;
+				}
+			} finally {
+				isReleasing.set(false);
+			}
+			//another thread may have completed the next sequence
+			//after the check, but before the flag was reset
+			if (slots.get((int) (nextSequence & mask)) == null) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return
+	 * the sequence number of the next input item whose output is expected
+	 */
+	public long getNextSequence() {
+		return nextSequence;
+	}
+
+	/**
+	 * Resets the expected sequence number to 0. Has to be called after
+	 * the disruptor was shut down, since the sequence numbers of a new
+	 * disruptor instance start at 0 again. All input items have to be
+	 * completed at this point.
+	 */
+	public void reset() {
+		for (int i = 0; i < slots.length(); ++i) {
+			slots.set(i, null);
+		}
+		nextSequence = 0;
+	}
+
+}
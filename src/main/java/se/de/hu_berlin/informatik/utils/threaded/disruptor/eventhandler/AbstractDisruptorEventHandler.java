@@ -28,6 +28,7 @@ public abstract class AbstractDisruptorEventHandler<A> extends BasicComponent im
 
     private ThreadLimit limit = ThreadLimitDummy.getInstance();
 	private boolean singleConsumer = false;
+	private long currentSequence = -1;
     
     /**
      * Creates a {@link AbstractDisruptorEventHandler}.
@@ -55,15 +56,29 @@ public abstract class AbstractDisruptorEventHandler<A> extends BasicComponent im
     
     @Override
     public void onEvent(SingleUseEvent<A> event, long sequence, boolean endOfBatch) throws Exception {
-    	limit.acquireSlot();
 //		Log.out(this, event.get().toString() + " " + sequence);
+    	processEventWithinThreadLimit(event);
+	}
+    
+    /**
+     * Acquires a slot from the set thread limit, processes the item that is
+     * provided by the given event and releases the slot afterwards.
+     * @param event
+     * the event that provides the item to process
+     * @throws Exception
+     * if an error occurs while processing the item
+     */
+    protected void processEventWithinThreadLimit(SingleUseEvent<A> event) throws Exception {
+    	int weight = getThreadLimitWeight();
+    	limit.acquireSlots(weight);
     	try {
+    		currentSequence = event.getSequence();
     		resetAndInit();
     		processEvent(event.get());
     	} finally {
-    		limit.releaseSlot();
+    		limit.releaseSlots(weight);
     	}
-	}
+    }
 	
     /**
      * @param isSingle
@@ -78,6 +93,24 @@ public abstract class AbstractDisruptorEventHandler<A> extends BasicComponent im
 		return singleConsumer;
 	}
     
+    /**
+     * @return
+     * the number of slots of the set thread limit that are occupied
+     * while processing a single event; 1 per default
+     */
+    protected int getThreadLimitWeight() {
+    	return 1;
+    }
+    
+    /**
+     * @return
+     * the sequence number of the event that is currently processed,
+     * or -1 if not available
+     */
+    protected long getCurrentSequence() {
+    	return currentSequence;
+    }
+    
 	/**
 	 * Processes a single item that is provided by an event. Has to be implemented
 	 * by extending classes.
@@ -1,5 +1,7 @@
 package se.de.hu_berlin.informatik.utils.threaded.disruptor.eventhandler;
 
+import com.lmax.disruptor.WorkHandler;
+
 import se.de.hu_berlin.informatik.utils.threaded.disruptor.DisruptorProvider;
 
 /**
@@ -7,12 +9,17 @@ import se.de.hu_berlin.informatik.utils.threaded.disruptor.DisruptorProvider;
  * a "first come, first serve" (FCFS) strategy to assign a handler to a single event.
  * Any published event may be processed by any idle handler.
  * 
+ * <p> If multiple handlers are connected to a {@link DisruptorProvider}, they
+ * are used as work handlers of a worker pool per default. Each event is then
+ * delivered to exactly one handler. Otherwise, every handler sees every event
+ * and the handlers race for each event via {@link MultiUseEvent#isFirstAccess()}.
+ * 
  * @author Simon Heiden
  * @param <A>
  * the type of elements that shall be processed by this handler
  * @see DisruptorProvider
  */
-public abstract class DisruptorFCFSEventHandler<A> extends AbstractDisruptorEventHandler<A> {
+public abstract class DisruptorFCFSEventHandler<A> extends AbstractDisruptorEventHandler<A> implements WorkHandler<SingleUseEvent<A>> {
 
     /**
      * Creates a {@link DisruptorFCFSEventHandler}.
@@ -31,8 +38,6 @@ public abstract class DisruptorFCFSEventHandler<A> extends AbstractDisruptorEven
     	super(isSingle);
     }
     
-   
-    
 	@Override
 	public void onEvent(SingleUseEvent<A> event, long sequence, boolean endOfBatch) throws Exception {
 		if (isSingleConsumer() || event.isFirstAccess()) {
@@ -40,4 +45,10 @@ public abstract class DisruptorFCFSEventHandler<A> extends AbstractDisruptorEven
         }
 	}
 	
+	@Override
+	public void onEvent(SingleUseEvent<A> event) throws Exception {
+		//work handlers of a worker pool get each event exclusively
+		processEventWithinThreadLimit(event);
+	}
+	
 }
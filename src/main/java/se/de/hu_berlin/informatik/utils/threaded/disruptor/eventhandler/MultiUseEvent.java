@@ -13,6 +13,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class MultiUseEvent<T> implements Event<T> {
 	
 	private T item;
+	private long sequence = -1;
 	
 	private AtomicBoolean isFirstAccess = new AtomicBoolean(false);
 
@@ -25,6 +26,24 @@ public class MultiUseEvent<T> implements Event<T> {
 	public void setWithoutValidation(T item) {
 		this.item = item;
 	}
+	
+	/**
+	 * Sets the sequence number of this event in the ring buffer.
+	 * @param sequence
+	 * the sequence number
+	 */
+	public void setSequence(long sequence) {
+		this.sequence = sequence;
+	}
+	
+	/**
+	 * @return
+	 * the sequence number of this event in the ring buffer, 
+	 * or -1 if not set
+	 */
+	public long getSequence() {
+		return sequence;
+	}
 
 	@Override
 	public T get() {
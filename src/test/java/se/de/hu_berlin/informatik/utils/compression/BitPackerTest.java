@@ -0,0 +1,198 @@
+/**
+ *
+ */
+package se.de.hu_berlin.informatik.utils.compression;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import se.de.hu_berlin.informatik.utils.compression.single.BufferedCompressedByteArrayToLongQueueProcessor;
+import se.de.hu_berlin.informatik.utils.compression.single.BufferedLongsToCompressedByteArrayProcessor;
+import se.de.hu_berlin.informatik.utils.compression.ziputils.ZipFileWrapper;
+import se.de.hu_berlin.informatik.utils.miscellaneous.TestSettings;
+
+/**
+ * @author Simon
+ *
+ */
+public class BitPackerTest extends TestSettings {
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+	}
+
+	@Test
+	public void testBitLayout() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BitPacker packer = new BitPacker(out);
+		packer.write(1, 1);
+		packer.write(0, 2);
+		packer.write(5, 3);
+		//higher bits get ignored
+		packer.write(0xFF, 4);
+		assertEquals(10, packer.getBitCount());
+		packer.finish();
+		assertEquals(16, packer.getBitCount());
+
+		byte[] expected = { (byte)Integer.parseInt("10010111", 2), (byte)Integer.parseInt("11000000", 2) };
+		assertArrayEquals(expected, out.toByteArray());
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		Random random = new Random(42);
+		int count = 10000;
+		int[] bits = new int[count];
+		long[] values = new long[count];
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		//use a small buffer to test writing to the stream
+		BitPacker packer = new BitPacker(out, 8);
+		for (int i = 0; i < count; ++i) {
+			bits[i] = random.nextInt(64) + 1;
+			values[i] = random.nextLong() & (-1L >>> (64 - bits[i]));
+			packer.write(values[i], bits[i]);
+		}
+		packer.finish();
+		byte[] packed = out.toByteArray();
+		assertEquals((packer.getBitCount() + 7) / 8, packed.length);
+
+		BitUnpacker unpacker = new BitUnpacker(packed, 0);
+		BitUnpacker streamUnpacker = new BitUnpacker(new ByteArrayInputStream(packed), 3);
+		for (int i = 0; i < count; ++i) {
+			assertEquals(values[i], unpacker.read(bits[i]));
+			assertEquals(values[i], streamUnpacker.read(bits[i]));
+		}
+		assertFalse(unpacker.hasRemaining(8));
+		assertFalse(streamUnpacker.hasRemaining(8));
+	}
+
+	@Test
+	public void testHasRemainingForWideValues() throws Exception {
+		Random random = new Random(42);
+		int count = 1000;
+		for (int bits = 50; bits <= 64; ++bits) {
+			long[] values = new long[count];
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			BitPacker packer = new BitPacker(out, 8);
+			for (int i = 0; i < count; ++i) {
+				values[i] = random.nextLong() & (-1L >>> (64 - bits));
+				packer.write(values[i], bits);
+			}
+			packer.finish();
+			byte[] packed = out.toByteArray();
+
+			BitUnpacker unpacker = new BitUnpacker(packed, 0);
+			BitUnpacker streamUnpacker = new BitUnpacker(new ByteArrayInputStream(packed), 3);
+			for (int i = 0; i < count; ++i) {
+				assertTrue("value " + i + " with " + bits + " bits", unpacker.hasRemaining(bits));
+				assertEquals(values[i], unpacker.read(bits));
+				assertTrue("value " + i + " with " + bits + " bits", streamUnpacker.hasRemaining(bits));
+				assertEquals(values[i], streamUnpacker.read(bits));
+			}
+			//only the padding bits of the last byte are left
+			assertFalse(unpacker.hasRemaining(bits));
+			assertFalse(streamUnpacker.hasRemaining(bits));
+		}
+	}
+
+	@Test
+	public void testLongProcessorRoundTripWithLargeValues() throws Exception {
+		Path zipFilePath = Paths.get(getStdTestDir(), "largeLongs.zip");
+		long maxValue = Long.MAX_VALUE - 1;
+		BufferedLongsToCompressedByteArrayProcessor encoder = 
+				new BufferedLongsToCompressedByteArrayProcessor(zipFilePath, "longs", true, maxValue, true);
+		Random random = new Random(42);
+		long[] values = new long[1000];
+		for (int i = 0; i < values.length; ++i) {
+			values[i] = i % 2 == 0 ? maxValue - i : random.nextLong() & Long.MAX_VALUE >>> 1;
+			encoder.processLong(values[i], null);
+		}
+		encoder.getResultFromCollectedItems();
+
+		ZipFileWrapper zipFileWrapper = ZipFileWrapper.getZipFileWrapper(zipFilePath);
+		//closes the open output stream of the zip file
+		assertTrue(zipFileWrapper.exists("longs"));
+		Queue<Long> result = new BufferedCompressedByteArrayToLongQueueProcessor(
+				zipFileWrapper, true, new ArrayDeque<>()).processItem("longs");
+		assertEquals(values.length, result.size());
+		for (long value : values) {
+			assertEquals(value, result.poll().longValue());
+		}
+	}
+
+	@Test(expected = EOFException.class)
+	public void testReadPastEnd() throws Exception {
+		BitUnpacker unpacker = new BitUnpacker(new byte[] { 1, 2, 3 }, 1);
+		assertEquals(2, unpacker.readInt(8));
+		assertTrue(unpacker.hasRemaining(8));
+		unpacker.readInt(9);
+	}
+
+
+	@Test
+	public void testByteArrayBuilder() throws Exception {
+		//start with a tiny capacity to test growing
+		ByteArrayBuilder builder = new ByteArrayBuilder(1);
+		builder.write(7);
+		builder.writeInt(0);
+		BitPacker packer = new BitPacker(builder, 8);
+		for (int i = 0; i < 100; ++i) {
+			packer.write(i, 7);
+		}
+		packer.finish();
+		builder.setInt(1, 0x01020304);
+		assertEquals(5 + (100 * 7 + 7) / 8, builder.size());
+
+		byte[] result = builder.toByteArray();
+		assertEquals(builder.size(), result.length);
+		assertArrayEquals(new byte[] { 7, 1, 2, 3, 4 }, Arrays.copyOf(result, 5));
+		assertEquals(result.length, builder.toByteBuffer().remaining());
+		BitUnpacker unpacker = new BitUnpacker(result, 5);
+		for (int i = 0; i < 100; ++i) {
+			assertEquals(i, unpacker.readInt(7));
+		}
+
+		builder.reset();
+		assertEquals(0, builder.size());
+	}
+
+}
@@ -0,0 +1,382 @@
+/**
+ *
+ */
+package se.de.hu_berlin.informatik.utils.compression;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import se.de.hu_berlin.informatik.utils.compression.ziputils.ZipFileWrapper;
+import se.de.hu_berlin.informatik.utils.files.FileUtils;
+import se.de.hu_berlin.informatik.utils.miscellaneous.TestSettings;
+
+/**
+ * @author Simon
+ *
+ */
+public class IntSequenceCursorTest extends TestSettings {
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+	}
+
+	private static final int[][] SEQUENCES = { { 0, 5, 3 }, {}, { 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 1 }, { 2 } };
+
+	private static void assertSequences(int[][] expected, IntSequenceCursor cursor) throws IOException {
+		for (int[] sequence : expected) {
+			assertTrue(cursor.next());
+			assertEquals(sequence.length, cursor.length());
+			for (int i = 0; i < sequence.length; ++i) {
+				assertEquals(sequence[i], cursor.get(i));
+			}
+			assertArrayEquals(sequence, cursor.toArray());
+		}
+		assertFalse(cursor.next());
+		assertFalse(cursor.next());
+	}
+
+	@Test
+	public void testByteArrayWithDelimiters() throws Exception {
+		IntArraysToCompressedByteArrayProcessor encoder = new IntArraysToCompressedByteArrayProcessor(7, true);
+		for (int[] sequence : SEQUENCES) {
+			encoder.processItem(sequence);
+		}
+		byte[] array = encoder.getResultFromCollectedItems();
+
+		try (IntSequenceCursor cursor = IntSequenceCursor.of(array, true)) {
+			assertEquals(0, cursor.getSequenceLength());
+			assertEquals(SEQUENCES.length, cursor.getTotalSequences());
+			assertSequences(SEQUENCES, cursor);
+		}
+
+		//direct buffers are not backed by an array
+		ByteBuffer buffer = ByteBuffer.allocateDirect(array.length + 2);
+		buffer.put(new byte[] { 42, 42 }).put(array).position(2);
+		try (IntSequenceCursor cursor = IntSequenceCursor.of(buffer, true)) {
+			assertSequences(SEQUENCES, cursor);
+		}
+		assertEquals(2, buffer.position());
+	}
+
+	@Test
+	public void testIntermediateResults() throws Exception {
+		IntArraysToCompressedByteArrayProcessor encoder = new IntArraysToCompressedByteArrayProcessor(7, true);
+		encoder.processItem(new int[] { 1, 2 });
+		byte[] first = encoder.getResultFromCollectedItems();
+		encoder.processItem(new int[] { 3, 2, 1 });
+		byte[] second = encoder.getResultFromCollectedItems();
+
+		assertArrayEquals(new int[][] { { 1, 2 } }, new CompressedByteArrayToIntArraysProcessor(true).processItem(first));
+		assertArrayEquals(new int[][] { { 1, 2 }, { 3, 2, 1 } },
+				new CompressedByteArrayToIntArraysProcessor(true).processItem(second));
+		assertArrayEquals(second, encoder.getResultFromCollectedItems());
+	}
+
+	@Test
+	public void testByteArrayWithFixedLength() throws Exception {
+		int[][] sequences = { { 0, 1, 2 }, { 3, 2, 1 } };
+		IntArraysToCompressedByteArrayProcessor encoder = new IntArraysToCompressedByteArrayProcessor(3, 3, false);
+		for (int[] sequence : sequences) {
+			encoder.processItem(sequence);
+		}
+
+		try (IntSequenceCursor cursor = IntSequenceCursor.of(ByteBuffer.wrap(encoder.getResultFromCollectedItems()), false)) {
+			assertEquals(3, cursor.getSequenceLength());
+			assertSequences(sequences, cursor);
+		}
+	}
+
+	private static byte[] encodeStreamFormat(int[][] sequences, int sequenceLength, boolean withEndMarker) throws IOException {
+		return encodeStreamFormat(sequences, sequenceLength, withEndMarker, null);
+	}
+
+	private static byte[] encodeStreamFormat(int[][] sequences, int sequenceLength, boolean withEndMarker,
+			SequenceIndex index) throws IOException {
+		ByteArrayBuilder builder = new ByteArrayBuilder();
+		builder.write(4);
+		builder.writeInt(sequenceLength);
+		BitPacker packer = new BitPacker(builder);
+		for (int[] sequence : sequences) {
+			if (index != null) {
+				index.addSequence(40 + packer.getBitCount());
+			}
+			for (int element : sequence) {
+				packer.write(sequenceLength == 0 ? element + 2 : element + 1, 4);
+			}
+			if (sequenceLength == 0) {
+				packer.write(BufferedCompressedByteArrayToIntArrayQueueProcessor.DELIMITER, 4);
+			}
+		}
+		if (withEndMarker) {
+			packer.write(BufferedCompressedByteArrayToIntArrayQueueProcessor.TOTAL_END_MARKER, 4);
+		}
+		packer.finish();
+		return builder.toByteArray();
+	}
+
+	@Test
+	public void testInputStream() throws Exception {
+		byte[] array = encodeStreamFormat(SEQUENCES, 0, true);
+		try (IntSequenceCursor cursor = IntSequenceCursor.of(new ByteArrayInputStream(array), true)) {
+			assertEquals(-1, cursor.getTotalSequences());
+			assertSequences(SEQUENCES, cursor);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testMissingEndMarker() throws Exception {
+		byte[] array = encodeStreamFormat(new int[][] { { 1, 2 }, { 3, 4 } }, 2, false);
+		try (IntSequenceCursor cursor = IntSequenceCursor.of(new ByteArrayInputStream(array), true)) {
+			assertTrue(cursor.next());
+			assertTrue(cursor.next());
+			cursor.next();
+		}
+	}
+
+	@Test
+	public void testZipEntry() throws Exception {
+		Path zipFilePath = Paths.get(getStdTestDir(), "cursorTest.zip");
+		zipFilePath.getParent().toFile().mkdirs();
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipFilePath.toFile()))) {
+			out.putNextEntry(new ZipEntry("sequences"));
+			out.write(encodeStreamFormat(SEQUENCES, 0, true));
+			out.closeEntry();
+		}
+
+		ZipFileWrapper zipFileWrapper = ZipFileWrapper.getZipFileWrapper(zipFilePath);
+		try (IntSequenceCursor cursor = IntSequenceCursor.of(zipFileWrapper, "sequences", true)) {
+			assertSequences(SEQUENCES, cursor);
+		}
+		try {
+			IntSequenceCursor.of(zipFileWrapper, "missing", true);
+			fail("expected an exception for a missing entry");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	private static int[][] randomSequences(int count, int maxValue) {
+		Random random = new Random(42);
+		int[][] sequences = new int[count][];
+		for (int i = 0; i < count; ++i) {
+			sequences[i] = new int[random.nextInt(10)];
+			for (int j = 0; j < sequences[i].length; ++j) {
+				sequences[i][j] = random.nextInt(maxValue + 1);
+			}
+		}
+		return sequences;
+	}
+
+	private static void assertSeek(int[][] expected, IntSequenceCursor cursor, int... sequences) throws IOException {
+		for (int sequence : sequences) {
+			cursor.seek(sequence);
+			assertTrue(cursor.next());
+			assertArrayEquals(expected[sequence], cursor.toArray());
+		}
+	}
+
+	@Test
+	public void testSeek() throws Exception {
+		//fixed length
+		int[][] fixed = { { 0, 1, 2 }, { 3, 2, 1 }, { 1, 1, 1 }, { 2, 2, 2 } };
+		IntArraysToCompressedByteArrayProcessor encoder = new IntArraysToCompressedByteArrayProcessor(3, 3, false);
+		for (int[] sequence : fixed) {
+			encoder.processItem(sequence);
+		}
+		try (IntSequenceCursor cursor = IntSequenceCursor.of(encoder.getResultFromCollectedItems(), false)) {
+			assertSeek(fixed, cursor, 2, 0, 1, 1, 3);
+			assertFalse(cursor.next());
+		}
+
+		//delimiters without index
+		int[][] sequences = randomSequences(100, 12);
+		encoder = new IntArraysToCompressedByteArrayProcessor(12, true);
+		for (int[] sequence : sequences) {
+			encoder.processItem(sequence);
+		}
+		try (IntSequenceCursor cursor = IntSequenceCursor.of(encoder.getResultFromCollectedItems(), true)) {
+			assertSeek(sequences, cursor, 57, 3, 99, 0, 42);
+			assertTrue(cursor.next());
+			assertArrayEquals(sequences[43], cursor.toArray());
+		}
+
+		//delimiters with index
+		SequenceIndex index = new SequenceIndex(8);
+		byte[] array = encodeStreamFormat(sequences, 0, true, index);
+		index = SequenceIndex.fromByteArray(index.toByteArray());
+		assertEquals(100, index.getTotalSequences());
+		assertEquals(56, index.getBlockStart(57));
+		try (IntSequenceCursor cursor = IntSequenceCursor.of(new ByteArrayInputStream(array), true).setIndex(index)) {
+			assertSeek(sequences, cursor, 5, 17, 57, 58, 99);
+			try {
+				cursor.seek(3);
+				fail("expected an exception for seeking backwards in a stream");
+			} catch (IOException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testIndexedZipEntry() throws Exception {
+		Path zipFilePath = Paths.get(getStdTestDir(), "indexTest.zip");
+		FileUtils.delete(zipFilePath);
+		int[][] sequences = randomSequences(1000, 100);
+		BufferedIntArraysToCompressedByteArrayProcessor encoder = new BufferedIntArraysToCompressedByteArrayProcessor(
+				zipFilePath, "sequences", true, 100, true).enableIndex(16);
+		for (int[] sequence : sequences) {
+			encoder.processItem(sequence);
+		}
+		encoder.getResultFromCollectedItems();
+
+		ZipFileWrapper zipFileWrapper = ZipFileWrapper.getZipFileWrapper(zipFilePath);
+		SequenceIndex index = SequenceIndex.load(zipFileWrapper, "sequences");
+		assertNotNull(index);
+		assertEquals(1000, index.getTotalSequences());
+		assertEquals(16, index.getBlockSize());
+
+		try (IntSequenceCursor cursor = IntSequenceCursor.of(zipFileWrapper, "sequences", true)) {
+			assertSeek(sequences, cursor, 999, 500, 3, 0, 517);
+			cursor.seek(0);
+			assertSequences(sequences, cursor);
+		}
+	}
+
+	private static int[][] codecTestSequences() {
+		Random random = new Random(7);
+		int[][] sequences = new int[50][];
+		for (int i = 0; i < sequences.length; ++i) {
+			sequences[i] = new int[i % 5 == 0 ? 0 : random.nextInt(400)];
+			int value = random.nextInt(1000);
+			for (int j = 0; j < sequences[i].length; ++j) {
+				switch (i % 4) {
+				case 0:
+					//sorted
+					value += random.nextInt(20);
+					break;
+				case 1:
+					//small with rare outliers
+					value = random.nextInt(100) == 0 ? random.nextInt() : random.nextInt(8);
+					break;
+				case 2:
+					//repetitions
+					value = random.nextInt(10) == 0 ? random.nextInt(5) - 2 : value;
+					break;
+				default:
+					value = random.nextInt();
+				}
+				sequences[i][j] = value;
+			}
+		}
+		return sequences;
+	}
+
+	private static byte[] encode(int[][] sequences, int sequenceLength, IntSequenceCodec codec) {
+		IntArraysToCompressedByteArrayProcessor encoder = new IntArraysToCompressedByteArrayProcessor(
+				7, sequenceLength, false).setCodec(codec);
+		for (int[] sequence : sequences) {
+			encoder.processItem(sequence);
+		}
+		return encoder.getResultFromCollectedItems();
+	}
+
+	@Test
+	public void testCodecs() throws Exception {
+		int[][] sequences = codecTestSequences();
+		int[][] fixed = { { 5, 5, 5, 5 }, { 1, 2, 3, 4 }, { -1, 0, 1000000, 7 } };
+		for (IntSequenceCodec codec : IntSequenceCodec.values()) {
+			assertEquals(codec, IntSequenceCodec.fromHeaderByte(codec.getHeaderByte()));
+
+			byte[] array = encode(sequences, 0, codec);
+			try (IntSequenceCursor cursor = IntSequenceCursor.of(array, true)) {
+				assertEquals(codec, cursor.getCodec());
+				assertSequences(sequences, cursor);
+				assertSeek(sequences, cursor, 31, 2, 49);
+			}
+			assertArrayEquals(sequences, new CompressedByteArrayToIntArraysProcessor(true).processItem(array));
+
+			try (IntSequenceCursor cursor = IntSequenceCursor.of(encode(fixed, 4, codec), false)) {
+				assertSequences(fixed, cursor);
+				assertSeek(fixed, cursor, 2, 0, 1);
+			}
+		}
+
+		//sorted values are stored more compactly with deltas
+		int[][] sorted = new int[10][1000];
+		for (int[] sequence : sorted) {
+			for (int i = 1; i < sequence.length; ++i) {
+				sequence[i] = sequence[i - 1] + 1 + i % 3;
+			}
+		}
+		IntArraysToCompressedByteArrayProcessor encoder = new IntArraysToCompressedByteArrayProcessor(3000, 1000, false);
+		for (int[] sequence : sorted) {
+			encoder.processItem(sequence);
+		}
+		assertTrue(encode(sorted, 1000, IntSequenceCodec.DELTA_VARINT).length < encoder.getResultFromCollectedItems().length);
+	}
+
+	@Test
+	public void testCodecZipEntry() throws Exception {
+		Path zipFilePath = Paths.get(getStdTestDir(), "codecTest.zip");
+		FileUtils.delete(zipFilePath);
+		int[][] sequences = codecTestSequences();
+		BufferedIntArraysToCompressedByteArrayProcessor encoder = new BufferedIntArraysToCompressedByteArrayProcessor(
+				zipFilePath, "sequences", true, 100, true).setCodec(IntSequenceCodec.PFOR).enableIndex(4);
+		for (int[] sequence : sequences) {
+			encoder.processItem(sequence);
+		}
+		encoder.getResultFromCollectedItems();
+
+		ZipFileWrapper zipFileWrapper = ZipFileWrapper.getZipFileWrapper(zipFilePath);
+		try (IntSequenceCursor cursor = IntSequenceCursor.of(zipFileWrapper, "sequences", true)) {
+			assertEquals(IntSequenceCodec.PFOR, cursor.getCodec());
+			assertSequences(sequences, cursor);
+			assertSeek(sequences, cursor, 45, 10, 11, 0);
+		}
+		Queue<int[]> result = new ArrayDeque<>();
+		new BufferedCompressedByteArrayToIntArrayQueueProcessor(zipFileWrapper, true, result).processItem("sequences");
+		assertArrayEquals(sequences, result.toArray(new int[0][]));
+	}
+
+}
@@ -0,0 +1,188 @@
+/**
+ *
+ */
+package se.de.hu_berlin.informatik.utils.threaded;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import se.de.hu_berlin.informatik.utils.processors.AbstractProcessor;
+import se.de.hu_berlin.informatik.utils.processors.basics.ThreadedProcessor;
+import se.de.hu_berlin.informatik.utils.processors.sockets.pipe.PipeLinker;
+
+/**
+ * @author Simon
+ *
+ */
+public class StripedThreadLimitTest {
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+	}
+
+	private static void updateMaximum(AtomicInteger maximum, int value) {
+		int current;
+		while ((current = maximum.get()) < value && !maximum.compareAndSet(current, value)) {
+			// try again
+		}
+	}
+
+	/**
+	 * Test method for {@link StripedThreadLimit#acquireSlots(int)}.
+	 * @throws Exception
+	 */
+	@Test
+	public void testLimitIsNeverExceeded() throws Exception {
+		final StripedThreadLimit limit = new StripedThreadLimit(4, 4);
+		assertEquals(4, limit.getNumberOfStripes());
+		assertEquals(4, limit.getAvailableSlots());
+
+		final AtomicInteger occupied = new AtomicInteger(0);
+		final AtomicInteger maximum = new AtomicInteger(0);
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 8; ++t) {
+			final int weight = t % 3 + 1;
+			Thread thread = new Thread(() -> {
+				for (int i = 0; i < 200; ++i) {
+					limit.acquireSlots(weight);
+					try {
+						updateMaximum(maximum, occupied.addAndGet(weight));
+						Thread.yield();
+					} finally {
+						occupied.addAndGet(-weight);
+						limit.releaseSlots(weight);
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertTrue(maximum.get() <= 4);
+		assertEquals(4, limit.getAvailableSlots());
+	}
+
+	@Test
+	public void testWaitingThreadGetsReleasedSlots() throws Exception {
+		final StripedThreadLimit limit = new StripedThreadLimit(8, 4);
+		final CountDownLatch acquired = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		// occupy all slots with threads that are likely mapped to other stripes
+		List<Thread> holders = new ArrayList<>();
+		final CountDownLatch holding = new CountDownLatch(4);
+		for (int t = 0; t < 4; ++t) {
+			Thread holder = new Thread(() -> {
+				limit.acquireSlots(2);
+				holding.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					// nothing
+				}
+				limit.releaseSlots(2);
+			});
+			holders.add(holder);
+			holder.start();
+		}
+		holding.await();
+		assertEquals(0, limit.getAvailableSlots());
+
+		// needs more slots than any stripe holds initially
+		Thread waiter = new Thread(() -> {
+			limit.acquireSlots(6);
+			acquired.countDown();
+		});
+		waiter.start();
+		assertFalse(acquired.await(50, TimeUnit.MILLISECONDS));
+
+		release.countDown();
+		assertTrue(acquired.await(1, TimeUnit.SECONDS));
+		for (Thread holder : holders) {
+			holder.join();
+		}
+		waiter.join();
+		assertEquals(2, limit.getAvailableSlots());
+		limit.releaseSlots(6);
+		assertEquals(8, limit.getAvailableSlots());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWeightTooLarge() throws Exception {
+		new StripedThreadLimit(2, 2).acquireSlots(3);
+	}
+
+	@Test
+	public void testWeightedProcessor() throws Exception {
+		final StripedThreadLimit limit = new StripedThreadLimit(4);
+		final AtomicInteger running = new AtomicInteger(0);
+		final AtomicInteger maximum = new AtomicInteger(0);
+		final AtomicInteger processed = new AtomicInteger(0);
+
+		PipeLinker linker = new PipeLinker().append(
+				new ThreadedProcessor<>(4, limit, new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						updateMaximum(maximum, running.incrementAndGet());
+						Thread.yield();
+						running.decrementAndGet();
+						processed.incrementAndGet();
+						return null;
+					}
+
+					@Override
+					public int getThreadLimitWeight() {
+						// each item occupies half of the slots
+						return 2;
+					}
+				}));
+
+		for (int i = 0; i < 500; ++i) {
+			linker.submit(i);
+		}
+		linker.shutdown();
+
+		assertEquals(500, processed.get());
+		assertTrue(maximum.get() <= 2);
+		assertEquals(4, limit.getAvailableSlots());
+	}
+
+}
@@ -4,9 +4,31 @@
 package se.de.hu_berlin.informatik.utils.tm.pipeframework.tests;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -15,8 +37,20 @@ import org.junit.Test;
 
 import se.de.hu_berlin.informatik.utils.miscellaneous.Log;
 import se.de.hu_berlin.informatik.utils.processors.AbstractProcessor;
+import se.de.hu_berlin.informatik.utils.processors.IntProcessor;
+import se.de.hu_berlin.informatik.utils.processors.Processor;
+import se.de.hu_berlin.informatik.utils.processors.basics.CollectionSequencer;
+import se.de.hu_berlin.informatik.utils.processors.basics.ThreadedProcessor;
+import se.de.hu_berlin.informatik.utils.processors.basics.WorkStealingProcessor;
+import se.de.hu_berlin.informatik.utils.processors.sockets.IntProducer;
+import se.de.hu_berlin.informatik.utils.processors.sockets.ProcessorSocket;
+import se.de.hu_berlin.informatik.utils.processors.sockets.module.Module;
+import se.de.hu_berlin.informatik.utils.processors.sockets.module.ModuleLinker;
+import se.de.hu_berlin.informatik.utils.processors.sockets.module.StreamLinker;
 import se.de.hu_berlin.informatik.utils.processors.sockets.pipe.Pipe;
 import se.de.hu_berlin.informatik.utils.processors.sockets.pipe.PipeLinker;
+import se.de.hu_berlin.informatik.utils.processors.sockets.pipe.PipeMetricsSnapshot;
+import se.de.hu_berlin.informatik.utils.threaded.disruptor.DisruptorWaitStrategy;
 
 /**
  * @author SimHigh
@@ -93,6 +127,49 @@ public class PipeTest {
 		assertEquals(40, processedElements.get());
 	}
 	
+	@Test
+	public void testRepeatedShutdown() throws Exception {
+		final AtomicInteger processedElements = new AtomicInteger(0);
+		PipeLinker linker = new PipeLinker();
+		for (int j = 0; j < 3; ++j) {
+			linker.append(
+					new AbstractProcessor<Integer, Integer>() {
+						@Override
+						public Integer processItem(Integer item) {
+							return item;
+						}
+					});
+		}
+		linker.append(
+				new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						processedElements.incrementAndGet();
+						return item;
+					}
+				});
+		
+		long totalDuration = 0;
+		for (int round = 1; round <= 20; ++round) {
+			for (int i = 0; i < 500; ++i) {
+				linker.submit(i);
+			}
+			long startTime = System.nanoTime();
+			linker.shutdown();
+			totalDuration += System.nanoTime() - startTime;
+			
+			// all items reached the last pipe before the shutdown returned
+			assertEquals(round * 500, processedElements.get());
+		}
+		// a fixed delay of 250 ms per pipe would take at least 20 s in total (4 pipes, 20 rounds)
+		long duration = TimeUnit.NANOSECONDS.toMillis(totalDuration);
+		assertTrue("shutdowns took " + duration + " ms", duration < 10000);
+		
+		// shutting down an idle pipe chain returns immediately
+		linker.shutdown();
+		assertEquals(20 * 500, processedElements.get());
+	}
+	
 	@Test
 	public void testManyInputs() throws Exception {
 		final AtomicInteger processedElements = new AtomicInteger(0);
@@ -189,4 +266,1042 @@ public class PipeTest {
 		assertEquals(15000, processedElements.get());
 	}
 	
+	@Test
+	public void testMultipleProducers() throws Exception {
+		final AtomicInteger processedElements = new AtomicInteger(0);
+		
+		Pipe<Integer, Integer> pipe = new AbstractProcessor<Integer, Integer>() {
+			@Override
+			public Integer processItem(Integer item) {
+				processedElements.incrementAndGet();
+				return item;
+			}
+		}.asPipe();
+		pipe.setProducerType(false);
+		
+		Thread[] producers = new Thread[4];
+		for (int j = 0; j < producers.length; ++j) {
+			producers[j] = new Thread(() -> {
+				for (int i = 0; i < 10000; ++i) {
+					pipe.submit(i);
+				}
+			});
+			producers[j].start();
+		}
+		for (Thread producer : producers) {
+			producer.join();
+		}
+		
+		pipe.shutdown();
+		
+		assertEquals(40000, processedElements.get());
+	}
+	
+	@Test
+	public void testBatchSubmission() throws Exception {
+		final AtomicInteger processedElements = new AtomicInteger(0);
+		PipeLinker linker = new PipeLinker();
+		
+		linker.append(
+				new CollectionSequencer<Integer>(),
+				new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						processedElements.incrementAndGet();
+						return item;
+					}
+				});
+		
+		List<Integer> list = new ArrayList<>();
+		for (int i = 0; i < 5000; ++i) {
+			list.add(i % 100 == 0 ? null : i);
+		}
+		List<List<Integer>> lists = new ArrayList<>();
+		for (int i = 0; i < 10; ++i) {
+			lists.add(list);
+		}
+		
+		linker.submitAll(lists);
+		linker.submit(list, list);
+		linker.submitAll(lists.iterator());
+		
+		linker.shutdown();
+		
+		assertEquals(22 * 4950, processedElements.get());
+	}
+	
+	@Test
+	public void testThreadedProcessor() throws Exception {
+		final AtomicInteger processedElements = new AtomicInteger(0);
+		final AtomicInteger collectedElements = new AtomicInteger(0);
+		PipeLinker linker = new PipeLinker();
+		
+		linker.append(
+				new ThreadedProcessor<>(4, new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						processedElements.incrementAndGet();
+						return item;
+					}
+				}),
+				new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						collectedElements.incrementAndGet();
+						return item;
+					}
+				});
+		
+		for (int i = 0; i < 10000; ++i) {
+			linker.submit(i);
+		}
+		
+		linker.shutdown();
+		
+		assertEquals(10000, processedElements.get());
+		assertEquals(10000, collectedElements.get());
+	}
+	
+	@Test
+	public void testThreadedProcessorWithVirtualThreads() throws Exception {
+		final Set<Thread> handlerThreads = ConcurrentHashMap.newKeySet();
+		final Set<Thread> collectorThreads = ConcurrentHashMap.newKeySet();
+		ThreadedProcessor<Integer, Integer> threadedProcessor = new ThreadedProcessor<>(4, 
+				new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						handlerThreads.add(Thread.currentThread());
+						return item;
+					}
+				}).useVirtualThreads(true);
+		
+		// the outputs of the handlers get passed on to the linked module by the multiplexer thread
+		new ModuleLinker().append(threadedProcessor, 
+				new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						collectorThreads.add(Thread.currentThread());
+						return item;
+					}
+				})
+		.submit(1, 2, 3, 4, 5, 6, 7, 8);
+		threadedProcessor.getResultFromCollectedItems();
+		threadedProcessor.finalShutdown();
+		
+		assertFalse(handlerThreads.isEmpty());
+		assertEquals(1, collectorThreads.size());
+		Set<Thread> threads = new HashSet<>(handlerThreads);
+		threads.addAll(collectorThreads);
+		
+		Method isVirtual;
+		try {
+			isVirtual = Thread.class.getMethod("isVirtual");
+		} catch (NoSuchMethodException e) {
+			// Java < 21: all threads are created as platform threads by the same fallback factory
+			isVirtual = null;
+		}
+		String namePrefix = null;
+		for (Thread thread : threads) {
+			if (isVirtual != null) {
+				assertTrue(thread.toString(), (Boolean) isVirtual.invoke(thread));
+			} else {
+				String prefix = thread.getName().substring(0, thread.getName().lastIndexOf('-') + 1);
+				if (namePrefix == null) {
+					namePrefix = prefix;
+				}
+				assertEquals(namePrefix, prefix);
+			}
+		}
+	}
+	
+	@Test
+	public void testThreadedProcessorWithFailingOutput() throws Exception {
+		final AtomicInteger collectedElements = new AtomicInteger(0);
+		ThreadedProcessor<Integer, Integer> threadedProcessor = new ThreadedProcessor<>(2, 
+				new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						return item;
+					}
+				});
+		
+		// the linked module is run by the multiplexer thread
+		ModuleLinker linker = new ModuleLinker().append(threadedProcessor, 
+				new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						if (item % 10 == 0) {
+							throw new IllegalStateException("test exception");
+						}
+						collectedElements.incrementAndGet();
+						return item;
+					}
+				});
+		for (int i = 1; i <= 100; ++i) {
+			linker.submit(i);
+		}
+		threadedProcessor.getResultFromCollectedItems();
+		threadedProcessor.finalShutdown();
+		
+		// the multiplexer thread survives the exceptions
+		assertEquals(90, collectedElements.get());
+	}
+	
+	@Test
+	public void testThreadedProcessorWithMultipleOutputs() throws Exception {
+		for (int outputBufferSize : new int[] { 1, 16, 64 }) {
+			final AtomicInteger collectedElements = new AtomicInteger(0);
+			final AtomicInteger collectedSum = new AtomicInteger(0);
+			PipeLinker linker = new PipeLinker();
+
+			linker.append(
+					new ThreadedProcessor<>(4, new AbstractProcessor<Integer, Integer>() {
+						@Override
+						public Integer processItem(Integer item, ProcessorSocket<Integer, Integer> socket) {
+							for (int i = 0; i < 10; ++i) {
+								socket.produce(item);
+							}
+							return null;
+						}
+					}).setOutputBufferSize(outputBufferSize),
+					new AbstractProcessor<Integer, Integer>() {
+						@Override
+						public Integer processItem(Integer item) {
+							collectedElements.incrementAndGet();
+							collectedSum.addAndGet(item);
+							return item;
+						}
+					});
+
+			long startTime = System.nanoTime();
+			for (int run = 1; run <= 3; ++run) {
+				for (int i = 0; i < 1000; ++i) {
+					linker.submit(i);
+				}
+				linker.flush();
+
+				assertEquals(run * 10000, collectedElements.get());
+				assertEquals(run * 10 * 499500, collectedSum.get());
+			}
+			long duration = System.nanoTime() - startTime;
+
+			linker.shutdown();
+
+			Log.out(this, "output buffer size %d: 30000 outputs in %d ms.", 
+					outputBufferSize, duration / 1000000);
+		}
+	}
+	
+	@Test
+	public void testThreadedProcessorPreservesOrder() throws Exception {
+		final List<Integer> collected = new ArrayList<>();
+		PipeLinker linker = new PipeLinker();
+
+		linker.append(
+				new ThreadedProcessor<>(4, new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item, ProcessorSocket<Integer, Integer> socket) {
+						if (item % 7 == 0) {
+							// delay some items, such that later items overtake them
+							try {
+								Thread.sleep(1);
+							} catch (InterruptedException e) {
+								// do nothing
+							}
+						}
+						if (item % 5 == 0) {
+							// no output at all
+							return null;
+						}
+						socket.produce(2 * item);
+						socket.produce(2 * item + 1);
+						return null;
+					}
+				}).setPreserveOrder(true),
+				new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						collected.add(item);
+						return null;
+					}
+				});
+
+		for (int run = 1; run <= 2; ++run) {
+			for (int i = 0; i < 500; ++i) {
+				linker.submit(i);
+			}
+			linker.flush();
+
+			assertEquals(run * 800, collected.size());
+		}
+		linker.shutdown();
+
+		int index = 0;
+		for (int run = 1; run <= 2; ++run) {
+			for (int i = 0; i < 500; ++i) {
+				if (i % 5 != 0) {
+					assertEquals(2 * i, collected.get(index++).intValue());
+					assertEquals(2 * i + 1, collected.get(index++).intValue());
+				}
+			}
+		}
+	}
+	
+	private static class ExclusiveProcessor extends AbstractProcessor<Integer, Integer> {
+		
+		private final AtomicBoolean busy = new AtomicBoolean(false);
+		private final AtomicInteger instances;
+		private final AtomicInteger violations;
+		
+		ExclusiveProcessor(AtomicInteger instances, AtomicInteger violations) {
+			this.instances = instances;
+			this.violations = violations;
+			instances.incrementAndGet();
+		}
+		
+		@Override
+		public Integer processItem(Integer item) {
+			if (!busy.compareAndSet(false, true)) {
+				violations.incrementAndGet();
+			}
+			try {
+				if (item % 50 == 0) {
+					// a few very expensive items
+					Thread.sleep(20);
+				}
+			} catch (InterruptedException e) {
+				// do nothing
+			} finally {
+				busy.set(false);
+			}
+			return item;
+		}
+		
+		@Override
+		public Processor<Integer, Integer> newProcessorInstance() {
+			return new ExclusiveProcessor(instances, violations);
+		}
+	}
+	
+	@Test
+	public void testWorkStealingProcessor() throws Exception {
+		final AtomicInteger instances = new AtomicInteger(0);
+		final AtomicInteger violations = new AtomicInteger(0);
+		final List<Integer> collected = new ArrayList<>();
+		PipeLinker linker = new PipeLinker();
+
+		linker.append(
+				new WorkStealingProcessor<>(4, new ExclusiveProcessor(instances, violations))
+				.setPreserveOrder(true),
+				new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						collected.add(item);
+						return null;
+					}
+				});
+
+		for (int run = 1; run <= 2; ++run) {
+			for (int i = 0; i < 500; ++i) {
+				linker.submit(i);
+			}
+			linker.flush();
+
+			assertEquals(run * 500, collected.size());
+		}
+		linker.shutdown();
+
+		for (int i = 0; i < collected.size(); ++i) {
+			assertEquals(i % 500, collected.get(i).intValue());
+		}
+		// one instance for the generator and at least one per worker
+		assertTrue(instances.get() >= 5);
+		assertEquals(0, violations.get());
+	}
+	
+	@Test
+	public void testWorkStealingProcessorLimitsHandlers() throws Exception {
+		final AtomicInteger instances = new AtomicInteger(0);
+		final AtomicInteger processedElements = new AtomicInteger(0);
+		final CountDownLatch latch = new CountDownLatch(1);
+		final Set<ClassLoader> outputClassLoaders = ConcurrentHashMap.newKeySet();
+		final ClassLoader classLoader = new URLClassLoader(new URL[0]);
+		
+		class BlockingProcessor extends AbstractProcessor<Integer, Integer> {
+			BlockingProcessor() {
+				instances.incrementAndGet();
+			}
+			@Override
+			public Integer processItem(Integer item) {
+				try {
+					// makes the pool add compensation threads
+					ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+						@Override
+						public boolean block() throws InterruptedException {
+							latch.await();
+							return true;
+						}
+						@Override
+						public boolean isReleasable() {
+							return latch.getCount() == 0;
+						}
+					});
+				} catch (InterruptedException e) {
+					// nothing
+				}
+				processedElements.incrementAndGet();
+				return item;
+			}
+			@Override
+			public Processor<Integer, Integer> newProcessorInstance() {
+				return new BlockingProcessor();
+			}
+		}
+		
+		Module<Integer, Integer> module = new WorkStealingProcessor<>(2, new BlockingProcessor(), classLoader).asModule();
+		module.linkTo(new AbstractProcessor<Integer, Integer>() {
+			@Override
+			public Integer processItem(Integer item) {
+				outputClassLoaders.add(Thread.currentThread().getContextClassLoader());
+				return null;
+			}
+		}.asModule());
+		
+		for (int i = 0; i < 20; ++i) {
+			module.submit(i);
+		}
+		Thread.sleep(500);
+		// one instance for the generator and at most twice the parallelism level
+		assertTrue("instances: " + instances.get(), instances.get() <= 5);
+		
+		latch.countDown();
+		module.getResultFromCollectedItems();
+		module.finalShutdown();
+		assertEquals(20, processedElements.get());
+		assertTrue("instances: " + instances.get(), instances.get() <= 5);
+		// the multiplexer thread uses the given class loader
+		assertEquals(1, outputClassLoaders.size());
+		assertTrue(outputClassLoaders.contains(classLoader));
+	}
+	
+	@Test
+	public void testWorkStealingProcessorLimitsPendingItems() throws Exception {
+		final AtomicInteger processedElements = new AtomicInteger(0);
+		final AtomicInteger submittedElements = new AtomicInteger(0);
+		final CountDownLatch latch = new CountDownLatch(1);
+		final PipeLinker linker = new PipeLinker().append(
+				new WorkStealingProcessor<>(2, new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						try {
+							latch.await();
+						} catch (InterruptedException e) {
+							// nothing
+						}
+						processedElements.incrementAndGet();
+						return null;
+					}
+				}));
+		
+		// the pipe thread submits the items to the pool
+		int itemCount = 2 * WorkStealingProcessor.MAX_PENDING_ITEMS;
+		Thread producer = new Thread(() -> {
+			for (int i = 0; i < itemCount; ++i) {
+				linker.submit(i);
+				submittedElements.incrementAndGet();
+			}
+		});
+		producer.start();
+		
+		// wait until the buffer of the pipe is full, too
+		int submitted = -1;
+		while (submitted != submittedElements.get()) {
+			submitted = submittedElements.get();
+			Thread.sleep(100);
+		}
+		assertTrue(submitted < itemCount);
+		// pending items in the pool, in the ring buffer of the pipe and in the pipe's thread
+		assertTrue("submitted " + submitted + " items", 
+				submitted <= WorkStealingProcessor.MAX_PENDING_ITEMS + linker.getBufferSizes()[0] + 1);
+		assertEquals(0, processedElements.get());
+		
+		latch.countDown();
+		producer.join();
+		linker.shutdown();
+		assertEquals(itemCount, processedElements.get());
+	}
+	
+	private static class Summer extends AbstractProcessor<Integer, Integer> {
+		
+		private int sum = 0;
+		
+		@Override
+		public Integer processItem(Integer item) {
+			sum += item;
+			return item;
+		}
+		
+		@Override
+		public Integer getResultFromCollectedItems() {
+			return sum;
+		}
+		
+		@Override
+		public Processor<Integer, Integer> newProcessorInstance() {
+			return new Summer();
+		}
+	}
+	
+	@Test
+	public void testStreamLinker() throws Exception {
+		List<Integer> items = new ArrayList<>();
+		for (int i = 0; i < 10000; ++i) {
+			items.add(i);
+		}
+		StreamLinker linker = new StreamLinker().append(
+				new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						return 2 * item;
+					}
+				},
+				new Summer());
+		
+		// all items are passed on in order, followed by the collected sums of each thread
+		List<Integer> results = linker.process(items);
+		assertTrue(results.size() > 10000);
+		long sumOfCollectedResults = 0;
+		for (int i = 0; i < results.size(); ++i) {
+			if (i < 10000) {
+				assertEquals(2 * i, results.get(i).intValue());
+			} else {
+				sumOfCollectedResults += results.get(i);
+			}
+		}
+		assertEquals(2 * 49995000, sumOfCollectedResults);
+		
+		// the collected sums of each thread are merged
+		Integer sum = linker.processAndReduce(items, Integer::sum);
+		assertEquals(2 * 49995000, sum.intValue());
+		
+		// sequential streams use a single chain
+		List<Integer> sequentialResults = linker.process(items.stream());
+		assertEquals(10001, sequentialResults.size());
+		assertEquals(2 * 49995000, sequentialResults.get(10000).intValue());
+	}
+	
+	@Test
+	public void testAsyncModules() throws Exception {
+		final AtomicInteger instances = new AtomicInteger(0);
+		final AtomicInteger violations = new AtomicInteger(0);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			ModuleLinker linker = new ModuleLinker().append(
+					new ExclusiveProcessor(instances, violations),
+					new AbstractProcessor<Integer, Integer>() {
+						@Override
+						public Integer processItem(Integer item) {
+							return item % 2 == 0 ? item + 1 : null;
+						}
+					}).setExecutor(executor);
+
+			List<Integer> items = new ArrayList<>();
+			for (int i = 0; i < 200; ++i) {
+				items.add(i);
+			}
+			List<Object> results = linker.submitAllAsync(items).get(10, TimeUnit.SECONDS);
+			assertEquals(200, results.size());
+			for (int i = 0; i < 200; ++i) {
+				assertEquals(i % 2 == 0 ? Integer.valueOf(i + 1) : null, results.get(i));
+			}
+			// one instance for the template and one per executor thread
+			assertTrue(instances.get() > 1 && instances.get() <= 5);
+			assertEquals(0, violations.get());
+			// asynchronous processing does not change the synchronous results
+			assertNull(linker.getLastResult());
+
+			Module<Integer, Integer> module = new Summer().asModule().setExecutor(executor);
+			assertEquals(42, module.submitAsync(42).get(10, TimeUnit.SECONDS).intValue());
+			assertNull(module.getResult());
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	public void testShutdownAsyncModules() throws Exception {
+		// uses the default executor
+		Module<Integer, Integer> module = new Summer().asModule();
+		for (int i = 1; i <= 100; ++i) {
+			module.submitAsync(i);
+		}
+		// the collected sums of all module instances add up
+		int sum = 0;
+		for (Integer result : module.shutdownAsync()) {
+			sum += result;
+		}
+		assertEquals(5050, sum);
+		assertTrue(module.shutdownAsync().isEmpty());
+		
+		ModuleLinker linker = new ModuleLinker().append(
+				new Summer(),
+				new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						return item;
+					}
+				});
+		for (int i = 1; i <= 100; ++i) {
+			linker.submitAsync(i);
+		}
+		// the collected sums are passed on through each chain
+		sum = 0;
+		for (Object result : linker.shutdownAsync()) {
+			sum += (Integer) result;
+		}
+		assertEquals(5050, sum);
+	}
+	
+	private static class IntSummer extends AbstractProcessor<Integer, Long> implements IntProcessor<Long> {
+		
+		private long sum = 0;
+		private int boxedItems = 0;
+		
+		@Override
+		public Long processItem(Integer item, ProcessorSocket<Integer, Long> socket) {
+			++boxedItems;
+			return processInt(item, socket);
+		}
+		
+		@Override
+		public Long processInt(int item, ProcessorSocket<Integer, Long> socket) {
+			sum += item;
+			return null;
+		}
+		
+		@Override
+		public Long getResultFromCollectedItems() {
+			return sum;
+		}
+	}
+	
+	@Test
+	public void testPrimitiveModules() throws Exception {
+		IntSummer summer = new IntSummer();
+		ModuleLinker linker = new ModuleLinker().append(
+				new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item, ProcessorSocket<Integer, Integer> socket) {
+						// produces each value twice
+						IntProducer.produceInt(socket, item);
+						IntProducer.produceInt(socket, item);
+						return null;
+					}
+				},
+				new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item, ProcessorSocket<Integer, Integer> socket) {
+						return item;
+					}
+				}, 
+				summer);
+		
+		linker.submit(1, 2, 3);
+		// the second processor is not an IntProcessor, so values get boxed
+		assertEquals(6, summer.boxedItems);
+		assertEquals(12L, linker.getCollectedResult());
+		
+		ModuleLinker primitiveLinker = new ModuleLinker().append(
+				new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item, ProcessorSocket<Integer, Integer> socket) {
+						for (int i = 0; i < item; ++i) {
+							IntProducer.produceInt(socket, i);
+						}
+						return null;
+					}
+				},
+				new IntSummer());
+		
+		primitiveLinker.submit(1000);
+		assertEquals(499500L, primitiveLinker.getCollectedResult());
+		
+		// values are passed on without boxing
+		IntSummer primitiveSummer = new IntSummer();
+		new ModuleLinker().append(primitiveSummer).submitInts(1, 2, 3);
+		assertEquals(0, primitiveSummer.boxedItems);
+		assertEquals(6L, primitiveSummer.sum);
+		
+		// default copies of the processor are IntProcessors, too
+		Module<Integer, Long> copy = primitiveSummer.newModuleInstance();
+		assertTrue(copy.getProcessor() instanceof IntProcessor);
+		copy.submitInt(4);
+		assertEquals(0, primitiveSummer.boxedItems);
+		assertEquals(10L, primitiveSummer.sum);
+	}
+	
+	@Test
+	public void testPipeMetrics() throws Exception {
+		PipeLinker linker = new PipeLinker().setFuseCheapStages(false).append(
+				new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item, ProcessorSocket<Integer, Integer> socket) {
+						socket.produce(item);
+						socket.produce(item);
+						return null;
+					}
+				},
+				new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						try {
+							Thread.sleep(1);
+						} catch (InterruptedException e) {
+							// do nothing
+						}
+						return null;
+					}
+				}).enableMetrics();
+		
+		for (int i = 0; i < 100; ++i) {
+			linker.submit(i);
+		}
+		linker.flush();
+		
+		List<PipeMetricsSnapshot> snapshots = linker.getMetricsSnapshots();
+		assertEquals(2, snapshots.size());
+		PipeMetricsSnapshot first = snapshots.get(0);
+		PipeMetricsSnapshot second = snapshots.get(1);
+		assertTrue(first.getName().startsWith("0-"));
+		assertEquals(100, first.getItemsIn());
+		assertEquals(200, first.getItemsOut());
+		assertEquals(200, second.getItemsIn());
+		assertEquals(0, second.getItemsOut());
+		long histogramSum = 0;
+		for (long count : second.getProcessingTimeHistogram()) {
+			histogramSum += count;
+		}
+		assertEquals(200, histogramSum);
+		// the sleeping stage is the bottleneck
+		assertTrue(second.getMeanProcessingTimeNanos() >= 1000000);
+		assertTrue(second.getProcessingTimePercentile(50) >= 1000000);
+		assertEquals(second.getBufferSize(), second.getRemainingCapacity());
+		// the first stage mostly waits for the full buffer of the second one, 
+		// which is not part of its processing time
+		assertTrue(first.getDownstreamSubmitTimeNanos() >= 100 * 1000000L);
+		assertTrue(first.getProcessingTimeNanos() < first.getDownstreamSubmitTimeNanos());
+		Log.out(this, "%s", first);
+		Log.out(this, "%s", second);
+		
+		linker.registerMBeans("se.de.hu_berlin.informatik.utils.test");
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName("se.de.hu_berlin.informatik.utils.test:type=Pipe,name=" 
+				+ ObjectName.quote(second.getName()));
+		assertEquals(200L, server.getAttribute(name, "ItemsIn"));
+		
+		linker.disableMetrics();
+		assertFalse(server.isRegistered(name));
+		assertTrue(linker.getMetricsSnapshots().isEmpty());
+		linker.shutdown();
+	}
+	
+	@Test
+	public void testFlush() throws Exception {
+		final AtomicInteger processedElements = new AtomicInteger(0);
+		final AtomicInteger collectedElements = new AtomicInteger(0);
+		PipeLinker linker = new PipeLinker();
+		
+		linker.append(
+				new ThreadedProcessor<>(4, new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						processedElements.incrementAndGet();
+						return item;
+					}
+				}),
+				new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						collectedElements.incrementAndGet();
+						return item;
+					}
+				});
+		
+		for (int run = 1; run <= 5; ++run) {
+			for (int i = 0; i < 1000; ++i) {
+				linker.submit(i);
+			}
+			linker.flush();
+			
+			assertEquals(run * 1000, processedElements.get());
+			assertEquals(run * 1000, collectedElements.get());
+		}
+		
+		linker.shutdown();
+	}
+	
+	@Test
+	public void testBroadcastAndMerge() throws Exception {
+		final AtomicInteger branch1Elements = new AtomicInteger(0);
+		final AtomicInteger branch2Elements = new AtomicInteger(0);
+		final AtomicInteger mergedElements = new AtomicInteger(0);
+		final AtomicInteger mergedSum = new AtomicInteger(0);
+		
+		PipeLinker branch1 = new PipeLinker().append(
+				new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						branch1Elements.incrementAndGet();
+						return item;
+					}
+				});
+		PipeLinker branch2 = new PipeLinker().append(
+				new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						branch2Elements.incrementAndGet();
+						return -item;
+					}
+				});
+		
+		PipeLinker linker = new PipeLinker().append(
+				new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						return item + 1;
+					}
+				})
+				.appendBroadcast(branch1, branch2)
+				.append(new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						mergedElements.incrementAndGet();
+						mergedSum.addAndGet(item);
+						return null;
+					}
+				});
+		
+		for (int run = 1; run <= 3; ++run) {
+			for (int i = 0; i < 1000; ++i) {
+				linker.submit(i);
+			}
+			linker.flush();
+			
+			assertEquals(run * 1000, branch1Elements.get());
+			assertEquals(run * 1000, branch2Elements.get());
+			assertEquals(run * 2000, mergedElements.get());
+			assertEquals(0, mergedSum.get());
+		}
+		
+		linker.shutdown();
+	}
+	
+	@Test
+	public void testPartition() throws Exception {
+		final Map<Integer, String> keyToBranch = new ConcurrentHashMap<>();
+		final AtomicInteger processedElements = new AtomicInteger(0);
+		final AtomicInteger conflicts = new AtomicInteger(0);
+		
+		PipeLinker[] branches = new PipeLinker[3];
+		for (int j = 0; j < branches.length; ++j) {
+			final String name = "branch" + j;
+			branches[j] = new PipeLinker().append(
+					new AbstractProcessor<Integer, Integer>() {
+						@Override
+						public Integer processItem(Integer item) {
+							String previous = keyToBranch.putIfAbsent(item % 10, name);
+							if (previous != null && !previous.equals(name)) {
+								conflicts.incrementAndGet();
+							}
+							processedElements.incrementAndGet();
+							return item;
+						}
+					});
+		}
+		
+		PipeLinker linker = new PipeLinker().append(
+				new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						return item;
+					}
+				})
+				.appendPartition(item -> ((Integer) item) % 10, branches);
+		
+		for (int i = 0; i < 1000; ++i) {
+			linker.submit(i);
+		}
+		linker.shutdown();
+		
+		assertEquals(1000, processedElements.get());
+		assertEquals(0, conflicts.get());
+		assertEquals(10, keyToBranch.size());
+	}
+	
+	@Test
+	public void testStageFusion() throws Exception {
+		final Set<Thread> cheapThreads = ConcurrentHashMap.newKeySet();
+		final Map<Integer, Thread> secondStageThreads = new ConcurrentHashMap<>();
+		final AtomicInteger processedElements = new AtomicInteger(0);
+		final AtomicInteger lastElement = new AtomicInteger(0);
+		
+		PipeLinker linker = new PipeLinker().append(
+				new AbstractProcessor<Integer, Integer>() {
+					private int sum = 0;
+					@Override
+					public Integer processItem(Integer item) {
+						cheapThreads.add(Thread.currentThread());
+						sum += item;
+						return item;
+					}
+					@Override
+					public Integer getResultFromCollectedItems() {
+						return sum;
+					}
+					@Override
+					public boolean isCheap() {
+						return true;
+					}
+				},
+				new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						secondStageThreads.put(item, Thread.currentThread());
+						return item + 1;
+					}
+					@Override
+					public boolean isCheap() {
+						return true;
+					}
+				},
+				new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						processedElements.incrementAndGet();
+						lastElement.set(item);
+						return item;
+					}
+				});
+		
+		for (int i = 0; i < 100; ++i) {
+			linker.submit(i);
+		}
+		linker.shutdown();
+		
+		// both cheap processors run in the thread of the same pipe
+		assertEquals(1, cheapThreads.size());
+		Thread pipeThread = cheapThreads.iterator().next();
+		for (int i = 0; i < 100; ++i) {
+			assertEquals(pipeThread, secondStageThreads.get(i));
+		}
+		// the collected sum of the first processor is processed by the second one in the shutting down thread
+		assertEquals(Thread.currentThread(), secondStageThreads.get(4950));
+		assertEquals(101, secondStageThreads.size());
+		// 100 items plus the collected sum of the first processor
+		assertEquals(101, processedElements.get());
+		assertEquals(4951, lastElement.get());
+	}
+	
+	@Test
+	public void testBackpressure() throws Exception {
+		final AtomicInteger processedElements = new AtomicInteger(0);
+		final CountDownLatch latch = new CountDownLatch(1);
+		
+		PipeLinker linker = new PipeLinker().append(8,
+				new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						try {
+							latch.await();
+						} catch (InterruptedException e) {
+							// nothing
+						}
+						processedElements.incrementAndGet();
+						return item;
+					}
+				})
+				.setAdaptiveBufferSizing(true);
+		
+		int accepted = 0;
+		while (accepted < 100 && linker.trySubmit(accepted)) {
+			++accepted;
+		}
+		assertTrue(accepted >= 8 && accepted < 100);
+		assertFalse(linker.submit(accepted, 10, TimeUnit.MILLISECONDS));
+		
+		latch.countDown();
+		assertTrue(linker.submit(accepted, 1, TimeUnit.SECONDS));
+		linker.shutdown();
+		assertEquals(accepted + 1, processedElements.get());
+		
+		// the producer stalled, so the buffer should have been enlarged
+		assertEquals(16, linker.getBufferSizes()[0]);
+		
+		// the buffer is mostly empty with a single item
+		linker.submit(1);
+		linker.shutdown();
+		assertEquals(accepted + 2, processedElements.get());
+		assertEquals(8, linker.getBufferSizes()[0]);
+	}
+	
+	@Test
+	public void testWaitStrategies() throws Exception {
+		int itemCount = 2000;
+		for (DisruptorWaitStrategy waitStrategy : DisruptorWaitStrategy.values()) {
+			final AtomicInteger processedElements = new AtomicInteger(0);
+			PipeLinker linker = new PipeLinker();
+			
+			for (int j = 0; j < 3; ++j) {
+				Processor<Integer, Integer> processor = new AbstractProcessor<Integer, Integer>() {
+					@Override
+					public Integer processItem(Integer item) {
+						processedElements.incrementAndGet();
+						return item;
+					}
+				};
+				linker.append(waitStrategy, processor);
+				assertEquals(waitStrategy, processor.asPipe(8).getWaitStrategy());
+			}
+			
+			for (int i = 0; i < itemCount; ++i) {
+				linker.submit(i);
+			}
+			linker.shutdown();
+			
+			assertEquals(3 * itemCount, processedElements.get());
+		}
+	}
+	
+	@Test
+	public void testWaitStrategyIsKept() throws Exception {
+		Pipe<Integer, Integer> pipe = new AbstractProcessor<Integer, Integer>() {
+			@Override
+			public Integer processItem(Integer item) {
+				return item;
+			}
+		}.asPipe(8).setWaitStrategy(DisruptorWaitStrategy.SLEEPING);
+		Pipe<Integer, Integer> pipe2 = new AbstractProcessor<Integer, Integer>() {
+			@Override
+			public Integer processItem(Integer item) {
+				return item;
+			}
+		}.asPipe(8);
+		
+		// appending without a wait strategy does not overwrite the configured ones
+		PipeLinker linker = new PipeLinker().append(pipe, pipe2);
+		assertEquals(DisruptorWaitStrategy.SLEEPING, pipe.getWaitStrategy());
+		assertEquals(DisruptorWaitStrategy.BLOCKING, pipe2.getWaitStrategy());
+		
+		Processor<Integer, Integer> processor = new AbstractProcessor<Integer, Integer>() {
+			@Override
+			public Integer processItem(Integer item) {
+				return item;
+			}
+		};
+		linker.append(DisruptorWaitStrategy.YIELDING, processor);
+		assertEquals(DisruptorWaitStrategy.SLEEPING, pipe.getWaitStrategy());
+		assertEquals(DisruptorWaitStrategy.YIELDING, processor.asPipe(8).getWaitStrategy());
+		linker.shutdown();
+	}
+	
 }